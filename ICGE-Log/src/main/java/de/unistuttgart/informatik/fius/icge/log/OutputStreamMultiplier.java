@@ -76,6 +76,14 @@ public class OutputStreamMultiplier extends OutputStream {
         }
     }
     
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        // pass whole arrays on instead of single bytes
+        for (final OutputStream listenerStream : this.listenerStreams) {
+            listenerStream.write(b, off, len);
+        }
+    }
+    
     @Override
     public void close() throws IOException {
         for (final OutputStream listenerStream : this.listenerStreams) {
@@ -11,9 +11,11 @@ package de.unistuttgart.informatik.fius.icge.manualstart;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import de.unistuttgart.informatik.fius.icge.simulation.Simulation;
 import de.unistuttgart.informatik.fius.icge.simulation.TaskVerifier;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.Action;
 import de.unistuttgart.informatik.fius.icge.simulation.actions.ActionLog;
 import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityMoveAction;
 import de.unistuttgart.informatik.fius.icge.ui.TaskInformation;
@@ -48,7 +50,7 @@ public class TestTaskVerifier implements TaskVerifier, TaskInformation {
             return;
         }
         // check the number of steps/moves all entity have taken together
-        this.stepsWalked = this.log.getActionsOfType(EntityMoveAction.class, true).size();
+        this.stepsWalked = (int) this.log.getActionCount(EntityMoveAction.class, true);
         
         // as long as task is still achievable use UNDECIDED status
         if (this.stepsWalked < this.minStepsToWalk) {
@@ -66,6 +68,12 @@ public class TestTaskVerifier implements TaskVerifier, TaskInformation {
         this.taskIsValid = TaskVerificationStatus.SUCCESSFUL;
     }
     
+    @Override
+    public Set<Class<? extends Action>> getRequiredActionTypes() {
+        // only the moves are counted
+        return Set.of(EntityMoveAction.class);
+    }
+    
     @Override
     public TaskInformation getTaskInformation() {
         return this;
@@ -9,15 +9,30 @@
  */
 package de.unistuttgart.informatik.fius.icge.simulation;
 
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 
 /**
  * A list which can contain and return multiple types.
+ * <p>
+ * The objects of every type are kept in a hash set in the order they were added, so adding, removing and checking for
+ * an object takes constant time. Objects are compared by identity, not by {@link Object#equals(Object)}, and an object
+ * is contained at most once.
+ * </p>
+ * <p>
+ * A list can share its objects with another list (see {@link #shareObjectsOf(MultiTypedList, Function)}). The shared
+ * objects are only copied once one of the lists is changed.
+ * </p>
  * 
  * @author Tim Neumann
  * @param <P>
@@ -25,23 +40,118 @@ import java.util.Set;
  */
 public class MultiTypedList<P> {
     
-    private final HashMap<Class<? extends P>, List<P>> items = new HashMap<>();
+    private HashMap<Class<? extends P>, Set<P>> items = new HashMap<>();
+    
+    /** The number of objects in this list. */
+    private int size;
+    
+    /** Whether the items are shared with another list, so they must be copied before they are changed. */
+    private boolean                          itemsShared;
+    /**
+     * The function mapping the shared items to the objects of this list; applied on the first use of this list. Null if
+     * the items need no mapping.
+     */
+    private Function<? super P, ? extends P> sharedItemsMapping;
+    
+    /**
+     * The stored types matching a requested type or one of its subclasses, by requested type.
+     * <p>
+     * Created on the first query including subclasses and cleared whenever a new type is stored.
+     * </p>
+     */
+    private HashMap<Class<?>, List<Class<? extends P>>> matchingTypes;
     
     /**
-     * Get the relevant list for the given type.
+     * Make this list contain the objects of the given list, mapped with the given function.
+     * <p>
+     * Both lists share the objects until one of them is changed, so this takes constant time. The mapping is applied to
+     * all objects on the first use of this list. Objects mapped to null are left out.
+     * </p>
+     * 
+     * @param original
+     *     The list to share the objects of; must not be this list
+     * @param mapping
+     *     The function mapping the objects of the given list to the objects of this list; null to keep the objects
+     */
+    public void shareObjectsOf(final MultiTypedList<P> original, final Function<? super P, ? extends P> mapping) {
+        if (original == null) throw new IllegalArgumentException("The given list is null.");
+        if (original == this) throw new IllegalArgumentException("A list cannot share the objects of itself.");
+        synchronized (original) {
+            synchronized (this) {
+                this.items = original.items;
+                this.size = original.size;
+                this.itemsShared = true;
+                original.itemsShared = true;
+                this.matchingTypes = null;
+                final Function<? super P, ? extends P> originalMapping = original.sharedItemsMapping;
+                if ((originalMapping == null) || (mapping == null)) {
+                    this.sharedItemsMapping = originalMapping == null ? mapping : originalMapping;
+                } else {
+                    this.sharedItemsMapping = o -> {
+                        final P mapped = originalMapping.apply(o);
+                        return mapped == null ? null : mapping.apply(mapped);
+                    };
+                }
+            }
+        }
+    }
+    
+    /**
+     * Apply the mapping of the shared items, if there is one; must hold the lock of this list.
+     */
+    private void prepareForRead() {
+        final Function<? super P, ? extends P> mapping = this.sharedItemsMapping;
+        if (mapping == null) return;
+        final HashMap<Class<? extends P>, Set<P>> mappedItems = new HashMap<>();
+        int mappedSize = 0;
+        for (final Set<P> set : this.items.values()) {
+            for (final P o : set) {
+                final P mapped = mapping.apply(o);
+                if (mapped == null) {
+                    continue;
+                }
+                if (mappedItems.computeIfAbsent(this.getClass(mapped), type -> new IdentitySet<>()).add(mapped)) {
+                    mappedSize++;
+                }
+            }
+        }
+        this.items = mappedItems;
+        this.size = mappedSize;
+        this.itemsShared = false;
+        this.sharedItemsMapping = null;
+        this.matchingTypes = null;
+    }
+    
+    /**
+     * Make sure the items are not shared with another list before changing them; must hold the lock of this list.
+     */
+    private void prepareForChange() {
+        this.prepareForRead();
+        if (!this.itemsShared) return;
+        final HashMap<Class<? extends P>, Set<P>> copiedItems = new HashMap<>();
+        for (final Map.Entry<Class<? extends P>, Set<P>> entry : this.items.entrySet()) {
+            final IdentitySet<P> set = new IdentitySet<>();
+            set.addAll(entry.getValue());
+            copiedItems.put(entry.getKey(), set);
+        }
+        this.items = copiedItems;
+        this.itemsShared = false;
+    }
+    
+    /**
+     * Get the relevant set for the given type.
      * 
      * @param type
-     *     The type to get the list for
-     * @return an Optional with the list if it exists, otherwise an empty Optional
+     *     The type to get the set for
+     * @return the set or null if it does not exist
      */
-    private <T extends P> Optional<List<T>> getRelevantListGeneric(final Class<? extends T> type) {
-        final List<? extends P> list = this.items.get(type);
+    private <T extends P> Set<T> getRelevantSetGeneric(final Class<? extends T> type) {
         //We need this one unchecked cast.
-        //But nothing can happen here, because the HashMap always contains lists of the type of the key
-        //And therefore we have here a list of the type which is the parameter, which extends T
+        //But nothing can happen here, because the HashMap always contains sets of the type of the key
+        //And therefore we have here a set of the type which is the parameter, which extends T
         @SuppressWarnings("unchecked")
-        final var listOfCorrectType = (List<T>) list;
-        return Optional.ofNullable(listOfCorrectType);
+        final var setOfCorrectType = (Set<T>) this.items.get(type);
+        return setOfCorrectType;
     }
     
     private Class<? extends P> getClass(final P o) {
@@ -53,40 +163,64 @@ public class MultiTypedList<P> {
     }
     
     /**
-     * Get the relevant list for the given object.
+     * Get the relevant set for the given object and create it if it is not there.
      * 
      * @param o
-     *     The object to get the list for
-     * @return an Optional with the list if it exists, otherwise an empty Optional
+     *     The object to get the set for
+     * @return The set for the given object
      */
-    private Optional<List<P>> getRelevantList(final P o) {
-        return this.getRelevantListGeneric(this.getClass(o));
+    private Set<P> getRelevantSetAndCreate(final P o) {
+        final var type = this.getClass(o);
+        final Set<P> existing = this.items.get(type);
+        if (existing != null) return existing;
+        
+        final Set<P> set = new IdentitySet<>();
+        this.items.put(type, set);
+        if (this.matchingTypes != null) {
+            // the new type may match any requested type
+            this.matchingTypes.clear();
+        }
+        return set;
     }
     
     /**
-     * Get the relevant list for the given entity and create it if it is not there.
+     * Get the stored types which are the given type or one of its subclasses.
      * 
-     * @param o
-     *     The object to get the list for
-     * @return The list for the given object
+     * @param type
+     *     The requested type
+     * @return The matching stored types
      */
-    private List<P> getRelevantListAndCreate(final P o) {
-        final var type = this.getClass(o);
-        if (this.items.containsKey(type)) return this.items.get(type);
-        
-        final List<P> list = new ArrayList<>();
-        this.items.put(type, list);
-        return list;
+    private List<Class<? extends P>> getMatchingTypes(final Class<?> type) {
+        if (this.matchingTypes == null) {
+            this.matchingTypes = new HashMap<>();
+        }
+        List<Class<? extends P>> matching = this.matchingTypes.get(type);
+        if (matching == null) {
+            matching = new ArrayList<>();
+            for (final Class<? extends P> storedType : this.items.keySet()) {
+                if (type.isAssignableFrom(storedType)) {
+                    matching.add(storedType);
+                }
+            }
+            this.matchingTypes.put(type, matching);
+        }
+        return matching;
     }
     
     /**
      * Add the given object to this list.
+     * <p>
+     * Nothing happens if the object is already contained in this list.
+     * </p>
      * 
      * @param o
      *     The object to add
      */
     public synchronized void add(final P o) {
-        this.getRelevantListAndCreate(o).add(o);
+        this.prepareForChange();
+        if (this.getRelevantSetAndCreate(o).add(o)) {
+            this.size++;
+        }
     }
     
     /**
@@ -97,9 +231,9 @@ public class MultiTypedList<P> {
      * @return Whether this list contains the given object
      */
     public synchronized boolean contains(final P o) {
-        final var opt = this.getRelevantList(o);
-        if (opt.isEmpty()) return false;
-        return opt.get().contains(o);
+        this.prepareForRead();
+        final Set<P> set = this.items.get(this.getClass(o));
+        return (set != null) && set.contains(o);
     }
     
     /**
@@ -108,7 +242,8 @@ public class MultiTypedList<P> {
      * @return {@code true} if empty
      */
     public synchronized boolean isEmpty() {
-        return this.items.isEmpty();
+        this.prepareForRead();
+        return this.size == 0;
     }
     
     /**
@@ -119,9 +254,11 @@ public class MultiTypedList<P> {
      * @return Whether this cell contained the given object
      */
     public synchronized boolean remove(final P o) {
-        final var opt = this.getRelevantList(o);
-        if (opt.isEmpty()) return false;
-        return opt.get().remove(o);
+        this.prepareForChange();
+        final Set<P> set = this.items.get(this.getClass(o));
+        if ((set == null) || !set.remove(o)) return false;
+        this.size--;
+        return true;
     }
     
     /**
@@ -133,28 +270,196 @@ public class MultiTypedList<P> {
      *     The type of the objects to get
      * @param includeSubclasses
      *     Whether to include the subclasses of the given type
-     * @return A list of all matching objects
+     * @return A new list of all matching objects
      */
     public synchronized <T extends P> List<T> get(final Class<? extends T> type, final boolean includeSubclasses) {
-        if (!includeSubclasses) return this.<T>getRelevantListGeneric(type).orElse(List.of());
+        this.prepareForRead();
+        if (!includeSubclasses) {
+            final Set<T> set = this.getRelevantSetGeneric(type);
+            return set == null ? List.of() : new ArrayList<>(set);
+        }
         
-        final List<T> result = new ArrayList<>();
+        final List<Class<? extends P>> matching = this.getMatchingTypes(type);
+        if (matching.isEmpty()) return List.of();
         
-        for (final Class<? extends P> storedType : this.items.keySet()) {
-            if (type.isAssignableFrom(storedType)) {
-                final Class<? extends T> storedTypeAsSubOfRequested = storedType.asSubclass(type);
-                final List<T> listForStoredType = this.<T>getRelevantListGeneric(storedTypeAsSubOfRequested).orElse(List.of());
-                result.addAll(listForStoredType);
+        final List<T> result = new ArrayList<>();
+        for (int i = 0; i < matching.size(); i++) {
+            //The stored type is the requested type or one of its subclasses, so the set contains objects of type T.
+            @SuppressWarnings("unchecked")
+            final Set<T> setForStoredType = (Set<T>) this.items.get(matching.get(i));
+            if (setForStoredType != null) {
+                result.addAll(setForStoredType);
             }
         }
-        
         return result;
     }
     
+    /**
+     * Count the objects in this list of the given type.
+     * 
+     * @param type
+     *     The type of the objects to count
+     * @param includeSubclasses
+     *     Whether to include the subclasses of the given type
+     * @return The number of matching objects
+     */
+    public synchronized int count(final Class<? extends P> type, final boolean includeSubclasses) {
+        this.prepareForRead();
+        if (!includeSubclasses) {
+            final Set<P> set = this.items.get(type);
+            return set == null ? 0 : set.size();
+        }
+        int count = 0;
+        final List<Class<? extends P>> matching = this.getMatchingTypes(type);
+        for (int i = 0; i < matching.size(); i++) {
+            final Set<P> set = this.items.get(matching.get(i));
+            if (set != null) {
+                count += set.size();
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Perform the given action for all objects in this list of the given type.
+     * <p>
+     * Unlike {@link #get(Class, boolean)} this method does not copy the matching objects into a new list. The list is
+     * locked while the action is performed, so the action must not change this list.
+     * </p>
+     * 
+     * @param <T>
+     *     The generic type of the objects
+     * @param type
+     *     The type of the objects
+     * @param includeSubclasses
+     *     Whether to include the subclasses of the given type
+     * @param action
+     *     The action to perform for every matching object
+     */
+    public synchronized <T extends P> void forEach(
+            final Class<? extends T> type, final boolean includeSubclasses, final Consumer<? super T> action
+    ) {
+        this.prepareForRead();
+        if (!includeSubclasses) {
+            final Set<T> set = this.getRelevantSetGeneric(type);
+            if (set != null) {
+                set.forEach(action);
+            }
+            return;
+        }
+        final List<Class<? extends P>> matching = this.getMatchingTypes(type);
+        for (int i = 0; i < matching.size(); i++) {
+            //The stored type is the requested type or one of its subclasses, so the set contains objects of type T.
+            @SuppressWarnings("unchecked")
+            final Set<T> setForStoredType = (Set<T>) this.items.get(matching.get(i));
+            if (setForStoredType != null) {
+                setForStoredType.forEach(action);
+            }
+        }
+    }
+    
+    /**
+     * Check whether this list contains an object of the given type matching the given predicate.
+     * <p>
+     * Unlike {@link #get(Class, boolean)} this method does not copy the matching objects into a new list.
+     * </p>
+     * 
+     * @param <T>
+     *     The generic type of the objects to check
+     * @param type
+     *     The type of the objects to check
+     * @param includeSubclasses
+     *     Whether to include the subclasses of the given type
+     * @param predicate
+     *     The predicate to test the objects with
+     * @return Whether an object of the given type matches the predicate
+     */
+    public synchronized <T extends P> boolean containsMatching(
+            final Class<? extends T> type, final boolean includeSubclasses, final Predicate<? super T> predicate
+    ) {
+        this.prepareForRead();
+        if (!includeSubclasses) return MultiTypedList.anyMatch(this.items.get(type), predicate);
+        
+        final List<Class<? extends P>> matching = this.getMatchingTypes(type);
+        for (int i = 0; i < matching.size(); i++) {
+            if (MultiTypedList.anyMatch(this.items.get(matching.get(i)), predicate)) return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Test the objects of a set stored for the type of the predicate or one of its subtypes.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> boolean anyMatch(final Set<?> set, final Predicate<? super T> predicate) {
+        if (set == null) return false;
+        //The set is stored for the type of the predicate or one of its subtypes, so the cast is safe.
+        for (final Object o : set) {
+            if (predicate.test((T) o)) return true;
+        }
+        return false;
+    }
+    
     /**
      * @return a list of stored types.
      */
     public synchronized Set<Class<? extends P>> getStoredTypes() {
+        this.prepareForRead();
         return this.items.keySet();
     }
+    
+    /**
+     * A set comparing its objects by identity and iterating them in the order they were added.
+     */
+    private static final class IdentitySet<E> extends AbstractSet<E> {
+        
+        private final LinkedHashMap<IdentityKey, E> objects = new LinkedHashMap<>();
+        
+        @Override
+        public boolean add(final E o) {
+            return this.objects.putIfAbsent(new IdentityKey(o), o) == null;
+        }
+        
+        @Override
+        public boolean contains(final Object o) {
+            return this.objects.containsKey(new IdentityKey(o));
+        }
+        
+        @Override
+        public boolean remove(final Object o) {
+            return this.objects.remove(new IdentityKey(o)) != null;
+        }
+        
+        @Override
+        public Iterator<E> iterator() {
+            return this.objects.values().iterator();
+        }
+        
+        @Override
+        public int size() {
+            return this.objects.size();
+        }
+    }
+    
+    /**
+     * A key of a hash map comparing the wrapped object by identity.
+     */
+    private static final class IdentityKey {
+        
+        private final Object object;
+        
+        private IdentityKey(final Object object) {
+            this.object = object;
+        }
+        
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this.object);
+        }
+        
+        @Override
+        public boolean equals(final Object obj) {
+            return (obj instanceof IdentityKey) && (((IdentityKey) obj).object == this.object);
+        }
+    }
 }
@@ -16,6 +16,7 @@ import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityTeleportAct
 import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
 import de.unistuttgart.informatik.fius.icge.simulation.exception.EntityAlreadyOnFieldExcpetion;
 import de.unistuttgart.informatik.fius.icge.simulation.exception.EntityNotOnFieldException;
+import de.unistuttgart.informatik.fius.icge.simulation.exception.IllegalMoveException;
 
 
 /**
@@ -52,6 +53,74 @@ public interface Playfield {
      */
     <T extends Entity> List<T> getAllEntitiesOfType(Class<? extends T> type, boolean includeSubclasses);
     
+    /**
+     * Get a list of all entities in the rectangle spanned by the two given corners on this playfield.
+     * 
+     * @param corner1
+     *     One corner of the rectangle (inclusive); must <b>not</b> be <b>null</b>
+     * @param corner2
+     *     The opposite corner of the rectangle (inclusive); must <b>not</b> be <b>null</b>
+     * @return A list of all entities in the rectangle
+     * @throws IllegalArgumentException
+     *     if a given corner is null
+     */
+    List<Entity> getEntitiesInArea(Position corner1, Position corner2);
+    
+    /**
+     * Get a list of all entities matching the given type in the rectangle spanned by the two given corners on this
+     * playfield.
+     * 
+     * @param <T>
+     *     The generic type to return the entities as
+     * @param corner1
+     *     One corner of the rectangle (inclusive); must <b>not</b> be <b>null</b>
+     * @param corner2
+     *     The opposite corner of the rectangle (inclusive); must <b>not</b> be <b>null</b>
+     * @param type
+     *     The type of entity to get; must <b>not</b> be <b>null</b>
+     * @param includeSubclasses
+     *     Whether to include the subclasses of the given type
+     * @return A list of all matching entities
+     * @throws IllegalArgumentException
+     *     if a given corner or the given type is null
+     */
+    <T extends Entity> List<T> getEntitiesOfTypeInArea(
+            Position corner1, Position corner2, Class<? extends T> type, boolean includeSubclasses
+    );
+    
+    /**
+     * Get a list of all entities whose position has at most the given (euclidean) distance to the given center.
+     * 
+     * @param center
+     *     The center of the circle; must <b>not</b> be <b>null</b>
+     * @param radius
+     *     The radius of the circle; must be {@code >= 0}
+     * @return A list of all entities in the circle
+     * @throws IllegalArgumentException
+     *     if the given center is null or the radius is negative
+     */
+    List<Entity> getEntitiesInRadius(Position center, int radius);
+    
+    /**
+     * Get a list of all entities matching the given type whose position has at most the given (euclidean) distance to
+     * the given center.
+     * 
+     * @param <T>
+     *     The generic type to return the entities as
+     * @param center
+     *     The center of the circle; must <b>not</b> be <b>null</b>
+     * @param radius
+     *     The radius of the circle; must be {@code >= 0}
+     * @param type
+     *     The type of entity to get; must <b>not</b> be <b>null</b>
+     * @param includeSubclasses
+     *     Whether to include the subclasses of the given type
+     * @return A list of all matching entities
+     * @throws IllegalArgumentException
+     *     if the given center or type is null or the radius is negative
+     */
+    <T extends Entity> List<T> getEntitiesOfTypeInRadius(Position center, int radius, Class<? extends T> type, boolean includeSubclasses);
+    
     /**
      * Get a list of all entities at the given position on this playfield.
      * 
@@ -129,6 +198,34 @@ public interface Playfield {
      */
     void moveEntity(Entity entity, Position pos, EntityMoveAction action);
     
+    /**
+     * Move a entity of this simulation to a given position on this playfield unless a solid entity is at that position.
+     * <p>
+     * Implementations should check for a solid entity and move the entity in one atomic change, so that no solid entity
+     * can be moved to the position in between, even if operations run concurrently. The default implementation only
+     * calls {@link #isSolidEntityAt(Position)} and {@link #moveEntity(Entity, Position, EntityMoveAction)}.
+     * </p>
+     * 
+     * @param entity
+     *     The entity to move; <b>must</b> be <b>on the field</b>; must <b>not</b> be <b>null</b>
+     * @param pos
+     *     The position to move the entity to; must <b>not</b> be <b>null</b>
+     * @param action
+     *     An action describing this move; will be logged by this method; if null causes a {@link EntityTeleportAction}
+     * @throws IllegalMoveException
+     *     if a solid entity is at the given position
+     * @throws EntityNotOnFieldException
+     *     if the given entity is not in this playfield
+     * @throws IllegalArgumentException
+     *     if the given pos or entity is null
+     * @throws IllegalArgumentException
+     *     if the given action match with the other arguments
+     */
+    default void moveEntityUnlessSolid(final Entity entity, final Position pos, final EntityMoveAction action) {
+        if (this.isSolidEntityAt(pos)) throw new IllegalMoveException("Solid Entity in the way");
+        this.moveEntity(entity, pos, action);
+    }
+    
     /**
      * Remove a entity of this simulation from this playfield.
      * 
@@ -173,4 +270,19 @@ public interface Playfield {
      * @return true if and only if a solid entity is at that position
      */
     boolean isSolidEntityAt(Position pos);
+    
+    /**
+     * Inform this playfield that the draw information of the specified entity changed without the entity being moved,
+     * e.g. because it started or finished an animation.
+     * <p>
+     * Entities must call this whenever the result of {@link Entity#getDrawInformation()} changes for other reasons than
+     * being moved, as the playfield only redraws changed entities.
+     * </p>
+     * 
+     * @param entity
+     *     The entity whose draw information changed; must <b>not</b> be <b>null</b>
+     * @throws IllegalArgumentException
+     *     if the given entity is null
+     */
+    void drawInformationChanged(Entity entity);
 }
@@ -9,9 +9,6 @@
  */
 package de.unistuttgart.informatik.fius.icge.simulation;
 
-import java.util.Arrays;
-
-
 /**
  * Represents a position on the playfield.
  * <p>
@@ -32,9 +29,74 @@ import java.util.Arrays;
  * @author Tim Neumann
  */
 public class Position {
+    /** Positions with both coordinates in {@code [-CACHE_OFFSET, CACHE_OFFSET)} are cached by {@link #of(int, int)}. */
+    private static final int        CACHE_OFFSET = 128;
+    private static final int        CACHE_SIZE   = 2 * Position.CACHE_OFFSET;
+    /**
+     * The lazily filled cache; races are harmless as positions are immutable and safely published through their final
+     * fields.
+     */
+    private static final Position[] CACHE        = new Position[Position.CACHE_SIZE * Position.CACHE_SIZE];
+    
     private final int x;
     private final int y;
     
+    /**
+     * Get the position with the given coordinates.
+     * <p>
+     * Positions near the origin are cached, so this method does not allocate a new object for them. Prefer this method
+     * over the constructor in frequently called code.
+     * </p>
+     * 
+     * @param x
+     *     The x coordinate of the position
+     * @param y
+     *     The y coordinate of the position
+     * @return a position with the given coordinates
+     */
+    public static Position of(final int x, final int y) {
+        final int cacheX = x + Position.CACHE_OFFSET;
+        final int cacheY = y + Position.CACHE_OFFSET;
+        if ((cacheX < 0) || (cacheX >= Position.CACHE_SIZE) || (cacheY < 0) || (cacheY >= Position.CACHE_SIZE)) {
+            return new Position(x, y);
+        }
+        final int index = (cacheX * Position.CACHE_SIZE) + cacheY;
+        Position position = Position.CACHE[index];
+        if (position == null) {
+            position = new Position(x, y);
+            Position.CACHE[index] = position;
+        }
+        return position;
+    }
+    
+    /**
+     * Get the position for the given packed key.
+     * 
+     * @param key
+     *     a key created by {@link #toKey()} or {@link #toKey(int, int)}
+     * @return the position with the coordinates packed in the key
+     */
+    public static Position fromKey(final long key) {
+        return Position.of((int) (key >> 32), (int) key);
+    }
+    
+    /**
+     * Pack the given coordinates into a single {@code long}.
+     * <p>
+     * The x coordinate is stored in the upper and the y coordinate in the lower 32 bits. Two positions are equal if and
+     * only if their keys are equal.
+     * </p>
+     * 
+     * @param x
+     *     The x coordinate
+     * @param y
+     *     The y coordinate
+     * @return the packed key
+     */
+    public static long toKey(final int x, final int y) {
+        return (((long) x) << 32) | (y & 0xffffffffL);
+    }
+    
     /**
      * Create a new position from the given parameters.
      * 
@@ -62,6 +124,14 @@ public class Position {
         return this.y;
     }
     
+    /**
+     * @return the coordinates of this position packed into a single {@code long}
+     * @see #toKey(int, int)
+     */
+    public long toKey() {
+        return Position.toKey(this.x, this.y);
+    }
+    
     /**
      * Get the adjacent position in the given direction.
      * 
@@ -72,13 +142,13 @@ public class Position {
     public Position adjacentPosition(final Direction direction) {
         switch (direction) {
             case EAST:
-                return new Position(this.getX() + 1, this.getY());
+                return Position.of(this.x + 1, this.y);
             case NORTH:
-                return new Position(this.getX(), this.getY() - 1);
+                return Position.of(this.x, this.y - 1);
             case SOUTH:
-                return new Position(this.getX(), this.getY() + 1);
+                return Position.of(this.x, this.y + 1);
             case WEST:
-                return new Position(this.getX() - 1, this.getY());
+                return Position.of(this.x - 1, this.y);
             default:
                 throw new IllegalArgumentException("Unknown direction");
         }
@@ -93,8 +163,8 @@ public class Position {
     
     @Override
     public int hashCode() {
-        final int[] numbers = { this.x, this.y };
-        return Arrays.hashCode(numbers);
+        // same value as Arrays.hashCode(new int[] { x, y }) without the allocation
+        return (31 * (31 + this.x)) + this.y;
     }
     
     @Override
@@ -9,6 +9,9 @@
  */
 package de.unistuttgart.informatik.fius.icge.simulation;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 import de.unistuttgart.informatik.fius.icge.simulation.actions.ActionLog;
 import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
 import de.unistuttgart.informatik.fius.icge.simulation.entity.EntityTypeRegistry;
@@ -63,6 +66,8 @@ public interface Simulation {
      * Get the simulation proxy used by the game window to communicate with the simulation.
      * 
      * @return The simulation proxy for the UI to use
+     * @throws IllegalStateException
+     *     if this simulation was built headless
      */
     SimulationProxy getSimulationProxyForWindow();
     
@@ -71,6 +76,8 @@ public interface Simulation {
      * 
      * @param window
      *     The window to attach to
+     * @throws IllegalStateException
+     *     if this simulation was built headless
      */
     void attachToWindow(GameWindow window);
     
@@ -81,6 +88,8 @@ public interface Simulation {
      *     The window to attach to
      * @param stopWithWindowClose
      *     If {@code true} the simulation will stop when the attached window is closed
+     * @throws IllegalStateException
+     *     if this simulation was built headless
      */
     void attachToWindow(GameWindow window, boolean stopWithWindowClose);
     
@@ -115,4 +124,39 @@ public interface Simulation {
      * 
      */
     <E extends Entity, S extends E> void runProgram(Program<E> program, S entity);
+    
+    /**
+     * Create an independent headless copy of this simulation in its current state.
+     * <p>
+     * The fork contains a deep copy of every entity (see {@link Entity#copyForFork(java.util.function.Function)}) at
+     * the same position; the entities themselves are copied, as their fields can change at any time. The playfield
+     * cells, positions and inventories as well as the action log are shared with this simulation and copied in parts
+     * once either of them changes them. The copied entities are not part of the simulation tree of the fork. The clock
+     * of the fork is stopped at the current tick and runs in virtual time once started. No program or task runs in the
+     * fork, it has no task verifier and does not write its actions to any sink.
+     * </p>
+     * <p>
+     * The state should be forked while the clock is stopped; changes made concurrently may or may not be part of the
+     * fork.
+     * </p>
+     * 
+     * @return the fork
+     * @throws UnsupportedOperationException
+     *     if a field of an entity of this simulation cannot be copied
+     */
+    default Simulation fork() {
+        return this.fork(new IdentityHashMap<>());
+    }
+    
+    /**
+     * Create an independent headless copy of this simulation in its current state; see {@link #fork()}.
+     * 
+     * @param copies
+     *     The map to put the copies of the entities into, with the entities of this simulation as keys; should be an
+     *     {@link IdentityHashMap}
+     * @return the fork
+     * @throws UnsupportedOperationException
+     *     if a field of an entity of this simulation cannot be copied
+     */
+    Simulation fork(Map<Entity, Entity> copies);
 }
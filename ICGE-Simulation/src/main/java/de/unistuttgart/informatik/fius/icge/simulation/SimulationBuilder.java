@@ -9,12 +9,20 @@
  */
 package de.unistuttgart.informatik.fius.icge.simulation;
 
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import de.unistuttgart.informatik.fius.icge.simulation.actions.Action;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.ActionLog;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.ActionLogSink;
 import de.unistuttgart.informatik.fius.icge.simulation.inspection.InspectionManager;
 import de.unistuttgart.informatik.fius.icge.simulation.internal.StandardSimulation;
 import de.unistuttgart.informatik.fius.icge.simulation.internal.StandardSimulationClock;
+import de.unistuttgart.informatik.fius.icge.simulation.internal.actions.ConsoleActionLogSink;
 import de.unistuttgart.informatik.fius.icge.simulation.internal.actions.StandardActionLog;
 import de.unistuttgart.informatik.fius.icge.simulation.internal.entity.StandardEntityTypeRegistry;
 import de.unistuttgart.informatik.fius.icge.simulation.internal.playfield.StandardPlayfield;
+import de.unistuttgart.informatik.fius.icge.simulation.internal.programs.StandardProgramRunner;
 
 
 /**
@@ -24,7 +32,19 @@ import de.unistuttgart.informatik.fius.icge.simulation.internal.playfield.Standa
  */
 public class SimulationBuilder {
     
-    private TaskVerifier taskVerifier;
+    private TaskVerifier    taskVerifier;
+    private boolean         headless;
+    private boolean         concurrentOperationRelease;
+    private boolean         threadPerProgram;
+    private boolean         deterministic;
+    private boolean         twoPhaseCommit;
+    private boolean         concurrentPlayfield;
+    private boolean         logActionsToConsole      = true;
+    private ActionLogSink   actionLogSink;
+    private long            actionRetentionTicks     = Long.MAX_VALUE;
+    private int             actionRetentionPerEntity = Integer.MAX_VALUE;
+    private boolean         retainOnlyRequiredActionTypes;
+    private ExecutorService sharedExecutor;
     
     private Simulation simulation;
     
@@ -48,6 +68,270 @@ public class SimulationBuilder {
         this.taskVerifier = taskVerifier;
     }
     
+    /**
+     * Set whether the simulation should be built headless.
+     *
+     * <p>
+     * A headless simulation can not be attached to a {@link de.unistuttgart.informatik.fius.icge.ui.GameWindow
+     * GameWindow} and its simulation clock runs in virtual time: Instead of waiting for the render tick period the
+     * clock advances to the next simulation tick with a scheduled operation as soon as the task and all programs wait
+     * for an entity operation or have ended. This allows running and verifying tasks much faster than in real time.
+     * </p>
+     * <p>
+     * Every program runs on its own thread in a headless simulation (see {@link #setThreadPerProgram(boolean)}). A task
+     * or program blocking on anything other than an entity operation pauses the virtual time until it continues.
+     * Operations due in the same tick are still committed in the order their threads reach the clock, so only a
+     * simulation in deterministic mode (see {@link #setDeterministic(boolean)}) is reproducible.
+     * </p>
+     * <p>
+     * This method can only be called before building the simulation. It is not possible to change it after the
+     * simulation has been built.
+     * </p>
+     *
+     * @param headless
+     *     true to build a headless simulation; false (default) to build a simulation for use with a window
+     */
+    public void setHeadless(final boolean headless) {
+        if (
+            this.hasBuiltSimulation()
+        ) throw new IllegalStateException(
+                "The simulation was already built! Use the methods of the Simulation Object to change its properties."
+        );
+        this.headless = headless;
+    }
+    
+    /**
+     * Set whether all entity operations due in the same simulation tick should be released at once.
+     * <p>
+     * If enabled, the operations of one tick run in parallel and the clock waits for all of them before the end of the
+     * tick. This lets the time needed for a tick scale with the number of processors instead of the number of entities,
+     * but the operations of one tick are no longer performed in a fixed order.
+     * </p>
+     *
+     * @param concurrentOperationRelease
+     *     true to release all due operations at once; false (default) to perform them one after another
+     */
+    public void setConcurrentOperationRelease(final boolean concurrentOperationRelease) {
+        if (
+            this.hasBuiltSimulation()
+        ) throw new IllegalStateException(
+                "The simulation was already built! Use the methods of the Simulation Object to change its properties."
+        );
+        this.concurrentOperationRelease = concurrentOperationRelease;
+    }
+    
+    /**
+     * Set whether every program should run on its own thread.
+     * <p>
+     * By default all programs share a pool with one thread per processor, so only that many programs can run at the
+     * same time. If enabled, every program gets its own virtual thread on JDKs supporting virtual threads and its own
+     * platform thread otherwise. Use this option to run programs for a large number of entities at once.
+     * </p>
+     *
+     * @param threadPerProgram
+     *     true to run every program on its own thread; false (default) to use a shared pool
+     */
+    public void setThreadPerProgram(final boolean threadPerProgram) {
+        if (
+            this.hasBuiltSimulation()
+        ) throw new IllegalStateException(
+                "The simulation was already built! Use the methods of the Simulation Object to change its properties."
+        );
+        this.threadPerProgram = threadPerProgram;
+    }
+    
+    /**
+     * Set whether the simulation should run in deterministic lockstep mode.
+     * <p>
+     * In this mode entity operations due in the same tick are committed to the playfield and the action log in the
+     * creation order of the entities. A simulation tick is only processed once the task and all programs wait for an
+     * entity operation or have ended. Two runs of the same task then produce the same action log, independent of thread
+     * timing. Concurrent operation release (see {@link #setConcurrentOperationRelease(boolean)}) can still be used.
+     * </p>
+     * <p>
+     * Every program runs on its own thread in this mode (see {@link #setThreadPerProgram(boolean)}). A task or program
+     * blocking on anything other than an entity operation stops the simulation until it continues.
+     * </p>
+     *
+     * @param deterministic
+     *     true to run the simulation in deterministic lockstep mode; false (default) otherwise
+     */
+    public void setDeterministic(final boolean deterministic) {
+        if (
+            this.hasBuiltSimulation()
+        ) throw new IllegalStateException(
+                "The simulation was already built! Use the methods of the Simulation Object to change its properties."
+        );
+        this.deterministic = deterministic;
+    }
+    
+    /**
+     * Set whether the entity operations of a tick should commit their changes in two phases.
+     * <p>
+     * This enables concurrent operation release (see {@link #setConcurrentOperationRelease(boolean)}). In the first
+     * phase all operations due in a tick run in parallel against the unchanged playfield until they commit their
+     * changes (e.g. a move). In the second phase the collected changes are checked and applied in one batch, so that
+     * for example only one of two solid entities moving onto the same field succeeds. The entities work in parallel and
+     * only the batch needs the playfield lock.
+     * </p>
+     *
+     * @param twoPhaseCommit
+     *     true to commit the changes of the operations of a tick in two phases; false (default) otherwise
+     */
+    public void setTwoPhaseCommit(final boolean twoPhaseCommit) {
+        if (
+            this.hasBuiltSimulation()
+        ) throw new IllegalStateException(
+                "The simulation was already built! Use the methods of the Simulation Object to change its properties."
+        );
+        this.twoPhaseCommit = twoPhaseCommit;
+    }
+    
+    /**
+     * Set whether the playfield should use lock striping.
+     * <p>
+     * A concurrent playfield splits its cells into stripes with a lock each, so entities in different parts of the
+     * playfield can be moved in parallel. The positions of the entities are read without any lock, so the renderer, the
+     * inspector and the task verifier do not stall the entity programs.
+     * </p>
+     *
+     * @param concurrentPlayfield
+     *     true to build a lock striped playfield; false (default) to build a playfield with a single lock
+     */
+    public void setConcurrentPlayfield(final boolean concurrentPlayfield) {
+        if (
+            this.hasBuiltSimulation()
+        ) throw new IllegalStateException(
+                "The simulation was already built! Use the methods of the Simulation Object to change its properties."
+        );
+        this.concurrentPlayfield = concurrentPlayfield;
+    }
+    
+    /**
+     * Set whether the description of every logged action should be printed to the console.
+     * <p>
+     * The actions are printed in batches on a background thread, so entity operations never wait for the console.
+     * Turning this off does not affect the {@link ActionLog} itself. This setting is ignored if a sink is set with
+     * {@link #setActionLogSink(ActionLogSink)}.
+     * </p>
+     *
+     * @param logActionsToConsole
+     *     true (default) to print all actions to the console; false otherwise
+     */
+    public void setLogActionsToConsole(final boolean logActionsToConsole) {
+        if (
+            this.hasBuiltSimulation()
+        ) throw new IllegalStateException(
+                "The simulation was already built! Use the methods of the Simulation Object to change its properties."
+        );
+        this.logActionsToConsole = logActionsToConsole;
+    }
+    
+    /**
+     * Set the sink to write all logged actions to instead of the console.
+     * <p>
+     * The sink gets the actions in batches on a background thread; see {@link ActionLogSink}. To record all actions to
+     * a file use an {@link de.unistuttgart.informatik.fius.icge.simulation.actions.ActionJournalWriter
+     * ActionJournalWriter}.
+     * </p>
+     *
+     * @param actionLogSink
+     *     the sink to use; null (default) to use the console depending on {@link #setLogActionsToConsole(boolean)}
+     */
+    public void setActionLogSink(final ActionLogSink actionLogSink) {
+        if (
+            this.hasBuiltSimulation()
+        ) throw new IllegalStateException(
+                "The simulation was already built! Use the methods of the Simulation Object to change its properties."
+        );
+        this.actionLogSink = actionLogSink;
+    }
+    
+    /**
+     * Set the number of ticks to keep the logged actions of.
+     * <p>
+     * Actions of older ticks are evicted from the action log, but they are still counted; see
+     * {@link ActionLog#getActionCount}.
+     * </p>
+     *
+     * @param actionRetentionTicks
+     *     the number of ticks; {@link Long#MAX_VALUE} (default) to keep the actions of all ticks
+     */
+    public void setActionRetentionTicks(final long actionRetentionTicks) {
+        if (
+            this.hasBuiltSimulation()
+        ) throw new IllegalStateException(
+                "The simulation was already built! Use the methods of the Simulation Object to change its properties."
+        );
+        if (actionRetentionTicks < 0) throw new IllegalArgumentException("The number of ticks must not be negative.");
+        this.actionRetentionTicks = actionRetentionTicks;
+    }
+    
+    /**
+     * Set the number of logged actions to keep for every entity.
+     * <p>
+     * The oldest actions of an entity are evicted from the action log, but they are still counted; see
+     * {@link ActionLog#getActionCountOfEntity}.
+     * </p>
+     *
+     * @param actionRetentionPerEntity
+     *     the number of actions; {@link Integer#MAX_VALUE} (default) to keep all actions
+     */
+    public void setActionRetentionPerEntity(final int actionRetentionPerEntity) {
+        if (
+            this.hasBuiltSimulation()
+        ) throw new IllegalStateException(
+                "The simulation was already built! Use the methods of the Simulation Object to change its properties."
+        );
+        if (actionRetentionPerEntity < 1) throw new IllegalArgumentException("At least one action per entity must be kept.");
+        this.actionRetentionPerEntity = actionRetentionPerEntity;
+    }
+    
+    /**
+     * Set whether the action log should only keep the action types the task verifier requires.
+     * <p>
+     * The required types are taken from {@link TaskVerifier#getRequiredActionTypes()}; all other actions are only
+     * counted. Without a task verifier no action is kept.
+     * </p>
+     *
+     * @param retainOnlyRequiredActionTypes
+     *     true to only keep the required action types; false (default) to keep all types
+     */
+    public void setRetainOnlyRequiredActionTypes(final boolean retainOnlyRequiredActionTypes) {
+        if (
+            this.hasBuiltSimulation()
+        ) throw new IllegalStateException(
+                "The simulation was already built! Use the methods of the Simulation Object to change its properties."
+        );
+        this.retainOnlyRequiredActionTypes = retainOnlyRequiredActionTypes;
+    }
+    
+    /**
+     * Set an executor shared with other simulations to run the task, the programs and the clock of the simulation on.
+     * <p>
+     * By default every simulation creates its own threads for these. With a shared executor many simulations can run at
+     * once without creating threads for each of them; see
+     * {@link de.unistuttgart.informatik.fius.icge.simulation.tasks.BatchTaskRunner BatchTaskRunner}. The task, the
+     * programs and the clock block while waiting for each other, so the executor must start every submitted runnable
+     * without waiting for others to end (e.g. a cached thread pool). The executor is not shut down when the simulation
+     * is stopped.
+     * </p>
+     * <p>
+     * The clock only uses the executor if the simulation is headless; otherwise it uses its own timer.
+     * </p>
+     *
+     * @param sharedExecutor
+     *     the executor to use; null (default) to create threads for the simulation
+     */
+    public void setSharedExecutor(final ExecutorService sharedExecutor) {
+        if (
+            this.hasBuiltSimulation()
+        ) throw new IllegalStateException(
+                "The simulation was already built! Use the methods of the Simulation Object to change its properties."
+        );
+        this.sharedExecutor = sharedExecutor;
+    }
+    
     /**
      * Actually build the simulation.
      *
@@ -59,17 +343,39 @@ public class SimulationBuilder {
         if (
             this.hasBuiltSimulation()
         ) throw new IllegalStateException("The simulation was already built! Use getBuiltSimulation() to acess the built window.");
-        final StandardPlayfield playfield = new StandardPlayfield();
-        final StandardSimulationClock simulationClock = new StandardSimulationClock();
+        final StandardPlayfield playfield = new StandardPlayfield(this.concurrentPlayfield ? StandardPlayfield.CONCURRENT_LOCK_STRIPES : 1);
+        final StandardSimulationClock simulationClock = new StandardSimulationClock(this.headless);
+        simulationClock.setConcurrentOperationRelease(this.concurrentOperationRelease || this.twoPhaseCommit);
+        simulationClock.setTwoPhaseCommit(this.twoPhaseCommit);
+        simulationClock.setDeterministic(this.deterministic);
+        if (this.headless) {
+            // only the virtual time clock of a headless simulation can run on an executor
+            simulationClock.setTickLoopExecutor(this.sharedExecutor);
+        }
         
         final StandardEntityTypeRegistry entityTypeRegistry = new StandardEntityTypeRegistry();
         
-        final StandardActionLog actionLog = new StandardActionLog();
+        ActionLogSink sink = this.actionLogSink;
+        if ((sink == null) && this.logActionsToConsole) {
+            sink = new ConsoleActionLogSink();
+        }
+        Set<Class<? extends Action>> retainedActionTypes = null;
+        if (this.retainOnlyRequiredActionTypes) {
+            retainedActionTypes = this.taskVerifier == null ? Set.of() : this.taskVerifier.getRequiredActionTypes();
+        }
+        final StandardActionLog actionLog = new StandardActionLog(
+                sink, this.actionRetentionTicks, this.actionRetentionPerEntity, retainedActionTypes
+        );
         
-        final InspectionManager inspectionManager = new InspectionManager();
+        // the inspection manager is only used by the UI
+        final InspectionManager inspectionManager = this.headless ? null : new InspectionManager();
         
         this.simulation = new StandardSimulation(
-                playfield, simulationClock, entityTypeRegistry, actionLog, inspectionManager, this.taskVerifier
+                playfield, simulationClock, entityTypeRegistry, actionLog, inspectionManager, this.taskVerifier,
+                new StandardProgramRunner(
+                        this.threadPerProgram || simulationClock.isLockstepClock(),
+                        simulationClock.isLockstepClock() ? simulationClock : null, this.sharedExecutor
+                ), this.headless
         );
     }
     
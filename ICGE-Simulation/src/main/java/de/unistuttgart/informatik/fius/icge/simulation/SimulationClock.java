@@ -102,6 +102,30 @@ public interface SimulationClock {
      */
     void registerPostTickListener(Function<Long, Boolean> listener);
     
+    /**
+     * Register a listener for simulation ticks, that get's the tick count as a primitive {@code long}.
+     * <p>
+     * The listener must return whether it wants to continue to listen.
+     * </p>
+     *
+     * @param listener
+     *     The listener to be called.
+     * @see #registerTickListener(Function)
+     */
+    void registerLongTickListener(LongTickListener listener);
+    
+    /**
+     * Register a listener for the end of simulation ticks, that get's the tick count as a primitive {@code long}.
+     * <p>
+     * The listener must return whether it wants to continue to listen.
+     * </p>
+     *
+     * @param listener
+     *     The listener to be called.
+     * @see #registerPostTickListener(Function)
+     */
+    void registerLongPostTickListener(LongTickListener listener);
+    
     /**
      * @return the number of the last simulation tick
      */
@@ -154,4 +178,104 @@ public interface SimulationClock {
      *     if the end of operation completes exceptionally
      */
     void scheduleOperationAtNextTick(CompletableFuture<Void> endOfOperation);
+    
+    /**
+     * Schedule an operation with an order key, to happen during the given tick.
+     * <p>
+     * Works like {@link #scheduleOperationAtTick(long, CompletableFuture)}. A clock running in a deterministic mode
+     * performs operations due in the same tick in the order of their order keys. Other clocks ignore the order key.
+     * </p>
+     *
+     * @param tick
+     *     The absolute number of the tick at which the operation will be run
+     * @param endOfOperation
+     *     Tick processing will be halted until this future is completed; must not complete exceptionally
+     * @param orderKey
+     *     The key to order operations due in the same tick by; for example the creation order of the entity
+     * @throws IllegalStateException
+     *     if the end of operation completes exceptionally
+     */
+    default void scheduleOperationAtTick(final long tick, final CompletableFuture<Void> endOfOperation, final long orderKey) {
+        this.scheduleOperationAtTick(tick, endOfOperation);
+    }
+    
+    /**
+     * Schedule an operation with an order key, to happen during the tick a given number of ticks in the future.
+     *
+     * @param ticks
+     *     The number of ticks until the tick, for which to schedule the operation
+     * @param endOfOperation
+     *     Tick processing will be halted until this future is completed; must not complete exceptionally
+     * @param orderKey
+     *     The key to order operations due in the same tick by
+     * @throws IllegalStateException
+     *     if the end of operation completes exceptionally
+     * @see #scheduleOperationAtTick(long, CompletableFuture, long)
+     */
+    default void scheduleOperationInTicks(final long ticks, final CompletableFuture<Void> endOfOperation, final long orderKey) {
+        this.scheduleOperationAtTick(this.getLastTickNumber() + ticks, endOfOperation, orderKey);
+    }
+    
+    /**
+     * Schedule an operation with an order key, to happen during the next tick.
+     *
+     * @param endOfOperation
+     *     Tick processing will be halted until this future is completed; must not complete exceptionally
+     * @param orderKey
+     *     The key to order operations due in the same tick by
+     * @throws IllegalStateException
+     *     if the end of operation completes exceptionally
+     * @see #scheduleOperationAtTick(long, CompletableFuture, long)
+     */
+    default void scheduleOperationAtNextTick(final CompletableFuture<Void> endOfOperation, final long orderKey) {
+        this.scheduleOperationInTicks(1, endOfOperation, orderKey);
+    }
+    
+    /**
+     * Commit the changes of the current operation to the simulation.
+     * <p>
+     * Entities wrap the part of an operation that checks and changes the shared simulation state (e.g. the playfield or
+     * the action log) in a call to this method. A clock may defer the changes to apply the changes of all operations of
+     * a tick in one batch; this method then blocks until they are applied. Exceptions thrown by the changes are
+     * rethrown by this method.
+     * </p>
+     * <p>
+     * The default implementation runs the changes immediately.
+     * </p>
+     *
+     * @param changes
+     *     the changes to commit
+     */
+    default void commit(final Runnable changes) {
+        changes.run();
+    }
+    
+    /**
+     * Wait for the end of an operation scheduled by another thread.
+     * <p>
+     * Entities use this method to wait for their current operation before scheduling a new one. Clocks that need to
+     * know which threads wait for operations can override it.
+     * </p>
+     *
+     * @param endOfOperation
+     *     The end of the operation to wait for
+     */
+    default void awaitEndOfOperation(final CompletableFuture<Void> endOfOperation) {
+        endOfOperation.join();
+    }
+    
+    /**
+     * A listener for simulation ticks using a primitive tick number.
+     */
+    @FunctionalInterface
+    interface LongTickListener {
+        /**
+         * Called for every simulation tick.
+         *
+         * @param tickNumber
+         *     The number of the current simulation tick
+         * @return whether the listener wants to continue to listen
+         */
+        boolean onTick(long tickNumber);
+    }
 }
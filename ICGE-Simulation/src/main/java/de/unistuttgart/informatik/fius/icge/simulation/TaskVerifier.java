@@ -9,6 +9,9 @@
  */
 package de.unistuttgart.informatik.fius.icge.simulation;
 
+import java.util.Set;
+
+import de.unistuttgart.informatik.fius.icge.simulation.actions.Action;
 import de.unistuttgart.informatik.fius.icge.ui.TaskInformation;
 
 
@@ -43,4 +46,17 @@ public interface TaskVerifier {
      * @return the task information
      */
     TaskInformation getTaskInformation();
+    
+    /**
+     * Get the types of actions this verifier reads from the action log.
+     * <p>
+     * If the simulation only retains the required action types (see
+     * {@link SimulationBuilder#setRetainOnlyRequiredActionTypes(boolean)}), all other actions are only counted and not
+     * kept in the log.
+     * 
+     * @return the required action types (including their subclasses); null (default) if all types are required
+     */
+    default Set<Class<? extends Action>> getRequiredActionTypes() {
+        return null;
+    }
 }
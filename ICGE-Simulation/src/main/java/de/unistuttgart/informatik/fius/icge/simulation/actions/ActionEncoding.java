@@ -0,0 +1,82 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.actions;
+
+import de.unistuttgart.informatik.fius.icge.simulation.Direction;
+import de.unistuttgart.informatik.fius.icge.simulation.Position;
+
+
+/**
+ * The encoding of the standard actions as primitive values shared by the action log and the
+ * {@link ActionJournalWriter}.
+ * <p>
+ * Every action has at most a from and a to position. Turn actions store the ordinals of their directions instead.
+ * </p>
+ */
+public class ActionEncoding {
+    
+    /** The encoded value of a missing direction. */
+    public static final int NO_DIRECTION = -1;
+    
+    private static final Direction[] DIRECTIONS = Direction.values();
+    
+    private ActionEncoding() {
+        //hide constructor
+    }
+    
+    /**
+     * Get the position an action starts at: the old position of moves, the position of the collected entity of collect
+     * actions and the position of the dropping entity of drop actions.
+     *
+     * @param action
+     *     the action to get the position of
+     * @return the position or null if the action has no such position
+     */
+    public static Position getFromPosition(final Action action) {
+        if (action instanceof EntityMoveAction) return ((EntityMoveAction) action).from();
+        if (action instanceof EntityCollectAction) return ((EntityCollectAction) action).getCollectedEntityPosition();
+        if (action instanceof EntityDropAction) return ((EntityDropAction) action).getDropperPosition();
+        return null;
+    }
+    
+    /**
+     * Get the position an action ends at: the new position of moves, the position of spawn actions, the position of the
+     * collecting entity of collect actions and the position of the dropped entity of drop actions.
+     *
+     * @param action
+     *     the action to get the position of
+     * @return the position or null if the action has no such position
+     */
+    public static Position getToPosition(final Action action) {
+        if (action instanceof EntityMoveAction) return ((EntityMoveAction) action).to();
+        if (action instanceof EntitySpawnAction) return ((EntitySpawnAction) action).getPosition();
+        if (action instanceof EntityCollectAction) return ((EntityCollectAction) action).getCollectorPosition();
+        if (action instanceof EntityDropAction) return ((EntityDropAction) action).getDroppedEntityPosition();
+        return null;
+    }
+    
+    /**
+     * @param direction
+     *     the direction to encode; may be null
+     * @return the ordinal of the direction or {@link #NO_DIRECTION}
+     */
+    public static int encodeDirection(final Direction direction) {
+        return direction == null ? ActionEncoding.NO_DIRECTION : direction.ordinal();
+    }
+    
+    /**
+     * @param encodedDirection
+     *     the ordinal of a direction or {@link #NO_DIRECTION}
+     * @return the direction or null
+     */
+    public static Direction decodeDirection(final int encodedDirection) {
+        return encodedDirection == ActionEncoding.NO_DIRECTION ? null : ActionEncoding.DIRECTIONS[encodedDirection];
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.actions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.unistuttgart.informatik.fius.icge.simulation.Direction;
+
+
+/**
+ * A reader for the journals written by an {@link ActionJournalWriter}.
+ * <p>
+ * The reader is a cursor over the action records: {@link #next()} moves to the next action and the getters return the
+ * fields of the current action. No {@link Action} objects are created, so even journals with millions of actions can be
+ * scanned quickly. The file is read through memory mapped windows, so journals of any size can be read.
+ * </p>
+ * <p>
+ * A journal of a simulation which is still running or was not stopped properly may end with an incomplete record; it is
+ * ignored.
+ * </p>
+ */
+public class ActionJournalReader implements Closeable {
+    
+    /** Entity id of actions without such an entity. */
+    public static final int NO_ENTITY = -1;
+    
+    /** Flag of actions with from coordinates; see {@link #getFromX()}. */
+    public static final byte HAS_FROM       = 1;
+    /** Flag of actions with to coordinates; see {@link #getToX()}. */
+    public static final byte HAS_TO         = 2;
+    /** Flag of actions with directions; see {@link #getFromDirection()}. */
+    public static final byte HAS_DIRECTIONS = 4;
+    
+    private static final long WINDOW_SIZE = 1L << 26;
+    
+    private final FileChannel channel;
+    private final long        fileSize;
+    private MappedByteBuffer  window;
+    private long              windowStart;
+    
+    private final List<String> typeNames       = new ArrayList<>();
+    private final List<String> entityTypeNames = new ArrayList<>();
+    
+    private long tick;
+    private int  typeId;
+    private int  entityId;
+    private int  otherEntityId;
+    private byte flags;
+    private int  fromX;
+    private int  fromY;
+    private int  toX;
+    private int  toY;
+    
+    /**
+     * Open a journal.
+     *
+     * @param file
+     *     the journal file to read
+     * @throws IOException
+     *     if the file cannot be read or is no action journal
+     */
+    public ActionJournalReader(final Path file) throws IOException {
+        if (file == null) throw new IllegalArgumentException("The given file is null.");
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.fileSize = this.channel.size();
+        this.windowStart = 0;
+        this.window = this.channel.map(MapMode.READ_ONLY, 0, Math.min(ActionJournalReader.WINDOW_SIZE, this.fileSize));
+        if (!this.ensureAvailable(8) || (this.window.getInt() != ActionJournalWriter.MAGIC)) {
+            this.channel.close();
+            throw new IOException("The file " + file + " is no action journal.");
+        }
+        final int version = this.window.getInt();
+        if (version != ActionJournalWriter.VERSION) {
+            this.channel.close();
+            throw new IOException("The action journal " + file + " has the unsupported version " + version + ".");
+        }
+    }
+    
+    /**
+     * Make sure the given number of bytes can be read from the window, moving the window if necessary.
+     *
+     * @return false if the file does not contain enough bytes
+     */
+    private boolean ensureAvailable(final int bytes) throws IOException {
+        if (this.window.remaining() >= bytes) return true;
+        final long position = this.windowStart + this.window.position();
+        if ((this.fileSize - position) < bytes) return false;
+        this.windowStart = position;
+        this.window = this.channel
+                .map(MapMode.READ_ONLY, position, Math.min(Math.max(ActionJournalReader.WINDOW_SIZE, bytes), this.fileSize - position));
+        return true;
+    }
+    
+    /**
+     * Move to the next action of the journal.
+     *
+     * @return true if there is a next action; false if the end of the journal was reached
+     * @throws IOException
+     *     if the journal cannot be read or is corrupt
+     */
+    public boolean next() throws IOException {
+        while (this.ensureAvailable(1)) {
+            final int recordStart = this.window.position();
+            final byte tag = this.window.get();
+            switch (tag) {
+                case ActionJournalWriter.ACTION_RECORD:
+                    if (!this.ensureAvailable(ActionJournalWriter.ACTION_RECORD_SIZE - 1)) return false;
+                    this.tick = this.window.getLong();
+                    this.typeId = this.window.getInt();
+                    this.entityId = this.window.getInt();
+                    this.otherEntityId = this.window.getInt();
+                    this.flags = this.window.get();
+                    this.fromX = this.window.getInt();
+                    this.fromY = this.window.getInt();
+                    this.toX = this.window.getInt();
+                    this.toY = this.window.getInt();
+                    return true;
+                case ActionJournalWriter.TYPE_RECORD:
+                    if (!this.readDefinition(this.typeNames)) return false;
+                    break;
+                case ActionJournalWriter.ENTITY_RECORD:
+                    if (!this.readDefinition(this.entityTypeNames)) return false;
+                    break;
+                default:
+                    throw new IOException("The action journal is corrupt at byte " + (this.windowStart + recordStart) + ".");
+            }
+        }
+        return false;
+    }
+    
+    private boolean readDefinition(final List<String> names) throws IOException {
+        if (!this.ensureAvailable(8)) return false;
+        final int id = this.window.getInt();
+        final int length = this.window.getInt();
+        if ((id != names.size()) || (length < 0)) throw new IOException("The action journal is corrupt.");
+        if (!this.ensureAvailable(length)) return false;
+        final byte[] name = new byte[length];
+        this.window.get(name);
+        names.add(new String(name, StandardCharsets.UTF_8));
+        return true;
+    }
+    
+    /**
+     * @return the tick of the current action
+     */
+    public long getTick() {
+        return this.tick;
+    }
+    
+    /**
+     * @return the id of the type of the current action; see {@link #getTypeName(int)}
+     */
+    public int getTypeId() {
+        return this.typeId;
+    }
+    
+    /**
+     * @return the class name of the type of the current action
+     */
+    public String getTypeName() {
+        return this.typeNames.get(this.typeId);
+    }
+    
+    /**
+     * @param id
+     *     the id of an action type read so far
+     * @return the class name of the action type
+     */
+    public String getTypeName(final int id) {
+        return this.typeNames.get(id);
+    }
+    
+    /**
+     * @return the id of the entity causing the current action or {@link #NO_ENTITY}; entity ids are unique in a journal
+     */
+    public int getEntityId() {
+        return this.entityId;
+    }
+    
+    /**
+     * @return the id of the collected or dropped entity of the current action or {@link #NO_ENTITY}
+     */
+    public int getOtherEntityId() {
+        return this.otherEntityId;
+    }
+    
+    /**
+     * @param id
+     *     the id of an entity read so far
+     * @return the class name of the entity
+     */
+    public String getEntityTypeName(final int id) {
+        return this.entityTypeNames.get(id);
+    }
+    
+    /**
+     * @return the flags of the current action; see {@link #HAS_FROM}, {@link #HAS_TO} and {@link #HAS_DIRECTIONS}
+     */
+    public byte getFlags() {
+        return this.flags;
+    }
+    
+    /**
+     * The from position of an action is the old position of moves, the position of the collected entity of collect
+     * actions and the position of the dropping entity of drop actions.
+     *
+     * @return the from x coordinate of the current action; only valid if the action has the flag {@link #HAS_FROM}
+     */
+    public int getFromX() {
+        return this.fromX;
+    }
+    
+    /**
+     * @return the from y coordinate of the current action; only valid if the action has the flag {@link #HAS_FROM}
+     */
+    public int getFromY() {
+        return this.fromY;
+    }
+    
+    /**
+     * The to position of an action is the new position of moves, the position of spawn actions, the position of the
+     * collecting entity of collect actions and the position of the dropped entity of drop actions.
+     *
+     * @return the to x coordinate of the current action; only valid if the action has the flag {@link #HAS_TO}
+     */
+    public int getToX() {
+        return this.toX;
+    }
+    
+    /**
+     * @return the to y coordinate of the current action; only valid if the action has the flag {@link #HAS_TO}
+     */
+    public int getToY() {
+        return this.toY;
+    }
+    
+    /**
+     * @return the old direction of the current turn action or null if it is unknown; only valid if the action has the
+     *     flag {@link #HAS_DIRECTIONS}
+     */
+    public Direction getFromDirection() {
+        return ActionEncoding.decodeDirection(this.fromX);
+    }
+    
+    /**
+     * @return the new direction of the current turn action or null if it is unknown; only valid if the action has the
+     *     flag {@link #HAS_DIRECTIONS}
+     */
+    public Direction getToDirection() {
+        return ActionEncoding.decodeDirection(this.toX);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
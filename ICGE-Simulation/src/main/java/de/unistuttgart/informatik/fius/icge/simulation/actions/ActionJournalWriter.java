@@ -0,0 +1,198 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.actions;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import de.unistuttgart.informatik.fius.icge.simulation.Position;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
+
+
+/**
+ * An {@link ActionLogSink} writing all logged actions to a compact, append-only binary journal file.
+ * <p>
+ * Use it with {@link de.unistuttgart.informatik.fius.icge.simulation.SimulationBuilder#setActionLogSink(ActionLogSink)}
+ * and read the journal with an {@link ActionJournalReader}. Every action is written as a record of fixed size; the
+ * names of action types and entity types are only written once, when they first occur.
+ * </p>
+ * <p>
+ * The journal is written through a {@link FileChannel} on the background thread of the action log and closed when the
+ * simulation is stopped.
+ * </p>
+ */
+public class ActionJournalWriter implements ActionLogSink {
+    
+    /** The first bytes of every journal: "ICGJ". */
+    static final int MAGIC   = 0x4943474A;
+    /** The version of the journal format. */
+    static final int VERSION = 1;
+    
+    /** Record defining the name of an action type: id and class name. */
+    static final byte TYPE_RECORD   = 1;
+    /** Record defining an entity: id and class name of the entity. */
+    static final byte ENTITY_RECORD = 2;
+    /** Record of an action: tick, type, entity, other entity, flags and coordinates. */
+    static final byte ACTION_RECORD = 3;
+    
+    /** The size of an action record including its tag. */
+    static final int ACTION_RECORD_SIZE = 1 + 8 + 4 + 4 + 4 + 1 + (4 * 4);
+    
+    private static final int BUFFER_SIZE = 1 << 16;
+    
+    private final FileChannel channel;
+    private ByteBuffer        buffer = ByteBuffer.allocateDirect(ActionJournalWriter.BUFFER_SIZE);
+    
+    private final Map<Class<?>, Integer> typeIds     = new HashMap<>();
+    /** The ids of the entities written so far; weak, so the writer does not keep removed entities alive. */
+    private final Map<Entity, Integer>   entityIds   = new WeakHashMap<>();
+    private int                          entityCount = 0;
+    
+    /**
+     * Create a new journal writer.
+     * <p>
+     * An existing file is overwritten.
+     * </p>
+     *
+     * @param file
+     *     the file to write the journal to
+     * @throws IOException
+     *     if the file cannot be opened for writing
+     */
+    public ActionJournalWriter(final Path file) throws IOException {
+        if (file == null) throw new IllegalArgumentException("The given file is null.");
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.buffer.putInt(ActionJournalWriter.MAGIC);
+        this.buffer.putInt(ActionJournalWriter.VERSION);
+    }
+    
+    @Override
+    public void writeActions(final List<Action> actions) {
+        try {
+            for (final Action action : actions) {
+                this.writeAction(action);
+            }
+            this.flush();
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Could not write the action journal.", e);
+        }
+    }
+    
+    private void writeAction(final Action action) throws IOException {
+        final int typeId = this.getTypeId(action.getClass());
+        int entityId = ActionJournalReader.NO_ENTITY;
+        int otherEntityId = ActionJournalReader.NO_ENTITY;
+        if (action instanceof EntityAction) {
+            entityId = this.getEntityId(((EntityAction) action).getEntity());
+        }
+        if (action instanceof EntityCollectAction) {
+            otherEntityId = this.getEntityId(((EntityCollectAction) action).getCollectedEntity());
+        } else if (action instanceof EntityDropAction) {
+            otherEntityId = this.getEntityId(((EntityDropAction) action).getDroppedEntity());
+        }
+        
+        byte flags = 0;
+        int fromX = 0;
+        int fromY = 0;
+        int toX = 0;
+        int toY = 0;
+        if (action instanceof EntityTurnAction) {
+            flags |= ActionJournalReader.HAS_DIRECTIONS;
+            fromX = ActionEncoding.encodeDirection(((EntityTurnAction) action).from());
+            toX = ActionEncoding.encodeDirection(((EntityTurnAction) action).to());
+        }
+        final Position from = ActionEncoding.getFromPosition(action);
+        if (from != null) {
+            flags |= ActionJournalReader.HAS_FROM;
+            fromX = from.getX();
+            fromY = from.getY();
+        }
+        final Position to = ActionEncoding.getToPosition(action);
+        if (to != null) {
+            flags |= ActionJournalReader.HAS_TO;
+            toX = to.getX();
+            toY = to.getY();
+        }
+        
+        this.ensureRemaining(ActionJournalWriter.ACTION_RECORD_SIZE);
+        this.buffer.put(ActionJournalWriter.ACTION_RECORD);
+        this.buffer.putLong(action.getTickNumber());
+        this.buffer.putInt(typeId);
+        this.buffer.putInt(entityId);
+        this.buffer.putInt(otherEntityId);
+        this.buffer.put(flags);
+        this.buffer.putInt(fromX);
+        this.buffer.putInt(fromY);
+        this.buffer.putInt(toX);
+        this.buffer.putInt(toY);
+    }
+    
+    private int getTypeId(final Class<?> type) throws IOException {
+        final Integer id = this.typeIds.get(type);
+        if (id != null) return id;
+        final int newId = this.typeIds.size();
+        this.typeIds.put(type, newId);
+        this.writeDefinition(ActionJournalWriter.TYPE_RECORD, newId, type.getName());
+        return newId;
+    }
+    
+    private int getEntityId(final Entity entity) throws IOException {
+        final Integer id = this.entityIds.get(entity);
+        if (id != null) return id;
+        final int newId = this.entityCount++;
+        this.entityIds.put(entity, newId);
+        this.writeDefinition(ActionJournalWriter.ENTITY_RECORD, newId, entity.getClass().getName());
+        return newId;
+    }
+    
+    private void writeDefinition(final byte tag, final int id, final String name) throws IOException {
+        final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        this.ensureRemaining(1 + 4 + 4 + nameBytes.length);
+        this.buffer.put(tag);
+        this.buffer.putInt(id);
+        this.buffer.putInt(nameBytes.length);
+        this.buffer.put(nameBytes);
+    }
+    
+    private void ensureRemaining(final int bytes) throws IOException {
+        if (this.buffer.remaining() >= bytes) return;
+        this.flush();
+        if (this.buffer.capacity() < bytes) {
+            this.buffer = ByteBuffer.allocateDirect(bytes);
+        }
+    }
+    
+    private void flush() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+    
+    @Override
+    public void close() {
+        try {
+            this.flush();
+            this.channel.close();
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Could not close the action journal.", e);
+        }
+    }
+}
@@ -16,6 +16,10 @@ import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
 
 /**
  * A log for all {@link Action}s.
+ * <p>
+ * Depending on the retention policies of the simulation, old actions may be evicted from the log. Evicted actions are
+ * not returned by the query methods anymore, but they are still counted by the counting methods.
+ * </p>
  * 
  * @author Tim Neumann
  */
@@ -70,6 +74,68 @@ public interface ActionLog {
             Entity entity, final Class<? extends T> type, final boolean includeSubclasses
     );
     
+    /**
+     * Get all actions which were logged and happened in the given range of ticks.
+     * 
+     * @param firstTick
+     *     The first tick to include
+     * @param lastTick
+     *     The last tick to include
+     * @return A list of all matching actions
+     */
+    List<Action> getActionsBetweenTicks(long firstTick, long lastTick);
+    
+    /**
+     * Get all actions which were logged of the given type and happened in the given range of ticks.
+     * 
+     * @param <T>
+     *     The generic type to return the actions as
+     * @param firstTick
+     *     The first tick to include
+     * @param lastTick
+     *     The last tick to include
+     * @param type
+     *     The type of the actions to get
+     * @param includeSubclasses
+     *     Whether to include the subclasses of the given type
+     * @return A list of all matching actions
+     */
+    <T extends Action> List<T> getActionsOfTypeBetweenTicks(
+            long firstTick, long lastTick, final Class<? extends T> type, final boolean includeSubclasses
+    );
+    
+    /**
+     * Get the number of all actions which were logged of the given type, including evicted actions.
+     * 
+     * @param type
+     *     The type of the actions to count
+     * @param includeSubclasses
+     *     Whether to include the subclasses of the given type
+     * @return The number of matching actions
+     */
+    long getActionCount(final Class<? extends Action> type, final boolean includeSubclasses);
+    
+    /**
+     * Get the number of all actions which were logged of the given type and were caused by the given entity, including
+     * evicted actions.
+     * 
+     * @param entity
+     *     The entity to count actions for
+     * @param type
+     *     The type of the actions to count
+     * @param includeSubclasses
+     *     Whether to include the subclasses of the given type
+     * @return The number of matching actions
+     */
+    long getActionCountOfEntity(Entity entity, final Class<? extends EntityAction> type, final boolean includeSubclasses);
+    
+    /**
+     * Get the number of actions which were evicted from this log and are therefore not returned by the query methods.
+     * 
+     * @return The number of evicted actions
+     */
+    long getEvictedActionCount();
+    
     /**
      * Log an action.
      * 
@@ -0,0 +1,46 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ * 
+ * Copyright (c) 2019 the ICGE project authors.
+ * 
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.actions;
+
+import java.util.List;
+
+
+/**
+ * A sink the {@link ActionLog} writes all logged actions to, e.g. to print them on the console.
+ * <p>
+ * The actions are handed to the sink in batches on a background thread, so entity operations never wait for the sink.
+ * Batches are written one after another in the order the actions were logged.
+ * </p>
+ */
+@FunctionalInterface
+public interface ActionLogSink {
+    
+    /**
+     * Write a batch of logged actions.
+     * <p>
+     * This is called on a background thread and never concurrently. The descriptions of the actions should only be
+     * created here, so that logging an action does not need to format it.
+     * </p>
+     * 
+     * @param actions
+     *     the actions logged since the last batch, in the order they were logged
+     */
+    void writeActions(List<Action> actions);
+    
+    /**
+     * Close this sink after the last batch was written, e.g. because the simulation was stopped.
+     * <p>
+     * This is called on the background thread (or on the stopping thread if no action was ever logged).
+     * </p>
+     */
+    default void close() {
+        // nothing to close by default
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.actions;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.unistuttgart.informatik.fius.icge.simulation.Playfield;
+import de.unistuttgart.informatik.fius.icge.simulation.Position;
+import de.unistuttgart.informatik.fius.icge.simulation.Simulation;
+import de.unistuttgart.informatik.fius.icge.simulation.SimulationBuilder;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.ReplayEntity;
+import de.unistuttgart.informatik.fius.icge.simulation.exception.UncheckedInterruptedException;
+import de.unistuttgart.informatik.fius.icge.ui.GameWindow;
+
+
+/**
+ * Rebuilds the playfield state of a simulation from its recorded actions, without running any program or task.
+ * <p>
+ * The replay has its own simulation whose playfield contains a {@link ReplayEntity} for every recorded entity. The
+ * recorded actions are applied to it in tick order: spawns, moves, turns, collects, drops and despawns. Other action
+ * types are ignored. Replaying runs at full speed in virtual time; the clock of the replay simulation is never started.
+ * </p>
+ * <p>
+ * Replay entities show the texture their recorded entity had at the replayed tick if the turn actions of the entity
+ * recorded it (see {@link EntityTurnAction#getToTextureHandle()}); otherwise they show the current texture of the
+ * recorded entity.
+ * </p>
+ * <p>
+ * The replay can be attached to a {@link GameWindow} to show the replayed playfield. A replay is not thread safe.
+ * </p>
+ */
+public class ActionReplay {
+    
+    private final List<Action> actions;
+    private final Simulation   simulation;
+    private GameWindow         window;
+    
+    private final Map<Entity, ReplayEntity> replayEntities        = new IdentityHashMap<>();
+    /** The texture handles of the recorded entities before their first recorded turn. */
+    private final Map<Entity, String>       initialTextureHandles = new IdentityHashMap<>();
+    
+    private int  nextAction = 0;
+    private long tick       = -1;
+    
+    /**
+     * Create a new headless replay of the given actions.
+     *
+     * @param actions
+     *     the recorded actions, e.g. from {@link ActionLog#getAllActions()}
+     */
+    public ActionReplay(final List<? extends Action> actions) {
+        this(actions, true);
+    }
+    
+    /**
+     * Create a new replay of the given actions.
+     *
+     * @param actions
+     *     the recorded actions, e.g. from {@link ActionLog#getAllActions()}
+     * @param headless
+     *     false to be able to attach the replay to a window
+     */
+    public ActionReplay(final List<? extends Action> actions, final boolean headless) {
+        if (actions == null) throw new IllegalArgumentException("The given actions are null.");
+        this.actions = new ArrayList<>(actions);
+        // the sort is stable, so actions of the same tick keep the order they were logged in
+        this.actions.sort(Comparator.comparingLong(Action::getTickNumber));
+        for (final Action action : this.actions) {
+            if (action instanceof EntityTurnAction) {
+                final EntityTurnAction turn = (EntityTurnAction) action;
+                this.initialTextureHandles.putIfAbsent(turn.getEntity(), turn.getFromTextureHandle());
+            }
+        }
+        
+        final SimulationBuilder builder = new SimulationBuilder();
+        builder.setHeadless(headless);
+        // the actions of the replay itself are neither printed nor kept
+        builder.setLogActionsToConsole(false);
+        builder.setRetainOnlyRequiredActionTypes(true);
+        builder.buildSimulation();
+        this.simulation = builder.getBuiltSimulation();
+    }
+    
+    /**
+     * @return the simulation the actions are replayed in
+     */
+    public Simulation getSimulation() {
+        return this.simulation;
+    }
+    
+    /**
+     * @return the playfield the actions are replayed on
+     */
+    public Playfield getPlayfield() {
+        return this.simulation.getPlayfield();
+    }
+    
+    /**
+     * Show the replayed playfield in the given window.
+     *
+     * @param window
+     *     the window to use
+     * @throws IllegalStateException
+     *     if the replay is headless
+     */
+    public void attachToWindow(final GameWindow window) {
+        this.simulation.attachToWindow(window);
+        this.window = window;
+        this.window.getPlayfieldDrawer().draw(this.tick);
+    }
+    
+    /**
+     * @return the tick up to which the actions were replayed; -1 before anything was replayed
+     */
+    public long getTick() {
+        return this.tick;
+    }
+    
+    /**
+     * @return the tick of the last recorded action; -1 if there are no actions
+     */
+    public long getLastTick() {
+        if (this.actions.isEmpty()) return -1;
+        return this.actions.get(this.actions.size() - 1).getTickNumber();
+    }
+    
+    /**
+     * Get the entity standing in for a recorded entity.
+     *
+     * @param recordedEntity
+     *     the recorded entity
+     * @return the replay entity or null if no action of the recorded entity was replayed yet
+     */
+    public ReplayEntity getReplayEntity(final Entity recordedEntity) {
+        return this.replayEntities.get(recordedEntity);
+    }
+    
+    /**
+     * Replay all actions up to and including the given tick.
+     * <p>
+     * If the given tick is before the current tick, the replay starts again from the first action.
+     * </p>
+     *
+     * @param lastTick
+     *     the last tick to replay
+     */
+    public void replayUntil(final long lastTick) {
+        if (lastTick < this.tick) {
+            this.reset();
+        }
+        while ((this.nextAction < this.actions.size()) && (this.actions.get(this.nextAction).getTickNumber() <= lastTick)) {
+            this.apply(this.actions.get(this.nextAction));
+            this.nextAction++;
+        }
+        this.tick = lastTick;
+        if (this.window != null) {
+            this.window.getPlayfieldDrawer().draw(lastTick);
+        }
+    }
+    
+    /**
+     * Replay all remaining actions.
+     */
+    public void replayAll() {
+        this.replayUntil(Math.max(this.tick, this.getLastTick()));
+    }
+    
+    /**
+     * Replay the actions tick by tick up to and including the given tick, waiting between the ticks, e.g. to watch the
+     * replay in a window.
+     *
+     * @param lastTick
+     *     the last tick to replay
+     * @param millisecondsPerTick
+     *     the time to wait after every tick
+     * @throws UncheckedInterruptedException
+     *     if the thread is interrupted while waiting
+     */
+    public void play(final long lastTick, final long millisecondsPerTick) {
+        for (long nextTick = this.tick + 1; nextTick <= lastTick; nextTick++) {
+            this.replayUntil(nextTick);
+            try {
+                Thread.sleep(millisecondsPerTick);
+            } catch (final InterruptedException e) {
+                throw new UncheckedInterruptedException(e);
+            }
+        }
+    }
+    
+    /**
+     * Remove all replay entities and start again before the first action.
+     */
+    public void reset() {
+        final Playfield playfield = this.getPlayfield();
+        for (final ReplayEntity entity : this.replayEntities.values()) {
+            if (playfield.containsEntity(entity)) {
+                playfield.removeEntity(entity);
+            }
+        }
+        this.replayEntities.clear();
+        this.nextAction = 0;
+        this.tick = -1;
+    }
+    
+    private void apply(final Action action) {
+        if (!(action instanceof EntityAction)) return;
+        final ReplayEntity entity = this.getOrCreateReplayEntity(((EntityAction) action).getEntity());
+        if (action instanceof EntitySpawnAction) {
+            this.place(entity, ((EntitySpawnAction) action).getPosition());
+        } else if (action instanceof EntityMoveAction) {
+            this.place(entity, ((EntityMoveAction) action).to());
+        } else if (action instanceof EntityTurnAction) {
+            final EntityTurnAction turn = (EntityTurnAction) action;
+            entity.setLookingDirection(turn.to());
+            if (turn.getToTextureHandle() != null) {
+                entity.setTextureHandle(turn.getToTextureHandle());
+            }
+        } else if (action instanceof EntityCollectAction) {
+            final ReplayEntity collected = this.getOrCreateReplayEntity(((EntityCollectAction) action).getCollectedEntity());
+            this.remove(collected);
+            entity.addToInventory(collected);
+        } else if (action instanceof EntityDropAction) {
+            final ReplayEntity dropped = this.getOrCreateReplayEntity(((EntityDropAction) action).getDroppedEntity());
+            entity.removeFromInventory(dropped);
+            this.place(dropped, ((EntityDropAction) action).getDroppedEntityPosition());
+        } else if (action instanceof EntityDespawnAction) {
+            this.remove(entity);
+        }
+    }
+    
+    private ReplayEntity getOrCreateReplayEntity(final Entity recordedEntity) {
+        return this.replayEntities.computeIfAbsent(recordedEntity, e -> {
+            final ReplayEntity entity = new ReplayEntity(e);
+            entity.setTextureHandle(this.initialTextureHandles.get(e));
+            return entity;
+        });
+    }
+    
+    /**
+     * Place the entity at the given position; entities whose spawn was not recorded (e.g. because it was evicted from
+     * the action log) are added at their first recorded position.
+     */
+    private void place(final ReplayEntity entity, final Position pos) {
+        final Playfield playfield = this.getPlayfield();
+        if (playfield.containsEntity(entity)) {
+            playfield.moveEntity(entity, pos);
+        } else {
+            playfield.addEntity(pos, entity);
+        }
+    }
+    
+    private void remove(final ReplayEntity entity) {
+        final Playfield playfield = this.getPlayfield();
+        if (playfield.containsEntity(entity)) {
+            playfield.removeEntity(entity);
+        }
+    }
+}
@@ -22,9 +22,11 @@ public class EntityTurnAction extends EntityAction {
     
     private final Direction from;
     private final Direction to;
+    private final String    fromTextureHandle;
+    private final String    toTextureHandle;
     
     /**
-     * Create an entity turn action.
+     * Create an entity turn action without the texture handles of the entity.
      * 
      * @param tickNumber
      *     the tick the action happened at
@@ -36,9 +38,34 @@ public class EntityTurnAction extends EntityAction {
      *     the direction the entity is facing after the turn
      */
     public EntityTurnAction(final long tickNumber, final Entity entity, final Direction from, final Direction to) {
+        this(tickNumber, entity, from, to, null, null);
+    }
+    
+    /**
+     * Create an entity turn action.
+     * 
+     * @param tickNumber
+     *     the tick the action happened at
+     * @param entity
+     *     the entity that caused the action
+     * @param from
+     *     the direction the entity was facing before the turn
+     * @param to
+     *     the direction the entity is facing after the turn
+     * @param fromTextureHandle
+     *     the texture handle of the entity before the turn; null if unknown
+     * @param toTextureHandle
+     *     the texture handle of the entity after the turn; null if unknown
+     */
+    public EntityTurnAction(
+            final long tickNumber, final Entity entity, final Direction from, final Direction to, final String fromTextureHandle,
+            final String toTextureHandle
+    ) {
         super(tickNumber, entity);
         this.from = from;
         this.to = to;
+        this.fromTextureHandle = fromTextureHandle;
+        this.toTextureHandle = toTextureHandle;
     }
     
     /**
@@ -55,6 +82,20 @@ public class EntityTurnAction extends EntityAction {
         return this.to;
     }
     
+    /**
+     * @return the texture handle of the entity before the turn; null if unknown
+     */
+    public String getFromTextureHandle() {
+        return this.fromTextureHandle;
+    }
+    
+    /**
+     * @return the texture handle of the entity after the turn; null if unknown
+     */
+    public String getToTextureHandle() {
+        return this.toTextureHandle;
+    }
+    
     @Override
     public String getDescription() {
         return this.getEntity() + " turned from " + this.from() + " to " + this.to();
@@ -11,12 +11,15 @@ package de.unistuttgart.informatik.fius.icge.simulation.entity;
 
 import java.lang.ref.WeakReference;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 import de.unistuttgart.informatik.fius.icge.simulation.Playfield;
 import de.unistuttgart.informatik.fius.icge.simulation.Position;
 import de.unistuttgart.informatik.fius.icge.simulation.Simulation;
 import de.unistuttgart.informatik.fius.icge.simulation.exception.EntityNotOnFieldException;
 import de.unistuttgart.informatik.fius.icge.simulation.inspection.InspectionAttribute;
+import de.unistuttgart.informatik.fius.icge.simulation.internal.entity.EntityForkCopier;
 import de.unistuttgart.informatik.fius.icge.ui.BasicDrawable;
 import de.unistuttgart.informatik.fius.icge.ui.Drawable;
 
@@ -26,7 +29,7 @@ import de.unistuttgart.informatik.fius.icge.ui.Drawable;
  * 
  * @author Tim Neumann
  */
-public abstract class BasicEntity implements Entity {
+public abstract class BasicEntity implements Entity, Cloneable {
     
     /** Lock object to make setting the Playfield threadsafe. */
     private Object                   fieldLock = new Object();
@@ -38,6 +41,11 @@ public abstract class BasicEntity implements Entity {
     /** The completable future representing the completuion of the currently performed operation. */
     protected CompletableFuture<Void> endOfCurrentOperation;
     
+    /** The number of entities created so far; used to assign the operation order keys. */
+    private static final AtomicLong createdEntities   = new AtomicLong();
+    /** The key to order the operations of this entity by; the creation order of the entities. */
+    private final long              operationOrderKey = BasicEntity.createdEntities.getAndIncrement();
+    
     /**
      * @throws EntityNotOnFieldException
      *     if this entity is not on a playfield
@@ -136,6 +144,24 @@ public abstract class BasicEntity implements Entity {
         }
     }
     
+    /**
+     * Inform the playfield of this entity that the draw information of this entity changed without this entity being
+     * moved.
+     * <p>
+     * Does nothing if this entity is not on a playfield.
+     * </p>
+     * 
+     * @see Playfield#drawInformationChanged(Entity)
+     */
+    protected void drawInformationChanged() {
+        final Playfield playfield;
+        synchronized (this.fieldLock) {
+            if (!this.isOnPlayfield()) return;
+            playfield = this.field.get();
+        }
+        playfield.drawInformationChanged(this);
+    }
+    
     /**
      * Prevent this entity from performing any operation for {@code ticks} simulation ticks.
      * 
@@ -149,7 +175,7 @@ public abstract class BasicEntity implements Entity {
         final CompletableFuture<Void> endOfOperation = new CompletableFuture<>();
         this.enqueueToPerformNewOperation(endOfOperation);
         try {
-            this.getSimulation().getSimulationClock().scheduleOperationInTicks(ticks, endOfOperation);
+            this.getSimulation().getSimulationClock().scheduleOperationInTicks(ticks, endOfOperation, this.getOperationOrderKey());
         } finally {
             endOfOperation.complete(null);
         }
@@ -167,7 +193,8 @@ public abstract class BasicEntity implements Entity {
      * <p>
      * Call this method before scheduling an operation with the simulation clock.
      * <p>
-     * This method synchronizes on the {@link #operationLock} to make sure that only one thread can pass.
+     * This method synchronizes on the {@link #operationLock} to make sure that only one thread can pass. Waiting for
+     * the current operation happens outside of the lock, so that a waiting (virtual) thread does not block its carrier.
      * <p>
      * The field {@link #endOfCurrentOperation} keeps track of the operation that is currently performed by this entity.
      * 
@@ -176,12 +203,59 @@ public abstract class BasicEntity implements Entity {
      *     completed)
      */
     protected void enqueueToPerformNewOperation(CompletableFuture<Void> endOfNewOperation) {
-        synchronized (this.operationLock) {
-            if (this.endOfCurrentOperation != null) {
-                this.endOfCurrentOperation.join();
+        while (true) {
+            final CompletableFuture<Void> currentOperation;
+            synchronized (this.operationLock) {
+                currentOperation = this.endOfCurrentOperation;
+                if ((currentOperation == null) || currentOperation.isDone()) {
+                    if (currentOperation != null) {
+                        currentOperation.join();
+                    }
+                    this.endOfCurrentOperation = endOfNewOperation;
+                    return;
+                }
             }
-            this.endOfCurrentOperation = endOfNewOperation;
+            this.getSimulation().getSimulationClock().awaitEndOfOperation(currentOperation);
+        }
+    }
+    
+    /**
+     * Get the key to order the operations of this entity by.
+     * <p>
+     * A deterministic simulation clock performs operations due in the same tick in the order of their order keys. The
+     * order key of an entity is the position of the entity in the creation order of all entities.
+     * </p>
+     *
+     * @return the order key for operations of this entity
+     */
+    protected long getOperationOrderKey() {
+        return this.operationOrderKey;
+    }
+    
+    /**
+     * Creates a copy of this entity which is not on any playfield and has no running operation.
+     * <p>
+     * The copy is created without calling a constructor (see {@link Object#clone()}) and keeps the operation order key
+     * of this entity. The fields declared by subclasses are then copied deeply like by the default implementation of
+     * {@link Entity#copyForFork(Function)}, so subclasses only have to override this method for fields needing other
+     * handling.
+     * </p>
+     */
+    @Override
+    public BasicEntity copyForFork(final Function<Entity, Entity> copyOf) {
+        final BasicEntity copy;
+        try {
+            copy = (BasicEntity) this.clone();
+        } catch (final CloneNotSupportedException e) {
+            // cannot happen as this class is cloneable
+            throw new IllegalStateException(e);
         }
+        copy.fieldLock = new Object();
+        copy.field = null;
+        copy.operationLock = new Object();
+        copy.endOfCurrentOperation = null;
+        EntityForkCopier.copyFieldsOfSubclasses(this, copy, copyOf);
+        return copy;
     }
     
     @Override
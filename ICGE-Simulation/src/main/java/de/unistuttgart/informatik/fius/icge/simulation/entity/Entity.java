@@ -9,8 +9,11 @@
  */
 package de.unistuttgart.informatik.fius.icge.simulation.entity;
 
+import java.util.function.Function;
+
 import de.unistuttgart.informatik.fius.icge.simulation.Playfield;
 import de.unistuttgart.informatik.fius.icge.simulation.Position;
+import de.unistuttgart.informatik.fius.icge.simulation.internal.entity.EntityForkCopier;
 import de.unistuttgart.informatik.fius.icge.ui.Drawable;
 
 
@@ -42,4 +45,28 @@ public interface Entity {
      *     if the given playfield is null
      */
     void initOnPlayfield(Playfield playfield);
+    
+    /**
+     * Create a copy of this entity for a fork of its simulation; see
+     * {@link de.unistuttgart.informatik.fius.icge.simulation.Simulation#fork() Simulation.fork()}.
+     * <p>
+     * The copy is not on any playfield and must not share any mutable state with this entity, as the fork and this
+     * simulation change their entities independently. Other entities referenced by this entity (e.g. the entities in
+     * its inventory) must be replaced by their copies returned by the given function.
+     * </p>
+     * <p>
+     * The default implementation creates a new instance with the constructor without parameters and copies all fields
+     * deeply: referenced entities are replaced by their copies, immutable values are kept and all other objects (e.g.
+     * lists) are copied. Override this method if a field needs other handling.
+     * </p>
+     * 
+     * @param copyOf
+     *     The function returning the copy of another entity for the same fork
+     * @return the copy of this entity
+     * @throws UnsupportedOperationException
+     *     if this entity or an object referenced by it cannot be copied
+     */
+    default Entity copyForFork(final Function<Entity, Entity> copyOf) {
+        return EntityForkCopier.copyEntity(this, copyOf);
+    }
 }
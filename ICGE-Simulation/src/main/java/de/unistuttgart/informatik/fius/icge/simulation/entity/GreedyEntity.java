@@ -10,6 +10,8 @@
 package de.unistuttgart.informatik.fius.icge.simulation.entity;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import de.unistuttgart.informatik.fius.icge.simulation.Position;
 import de.unistuttgart.informatik.fius.icge.simulation.actions.Action;
@@ -18,6 +20,7 @@ import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityDropAction;
 import de.unistuttgart.informatik.fius.icge.simulation.exception.CannotCollectEntityException;
 import de.unistuttgart.informatik.fius.icge.simulation.exception.CannotDropEntityException;
 import de.unistuttgart.informatik.fius.icge.simulation.exception.EntityNotOnFieldException;
+import de.unistuttgart.informatik.fius.icge.simulation.internal.entity.EntityForkCopier;
 
 
 /**
@@ -27,7 +30,7 @@ import de.unistuttgart.informatik.fius.icge.simulation.exception.EntityNotOnFiel
  */
 public abstract class GreedyEntity extends MovableEntity implements EntityCollector {
     
-    private final Inventory inventory = new Inventory();
+    private Inventory inventory = new Inventory();
     
     /**
      * @return the inventory of this greedy entity
@@ -36,6 +39,17 @@ public abstract class GreedyEntity extends MovableEntity implements EntityCollec
         return this.inventory;
     }
     
+    /**
+     * The copy gets a copy of the inventory sharing the collected entities until it is changed (see
+     * {@link Inventory#copyForFork(Function)}).
+     */
+    @Override
+    public GreedyEntity copyForFork(final Function<Entity, Entity> copyOf) {
+        final GreedyEntity copy = (GreedyEntity) super.copyForFork(copyOf);
+        copy.inventory = EntityForkCopier.copy(this.inventory, copyOf);
+        return copy;
+    }
+    
     @Override
     public boolean canCarry(final Class<? extends CollectableEntity> type) {
         return true;
@@ -59,27 +73,44 @@ public abstract class GreedyEntity extends MovableEntity implements EntityCollec
     @Override
     public void collect(final CollectableEntity entity) {
         if (entity == null) throw new IllegalArgumentException("An argument is null.");
-        Position myPos;
-        Position otherPos;
         
         synchronized (this.operationLock) {
-            try {
-                myPos = this.getPosition();
-                otherPos = entity.getPosition();
-            } catch (final EntityNotOnFieldException e) {
-                throw new CannotCollectEntityException(e);
+            this.getCollectPosition(entity);
+        }
+        // the lock is not held while waiting for the commit; the check is part of the commit, so it is repeated if the
+        // changes of other entities are applied before
+        this.getSimulation().getSimulationClock().commit(() -> {
+            synchronized (this.operationLock) {
+                final Position pos = this.getCollectPosition(entity);
+                
+                this.getSimulation().getPlayfield().removeEntity(entity);
+                this.getInventory().add(entity);
+                
+                final Action action = new EntityCollectAction(
+                        this.getSimulation().getSimulationClock().getLastTickNumber(), this, entity, pos, pos
+                );
+                this.getSimulation().getActionLog().logAction(action);
             }
-            
-            if (!myPos.equals(otherPos)) throw new CannotCollectEntityException("Not on my field");
-            
-            this.getSimulation().getPlayfield().removeEntity(entity);
-            this.getInventory().add(entity);
-            
-            final Action action = new EntityCollectAction(
-                    this.getSimulation().getSimulationClock().getLastTickNumber(), this, entity, myPos, otherPos
-            );
-            this.getSimulation().getActionLog().logAction(action);
+        });
+    }
+    
+    /**
+     * @return the position of this entity if it can collect the given entity right now
+     * @throws CannotCollectEntityException
+     *     if the given entity cannot be collected right now
+     */
+    private Position getCollectPosition(final CollectableEntity entity) {
+        Position myPos;
+        Position otherPos;
+        try {
+            myPos = this.getPosition();
+            otherPos = entity.getPosition();
+        } catch (final EntityNotOnFieldException e) {
+            throw new CannotCollectEntityException(e);
         }
+        
+        if (!myPos.equals(otherPos)) throw new CannotCollectEntityException("Not on my field");
+        return myPos;
     }
     
     /**
@@ -97,27 +128,76 @@ public abstract class GreedyEntity extends MovableEntity implements EntityCollec
         return this.getInventory().get(type, includeSubclasses);
     }
     
+    /**
+     * Count the currently droppable entities of the given type without copying them into a list.
+     * 
+     * @param type
+     *     The type of entity to count; must not be null
+     * @param includeSubclasses
+     *     Whether to include the subclasses of the given type
+     * @return The number of currently droppable entities matching the type
+     */
+    public int getCurrentlyDroppableEntityCount(final Class<? extends CollectableEntity> type, final boolean includeSubclasses) {
+        return this.getInventory().count(type, includeSubclasses);
+    }
+    
+    /**
+     * Perform the given action for all currently droppable entities of the given type without copying them into a list.
+     * <p>
+     * The inventory is locked while the action is performed, so the action must not collect or drop entities.
+     * </p>
+     * 
+     * @param <T>
+     *     The generic type of the entities
+     * @param type
+     *     The type of entity; must not be null
+     * @param includeSubclasses
+     *     Whether to include the subclasses of the given type
+     * @param action
+     *     The action to perform for every matching entity
+     */
+    public <T extends CollectableEntity> void forEachCurrentlyDroppableEntity(
+            final Class<T> type, final boolean includeSubclasses, final Consumer<? super T> action
+    ) {
+        this.getInventory().forEach(type, includeSubclasses, action);
+    }
+    
     @Override
     public void drop(final CollectableEntity entity, final Position pos) {
         if ((entity == null) || (pos == null)) throw new IllegalArgumentException("An argument is null.");
-        Position myPos;
         synchronized (this.operationLock) {
-            try {
-                myPos = this.getPosition();
-            } catch (final EntityNotOnFieldException e) {
-                throw new CannotCollectEntityException(e);
+            this.checkCanDropAt(pos);
+        }
+        // the lock is not held while waiting for the commit; the check is part of the commit, so it is repeated if the
+        // changes of other entities are applied before
+        this.getSimulation().getSimulationClock().commit(() -> {
+            synchronized (this.operationLock) {
+                this.checkCanDropAt(pos);
+                
+                this.getInventory().remove(entity);
+                this.getPlayfield().addEntity(pos, entity);
+                
+                final Action action = new EntityDropAction(
+                        this.getSimulation().getSimulationClock().getLastTickNumber(), this, entity, pos, pos
+                );
+                this.getSimulation().getActionLog().logAction(action);
             }
-            
-            if (!myPos.equals(pos)) throw new CannotCollectEntityException("Not on my field");
-            
-            this.getInventory().remove(entity);
-            this.getPlayfield().addEntity(pos, entity);
-            
-            final Action action = new EntityDropAction(
-                    this.getSimulation().getSimulationClock().getLastTickNumber(), this, entity, myPos, pos
-            );
-            this.getSimulation().getActionLog().logAction(action);
+        });
+    }
+    
+    /**
+     * @throws CannotCollectEntityException
+     *     if this entity cannot drop an entity at the given position right now
+     */
+    private void checkCanDropAt(final Position pos) {
+        Position myPos;
+        try {
+            myPos = this.getPosition();
+        } catch (final EntityNotOnFieldException e) {
+            throw new CannotCollectEntityException(e);
         }
+        
+        if (!myPos.equals(pos)) throw new CannotCollectEntityException("Not on my field");
     }
     
     /**
@@ -9,6 +9,8 @@
  */
 package de.unistuttgart.informatik.fius.icge.simulation.entity;
 
+import java.util.function.Function;
+
 import de.unistuttgart.informatik.fius.icge.simulation.MultiTypedList;
 
 
@@ -18,5 +20,24 @@ import de.unistuttgart.informatik.fius.icge.simulation.MultiTypedList;
  * @author Tim Neumann
  */
 public class Inventory extends MultiTypedList<CollectableEntity> {
-    //nothing here
+    
+    /**
+     * Create a copy of this inventory for a fork of its simulation.
+     * <p>
+     * The collected entities are copied right away, so later changes of them are not part of the fork. The copy shares
+     * the entities of this inventory until either inventory is changed (see
+     * {@link #shareObjectsOf(MultiTypedList, Function)}) and contains the copies of the entities once it is used.
+     * </p>
+     * 
+     * @param copyOf
+     *     The function returning the copy of an entity for the same fork
+     * @return the copy of this inventory
+     */
+    public Inventory copyForFork(final Function<Entity, Entity> copyOf) {
+        if (copyOf == null) throw new IllegalArgumentException("The given function is null.");
+        this.forEach(CollectableEntity.class, true, copyOf::apply);
+        final Inventory copy = new Inventory();
+        copy.shareObjectsOf(this, collected -> (CollectableEntity) copyOf.apply(collected));
+        return copy;
+    }
 }
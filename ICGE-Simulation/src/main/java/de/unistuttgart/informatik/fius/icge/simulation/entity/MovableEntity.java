@@ -10,6 +10,7 @@
 package de.unistuttgart.informatik.fius.icge.simulation.entity;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import de.unistuttgart.informatik.fius.icge.simulation.Direction;
 import de.unistuttgart.informatik.fius.icge.simulation.Position;
@@ -38,6 +39,17 @@ public abstract class MovableEntity extends BasicEntity {
     
     private Direction directionOfAlmostArrivedMove;
     
+    /**
+     * The copy does not continue a running move animation.
+     */
+    @Override
+    public MovableEntity copyForFork(final Function<Entity, Entity> copyOf) {
+        final MovableEntity copy = (MovableEntity) super.copyForFork(copyOf);
+        copy.movingDrawable = null;
+        copy.directionOfAlmostArrivedMove = null;
+        return copy;
+    }
+    
     @Override
     public Drawable getDrawInformation() {
         final AnimatedDrawable movingDrawable = this.movingDrawable;
@@ -53,8 +65,9 @@ public abstract class MovableEntity extends BasicEntity {
         final CompletableFuture<Void> endOfOperation = new CompletableFuture<>();
         this.enqueueToPerformNewOperation(endOfOperation);
         try {
-            this.getSimulation().getSimulationClock().scheduleOperationAtNextTick(endOfOperation);
-            this.turnClockWiseInternal();
+            final SimulationClock clock = this.getSimulation().getSimulationClock();
+            clock.scheduleOperationAtNextTick(endOfOperation, this.getOperationOrderKey());
+            clock.commit(this::turnClockWiseInternal);
         } finally {
             endOfOperation.complete(null);
         }
@@ -62,9 +75,14 @@ public abstract class MovableEntity extends BasicEntity {
     
     private void turnClockWiseInternal() {
         final Direction oldLookingDirection = this.lookingDirection;
+        final String oldTextureHandle = this.getTextureHandle();
         this.lookingDirection = this.lookingDirection.clockWiseNext();
         final long tick = this.getSimulation().getSimulationClock().getLastTickNumber();
-        this.getSimulation().getActionLog().logAction(new EntityTurnAction(tick, this, oldLookingDirection, this.lookingDirection));
+        this.getSimulation().getActionLog().logAction(
+                new EntityTurnAction(tick, this, oldLookingDirection, this.lookingDirection, oldTextureHandle, this.getTextureHandle())
+        );
+        // the texture may depend on the looking direction
+        this.drawInformationChanged();
     }
     
     @InspectionMethod(name = "turnClockwise")
@@ -93,6 +111,7 @@ public abstract class MovableEntity extends BasicEntity {
                     tickStart, currentPos.getX(), currentPos.getY(), duration, nextPos.getX(), nextPos.getY(), this.getZPosition(),
                     this.getTextureHandle()
             );
+            this.drawInformationChanged();
         }
     }
     
@@ -112,6 +131,7 @@ public abstract class MovableEntity extends BasicEntity {
     @InspectionAttribute(name = "LookingDirection")
     private void setLookingDirectionByString(final String direction) {
         this.lookingDirection = Direction.valueOf(direction.toUpperCase());
+        this.drawInformationChanged();
         this.recalculateAnimationAfterInspector();
     }
     
@@ -140,39 +160,45 @@ public abstract class MovableEntity extends BasicEntity {
         final CompletableFuture<Void> endOfOperation = new CompletableFuture<>();
         this.enqueueToPerformNewOperation(endOfOperation);
         
-        // setup move
-        final int duration = 4;
-        final int renderTickDuration = duration * SimulationClock.RENDER_TICKS_PER_SIMULATION_TICK;
-        final SimulationClock clock = this.getSimulation().getSimulationClock();
-        final long currentTick = clock.getLastRenderTickNumber();
-        this.directionOfAlmostArrivedMove = null;
-        Position currentPos = this.getPosition();
-        Position nextPos = currentPos.adjacentPosition(this.lookingDirection);
-        this.movingDrawable = new AnimatedDrawable(
-                currentTick, currentPos.getX(), currentPos.getY(), renderTickDuration, nextPos.getX(), nextPos.getY(), this.getZPosition(),
-                this.getTextureHandle()
-        );
-        
-        final CompletableFuture<Void> endOfOperation1 = new CompletableFuture<>();
+        // the future for the whole operation is completed even if the move fails, so the next operation can start
         try {
-            clock.scheduleOperationInTicks(duration / 2, endOfOperation1);
-            //Check if really still going this direction. Maybe we were turned by inspector in the mean time.
-            //Later turns are not changing destination.
-            this.directionOfAlmostArrivedMove = this.lookingDirection;
-        } finally {
-            endOfOperation1.complete(null);
-        }
-        
-        final CompletableFuture<Void> endOfOperation2 = new CompletableFuture<>();
-        try {
-            clock.scheduleOperationInTicks(duration / 2, endOfOperation2);
-            currentPos = this.getPosition();
-            nextPos = currentPos.adjacentPosition(this.directionOfAlmostArrivedMove);
-            this.internalMove(currentPos, nextPos);
+            // setup move
+            final int duration = 4;
+            final int renderTickDuration = duration * SimulationClock.RENDER_TICKS_PER_SIMULATION_TICK;
+            final SimulationClock clock = this.getSimulation().getSimulationClock();
+            final long currentTick = clock.getLastRenderTickNumber();
+            this.directionOfAlmostArrivedMove = null;
+            Position currentPos = this.getPosition();
+            Position nextPos = currentPos.adjacentPosition(this.lookingDirection);
+            this.movingDrawable = new AnimatedDrawable(
+                    currentTick, currentPos.getX(), currentPos.getY(), renderTickDuration, nextPos.getX(), nextPos.getY(),
+                    this.getZPosition(), this.getTextureHandle()
+            );
+            this.drawInformationChanged();
+            
+            final CompletableFuture<Void> endOfOperation1 = new CompletableFuture<>();
+            try {
+                clock.scheduleOperationInTicks(duration / 2, endOfOperation1, this.getOperationOrderKey());
+                //Check if really still going this direction. Maybe we were turned by inspector in the mean time.
+                //Later turns are not changing destination.
+                this.directionOfAlmostArrivedMove = this.lookingDirection;
+            } finally {
+                endOfOperation1.complete(null);
+            }
+            
+            final CompletableFuture<Void> endOfOperation2 = new CompletableFuture<>();
+            try {
+                clock.scheduleOperationInTicks(duration / 2, endOfOperation2, this.getOperationOrderKey());
+                currentPos = this.getPosition();
+                nextPos = currentPos.adjacentPosition(this.directionOfAlmostArrivedMove);
+                this.internalMove(currentPos, nextPos);
+            } finally {
+                endOfOperation2.complete(null);
+                this.movingDrawable = null;
+                this.drawInformationChanged();
+            }
         } finally {
-            endOfOperation2.complete(null);
             endOfOperation.complete(null); // complete future for whole operation
-            this.movingDrawable = null;
         }
     }
     
@@ -186,11 +212,13 @@ public abstract class MovableEntity extends BasicEntity {
     }
     
     private void internalMove(final Position currentPos, final Position nextPos) {
-        if (this.isSolidEntityAt(nextPos)) throw new IllegalMoveException("Solid Entity in the way");
-        final EntityMoveAction action = new EntityStepAction(
-                this.getSimulation().getSimulationClock().getLastTickNumber(), this, currentPos, nextPos
-        );
-        this.getPlayfield().moveEntity(this, nextPos, action);
+        final SimulationClock clock = this.getSimulation().getSimulationClock();
+        // the check is part of the commit, so it is repeated if the changes of other entities are applied before; the
+        // playfield checks and moves at once, as changes may also be applied concurrently without a two-phase commit
+        clock.commit(() -> {
+            final EntityMoveAction action = new EntityStepAction(clock.getLastTickNumber(), this, currentPos, nextPos);
+            this.getPlayfield().moveEntityUnlessSolid(this, nextPos, action);
+        });
     }
     
     /**
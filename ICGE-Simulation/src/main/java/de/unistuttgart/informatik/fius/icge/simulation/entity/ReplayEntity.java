@@ -0,0 +1,144 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.entity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import de.unistuttgart.informatik.fius.icge.simulation.Direction;
+import de.unistuttgart.informatik.fius.icge.simulation.internal.entity.EntityForkCopier;
+
+
+/**
+ * An entity standing in for a recorded entity on the playfield of a
+ * {@link de.unistuttgart.informatik.fius.icge.simulation.actions.ActionReplay ActionReplay}.
+ * <p>
+ * A replay entity looks like the recorded entity but has no behaviour of its own; its state is only changed by the
+ * replay.
+ * </p>
+ */
+public class ReplayEntity extends BasicEntity {
+    
+    private final Entity recordedEntity;
+    private Direction    lookingDirection;
+    private String       textureHandle;
+    private List<Entity> inventory = new ArrayList<>();
+    
+    /**
+     * Create a new replay entity.
+     *
+     * @param recordedEntity
+     *     the recorded entity to stand in for
+     */
+    public ReplayEntity(final Entity recordedEntity) {
+        if (recordedEntity == null) throw new IllegalArgumentException("The given entity is null.");
+        this.recordedEntity = recordedEntity;
+    }
+    
+    /**
+     * @return the recorded entity this entity stands in for
+     */
+    public Entity getRecordedEntity() {
+        return this.recordedEntity;
+    }
+    
+    /**
+     * @return the looking direction of the recorded entity after its last turn; null if it never turned
+     */
+    public Direction getLookingDirection() {
+        return this.lookingDirection;
+    }
+    
+    /**
+     * Set the looking direction; used by the replay.
+     *
+     * @param lookingDirection
+     *     the new looking direction
+     */
+    public void setLookingDirection(final Direction lookingDirection) {
+        this.lookingDirection = lookingDirection;
+        this.drawInformationChanged();
+    }
+    
+    /**
+     * Set the texture handle the recorded entity had at the replayed tick; used by the replay.
+     *
+     * @param textureHandle
+     *     the texture handle; null to use the current texture of the recorded entity
+     */
+    public void setTextureHandle(final String textureHandle) {
+        this.textureHandle = textureHandle;
+        this.drawInformationChanged();
+    }
+    
+    /**
+     * @return the replay entities collected and not dropped again by this entity
+     */
+    public List<Entity> getInventory() {
+        return Collections.unmodifiableList(this.inventory);
+    }
+    
+    /**
+     * Add a collected replay entity to the inventory; used by the replay.
+     *
+     * @param entity
+     *     the collected entity
+     */
+    public void addToInventory(final Entity entity) {
+        this.inventory.add(entity);
+    }
+    
+    /**
+     * Remove a dropped replay entity from the inventory; used by the replay.
+     *
+     * @param entity
+     *     the dropped entity
+     */
+    public void removeFromInventory(final Entity entity) {
+        this.inventory.remove(entity);
+    }
+    
+    /**
+     * The copy gets a new inventory containing the copies of the collected entities. It stands in for the same recorded
+     * entity.
+     */
+    @Override
+    public ReplayEntity copyForFork(final Function<Entity, Entity> copyOf) {
+        final ReplayEntity copy = (ReplayEntity) super.copyForFork(copyOf);
+        copy.inventory = EntityForkCopier.copy(this.inventory, copyOf);
+        return copy;
+    }
+    
+    /**
+     * Uses the texture set by the replay or else the current texture of the recorded entity.
+     * <p>
+     * If the recorded entity is no {@link BasicEntity}, it must be on its playfield to get its texture.
+     * </p>
+     */
+    @Override
+    protected String getTextureHandle() {
+        if (this.textureHandle != null) return this.textureHandle;
+        if (this.recordedEntity instanceof BasicEntity) return ((BasicEntity) this.recordedEntity).getTextureHandle();
+        return this.recordedEntity.getDrawInformation().getTextureHandle();
+    }
+    
+    @Override
+    protected int getZPosition() {
+        if (this.recordedEntity instanceof BasicEntity) return ((BasicEntity) this.recordedEntity).getZPosition();
+        return this.recordedEntity.getDrawInformation().getZ();
+    }
+    
+    @Override
+    public String toString() {
+        return "Replay of " + this.recordedEntity;
+    }
+}
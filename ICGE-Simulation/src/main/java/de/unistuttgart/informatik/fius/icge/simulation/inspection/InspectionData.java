@@ -9,9 +9,13 @@
  */
 package de.unistuttgart.informatik.fius.icge.simulation.inspection;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -19,6 +23,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import de.unistuttgart.informatik.fius.icge.simulation.internal.inspection.InspectionIndex;
+
 
 /**
  * Represents all data available for the inspection for a class
@@ -26,6 +32,18 @@ import java.util.Map.Entry;
  * @author Tim Neumann
  */
 public class InspectionData {
+    
+    /**
+     * The inspection data of every class, created the first time the class is inspected and shared by all simulations.
+     */
+    private static final ClassValue<InspectionData> inspectionDataOfClass = new ClassValue<>() {
+        
+        @Override
+        protected InspectionData computeValue(final Class<?> type) {
+            return new InspectionData(type);
+        }
+    };
+    
     private final Class<?> c;
     
     private final Map<String, AttributeInspectionPoint> inspectableAttributes;
@@ -45,6 +63,22 @@ public class InspectionData {
         this.initMethods();
     }
     
+    /**
+     * Get the inspection data for the given class.
+     * <p>
+     * The inspection data is only created once per class and then cached.
+     * </p>
+     * 
+     * @param cls
+     *     The class to get the inspection data for.
+     * @return The inspection data
+     * @throws InspectionPointException
+     *     if the class has invalid inspection points
+     */
+    public static InspectionData of(final Class<?> cls) {
+        return InspectionData.inspectionDataOfClass.get(cls);
+    }
+    
     /**
      * Get the value of the attribute with the given name from the given object.
      * 
@@ -175,7 +209,7 @@ public class InspectionData {
     }
     
     private void initMethods() {
-        final List<Method> methods = AnnotationReader.getAllMethodsWithAnnotationRecursively(this.c, InspectionMethod.class);
+        final List<Method> methods = InspectionIndex.getAllMethodsWithAnnotation(this.c, InspectionMethod.class);
         
         for (final Method m : methods) {
             m.setAccessible(true);
@@ -184,8 +218,8 @@ public class InspectionData {
     }
     
     private void initAttributes() {
-        final List<Field> fields = AnnotationReader.getAllAttributesWithAnnotationRecursively(this.c, InspectionAttribute.class);
-        final List<Method> methods = AnnotationReader.getAllMethodsWithAnnotationRecursively(this.c, InspectionAttribute.class);
+        final List<Field> fields = InspectionIndex.getAllFieldsWithAnnotation(this.c, InspectionAttribute.class);
+        final List<Method> methods = InspectionIndex.getAllMethodsWithAnnotation(this.c, InspectionAttribute.class);
         
         for (final Field f : fields) {
             f.setAccessible(true);
@@ -295,15 +329,16 @@ public class InspectionData {
             if ((name != null) && !name.isEmpty()) return name;
         }
         
-        String name = m.getName();
-        
-        if (name.toLowerCase().startsWith(possiblePrefixToRemove)) {
-            name = name.substring(3);
-            name = name.substring(0, 1).toLowerCase() + name.substring(1);
-        }
-        return name;
+        return InspectionIndex.getAttributeName(m.getName(), possiblePrefixToRemove);
     }
     
+    /**
+     * An inspectable attribute; backed by a field or a getter and an optional setter.
+     * <p>
+     * The field or methods are turned into method handles when the inspection point is created, so getting and setting
+     * the value does not need any access checks.
+     * </p>
+     */
     private static class AttributeInspectionPoint {
         private static final Map<Class<?>, Class<?>> primitiveToWrapperMap = new HashMap<>();
         static {
@@ -317,12 +352,16 @@ public class InspectionData {
             AttributeInspectionPoint.primitiveToWrapperMap.put(Boolean.TYPE, Boolean.class);
             AttributeInspectionPoint.primitiveToWrapperMap.put(Void.TYPE, Void.class);
         }
-        private final boolean  usesField;
-        private final Field    f;
-        private final Method   getter;
-        private final Method   setter;
-        private final Class<?> type;
-        private final boolean  readOnly;
+        
+        /** The type of the getter handles: the object to get the value from to the value. */
+        private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+        /** The type of the setter handles: the object and the value to set to nothing. */
+        private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+        
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final Class<?>     type;
+        private final boolean      readOnly;
         
         /**
          * Creates a new attribute inspection point for a field
@@ -331,30 +370,49 @@ public class InspectionData {
          *     The field for the inspection point.
          */
         public AttributeInspectionPoint(final Field field) {
-            this.usesField = true;
-            this.f = field;
-            this.getter = null;
-            this.setter = null;
             this.type = this.convertTypeToWrappers(field.getType());
             this.readOnly = field.getAnnotation(InspectionAttribute.class).readOnly();
+            final boolean isStatic = Modifier.isStatic(field.getModifiers());
+            try {
+                final MethodHandles.Lookup lookup = MethodHandles.lookup();
+                this.getter = AttributeInspectionPoint.toGetterType(lookup.unreflectGetter(field), isStatic);
+                this.setter = this.readOnly ? null : AttributeInspectionPoint.toSetterType(lookup.unreflectSetter(field), isStatic);
+            } catch (final IllegalAccessException e) {
+                throw new InspectionPointException("Cannot access the attribute! : " + field.getName(), e);
+            }
         }
         
         public AttributeInspectionPoint(final Method getter) {
-            this.usesField = false;
-            this.f = null;
-            this.getter = getter;
-            this.setter = null;
-            this.type = this.convertTypeToWrappers(getter.getReturnType());
-            this.readOnly = true;
+            this(getter, null);
         }
         
         public AttributeInspectionPoint(final Method getter, final Method setter) {
-            this.usesField = false;
-            this.f = null;
-            this.getter = getter;
-            this.setter = setter;
             this.type = this.convertTypeToWrappers(getter.getReturnType());
-            this.readOnly = false;
+            this.readOnly = setter == null;
+            try {
+                final MethodHandles.Lookup lookup = MethodHandles.lookup();
+                this.getter = AttributeInspectionPoint.toGetterType(lookup.unreflect(getter), Modifier.isStatic(getter.getModifiers()));
+                this.setter = this.readOnly ? null
+                        : AttributeInspectionPoint.toSetterType(lookup.unreflect(setter), Modifier.isStatic(setter.getModifiers()));
+            } catch (final IllegalAccessException e) {
+                throw new InspectionPointException("Cannot access the attribute! : " + getter.getName(), e);
+            }
+        }
+        
+        /**
+         * Adapt a getter handle to {@link #GETTER_TYPE}, so it can be called with invokeExact.
+         */
+        private static MethodHandle toGetterType(final MethodHandle handle, final boolean isStatic) {
+            final MethodHandle instanceHandle = isStatic ? MethodHandles.dropArguments(handle, 0, Object.class) : handle;
+            return instanceHandle.asType(AttributeInspectionPoint.GETTER_TYPE);
+        }
+        
+        /**
+         * Adapt a setter handle to {@link #SETTER_TYPE}, so it can be called with invokeExact.
+         */
+        private static MethodHandle toSetterType(final MethodHandle handle, final boolean isStatic) {
+            final MethodHandle instanceHandle = isStatic ? MethodHandles.dropArguments(handle, 0, Object.class) : handle;
+            return instanceHandle.asType(AttributeInspectionPoint.SETTER_TYPE);
         }
         
         private Class<?> convertTypeToWrappers(final Class<?> cls) {
@@ -363,18 +421,23 @@ public class InspectionData {
         }
         
         public Object getValue(final Object obj) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException {
-            if (this.usesField) return this.f.get(obj);
-            return this.getter.invoke(obj);
+            if (obj == null) throw new IllegalArgumentException("The given object is null.");
+            try {
+                return (Object) this.getter.invokeExact(obj);
+            } catch (final Throwable e) {
+                throw new InvocationTargetException(e);
+            }
         }
         
         public void setValue(final Object obj, final Object value)
                 throws IllegalArgumentException, IllegalAccessException, InvocationTargetException {
             if (this.readOnly) throw new InspectionPointException("Attribute is read only.");
             if (!this.type.isAssignableFrom(value.getClass())) throw new IllegalArgumentException("Not the correct attribute type.");
-            if (this.usesField) {
-                this.f.set(obj, value);
-            } else {
-                this.setter.invoke(obj, value);
+            if (obj == null) throw new IllegalArgumentException("The given object is null.");
+            try {
+                this.setter.invokeExact(obj, value);
+            } catch (final Throwable e) {
+                throw new InvocationTargetException(e);
             }
         }
         
@@ -9,41 +9,45 @@
  */
 package de.unistuttgart.informatik.fius.icge.simulation.inspection;
 
-import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
+import de.unistuttgart.informatik.fius.icge.simulation.internal.inspection.InspectionIndex;
 
 
 /**
  * A class for managing the inspections
+ * <p>
+ * The inspection data of an entity class is created the first time an entity of that class is inspected (see
+ * {@link InspectionData#of(Class)}). The members of the classes listed in the index written by the
+ * {@link de.unistuttgart.informatik.fius.icge.simulation.internal.inspection.InspectionIndexProcessor
+ * InspectionIndexProcessor} are looked up directly instead of scanning the class hierarchy.
+ * </p>
  * 
  * @author Tim Neumann
  */
 public class InspectionManager {
     
-    private final Map<Class<?>, InspectionData> inspectableClasses = new HashMap<>();
-    
     /**
-     * Create a new inspection manager.
+     * Creates a new inspection manager and loads the inspection index.
      */
     public InspectionManager() {
-        try {
-            final List<Class<?>> classes = ClassFinder.getClassesInClassLoader(c -> true);
-            
-            for (final Class<?> cls : classes) {
-                final InspectionData d = new InspectionData(cls);
-                if (d.hasAnyInspectableElements()) {
-                    this.inspectableClasses.put(cls, d);
-                }
-            }
-        } catch (final IOException e) {
-            e.printStackTrace();
-        }
+        final ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+        InspectionIndex.load(contextLoader != null ? contextLoader : InspectionManager.class.getClassLoader());
+    }
+    
+    /**
+     * Get the inspection data for the class of the given entity.
+     * 
+     * @param entity
+     *     The entity to get the inspection data for
+     * @return The inspection data or null if the class of the entity has no inspectable elements
+     */
+    private InspectionData getInspectionData(final Entity entity) {
+        final InspectionData d = InspectionData.of(entity.getClass());
+        return d.hasAnyInspectableElements() ? d : null;
     }
     
     /**
@@ -54,7 +58,7 @@ public class InspectionManager {
      * @return A List of attribute names.
      */
     public List<String> getAttributeNamesOfEntity(final Entity entity) {
-        final InspectionData d = this.inspectableClasses.get(entity.getClass());
+        final InspectionData d = this.getInspectionData(entity);
         if (d == null) return Collections.emptyList();
         return d.getAttributeNames();
     }
@@ -67,7 +71,7 @@ public class InspectionManager {
      * @return A List of method names.
      */
     public List<String> getMethodNamesOfEntity(final Entity entity) {
-        final InspectionData d = this.inspectableClasses.get(entity.getClass());
+        final InspectionData d = this.getInspectionData(entity);
         if (d == null) return Collections.emptyList();
         return d.getMethodNames();
     }
@@ -82,7 +86,7 @@ public class InspectionManager {
      * @return Whether the attribute is writable.
      */
     public boolean isAttributeEditable(final Entity entity, final String attributeName) {
-        final InspectionData d = this.inspectableClasses.get(entity.getClass());
+        final InspectionData d = this.getInspectionData(entity);
         if (d == null) return false;
         return !d.isAttributeReadOnly(attributeName);
     }
@@ -97,7 +101,7 @@ public class InspectionManager {
      * @return The type of the attribute.
      */
     public Class<?> getAttributeType(final Entity entity, final String attributeName) {
-        final InspectionData d = this.inspectableClasses.get(entity.getClass());
+        final InspectionData d = this.getInspectionData(entity);
         if (d == null) return null;
         return d.getAttributeType(attributeName);
     }
@@ -112,7 +116,7 @@ public class InspectionManager {
      * @return The value or null if it didn't work.
      */
     public Object getAttributeValue(final Entity entity, final String attributeName) {
-        final InspectionData d = this.inspectableClasses.get(entity.getClass());
+        final InspectionData d = this.getInspectionData(entity);
         if (d == null) return null;
         return d.getAttributeValue(entity, attributeName);
     }
@@ -129,7 +133,7 @@ public class InspectionManager {
      * @return Whether it worked.
      */
     public boolean setAttributeValue(final Entity entity, final String attributeName, final Object value) {
-        final InspectionData d = this.inspectableClasses.get(entity.getClass());
+        final InspectionData d = this.getInspectionData(entity);
         if (d == null) return false;
         return d.setAttributeValue(entity, attributeName, value);
     }
@@ -144,7 +148,7 @@ public class InspectionManager {
      * @return The method detail.
      */
     public Method getMethodDetail(final Entity entity, final String methodName) {
-        final InspectionData d = this.inspectableClasses.get(entity.getClass());
+        final InspectionData d = this.getInspectionData(entity);
         if (d == null) return null;
         return d.getMethodByName(methodName);
     }
@@ -163,7 +167,7 @@ public class InspectionManager {
      *     When anything goes wrong.
      */
     public Object invokeMethod(final Entity entity, final String methodName, final Object... args) {
-        final InspectionData d = this.inspectableClasses.get(entity.getClass());
+        final InspectionData d = this.getInspectionData(entity);
         if (d == null) throw new IllegalStateException("Not a known inspectable class");
         return d.invokeMethod(entity, methodName, args);
     }
@@ -9,6 +9,9 @@
  */
 package de.unistuttgart.informatik.fius.icge.simulation.internal;
 
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 import de.unistuttgart.informatik.fius.icge.simulation.Playfield;
 import de.unistuttgart.informatik.fius.icge.simulation.programs.Program;
 import de.unistuttgart.informatik.fius.icge.simulation.Simulation;
@@ -19,6 +22,7 @@ import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
 import de.unistuttgart.informatik.fius.icge.simulation.entity.EntityTypeRegistry;
 import de.unistuttgart.informatik.fius.icge.simulation.inspection.InspectionManager;
 import de.unistuttgart.informatik.fius.icge.simulation.internal.actions.StandardActionLog;
+import de.unistuttgart.informatik.fius.icge.simulation.internal.entity.EntityForkCopier;
 import de.unistuttgart.informatik.fius.icge.simulation.internal.entity.StandardEntityTypeRegistry;
 import de.unistuttgart.informatik.fius.icge.simulation.internal.playfield.StandardPlayfield;
 import de.unistuttgart.informatik.fius.icge.simulation.internal.programs.StandardProgramRunner;
@@ -57,14 +61,19 @@ public class StandardSimulation implements Simulation {
      * @param actionLog
      *     The actionLog to use
      * @param inspectionManager
-     *     The inspection manager to use
+     *     The inspection manager to use; may be null if the simulation is headless
      * @param taskVerifier
      *     the task verifier to use to verify the task completion status
+     * @param programRunner
+     *     the program runner to use
+     * @param headless
+     *     if {@code true} no simulation proxy is created and the simulation can not be attached to a window
      */
     public StandardSimulation(
             final StandardPlayfield playfield, final StandardSimulationClock simulationClock,
             final StandardEntityTypeRegistry entityTypeRegistry, final StandardActionLog actionLog,
-            final InspectionManager inspectionManager, final TaskVerifier taskVerifier
+            final InspectionManager inspectionManager, final TaskVerifier taskVerifier, final StandardProgramRunner programRunner,
+            final boolean headless
     ) {
         this.playfield = playfield;
         this.simulationClock = simulationClock;
@@ -72,17 +81,23 @@ public class StandardSimulation implements Simulation {
         this.entityTypeRegistry = entityTypeRegistry;
         this.taskVerifier = taskVerifier;
         
-        this.programRunner = new StandardProgramRunner();
+        this.programRunner = programRunner;
         
         this.playfield.initialize(this);
+        // apply the changes of a two phase commit while holding the playfield lock only once
+        this.simulationClock.setCommitBatchExecutor(this.playfield::runExclusively);
         
         if (taskVerifier != null) {
             taskVerifier.attachToSimulation(this);
         }
         
-        this.simulationProxy = new StandardSimulationProxy(
-                this, simulationClock, inspectionManager, entityTypeRegistry, playfield, taskVerifier
-        );
+        if (headless) {
+            this.simulationProxy = null;
+        } else {
+            this.simulationProxy = new StandardSimulationProxy(
+                    this, simulationClock, inspectionManager, entityTypeRegistry, playfield, taskVerifier
+            );
+        }
     }
     
     @Override
@@ -112,6 +127,7 @@ public class StandardSimulation implements Simulation {
     
     @Override
     public SimulationProxy getSimulationProxyForWindow() {
+        if (this.simulationProxy == null) throw new IllegalStateException("A headless simulation can not be attached to a window.");
         return this.simulationProxy;
     }
     
@@ -133,6 +149,7 @@ public class StandardSimulation implements Simulation {
         }
         this.programRunner.stopAll();
         this.simulationClock.shutdown(); // stop the clock for good
+        this.actionLog.stopSink();
     }
     
     @Override
@@ -140,12 +157,60 @@ public class StandardSimulation implements Simulation {
         if (this.runningTask != null) {
             throw new IllegalStateException("Cannot run more than 1 Task per Simulation!");
         }
-        this.runningTask = new StandardTaskRunner(taskToRun, this);
+        // the task runs on the executor shared with other simulations if the programs use one
+        this.runningTask = new StandardTaskRunner(
+                taskToRun, this, this.simulationClock.isLockstepClock() ? this.simulationClock : null,
+                this.programRunner.getSharedExecutor()
+        );
         this.runningTask.runTask();
     }
     
+    /**
+     * Get the result of the task run with {@link #runTask(Task)}.
+     *
+     * @return the completable future containing the task result (see {@link StandardTaskRunner#runTask()}); null if no
+     *     task is running
+     */
+    public CompletableFuture<Boolean> getTaskResult() {
+        final StandardTaskRunner task = this.runningTask;
+        return task == null ? null : task.getTaskResult();
+    }
+    
+    /**
+     * Get a future completed once all programs run with {@link #runProgram(Program, Entity)} have ended; see
+     * {@link StandardProgramRunner#getAllProgramsDone()}.
+     *
+     * @return the completable future
+     */
+    public CompletableFuture<Void> getAllProgramsDone() {
+        return this.programRunner.getAllProgramsDone();
+    }
+    
     @Override
     public <E extends Entity, S extends E> void runProgram(Program<E> program, S entity) {
         this.programRunner.run(program, entity);
     }
+    
+    @Override
+    public Simulation fork(final Map<Entity, Entity> copies) {
+        final EntityForkCopier copyOf = new EntityForkCopier(copies);
+        final StandardPlayfield[] forkedPlayfield = new StandardPlayfield[1];
+        final StandardActionLog[] forkedActionLog = new StandardActionLog[1];
+        // no entity can be added, moved or removed while forking, so the playfield and the action log match
+        this.playfield.runExclusively(() -> {
+            forkedPlayfield[0] = this.playfield.fork(copyOf);
+            forkedActionLog[0] = this.actionLog.fork(copies);
+        });
+        
+        final StandardSimulationClock forkedClock = this.simulationClock.fork();
+        final StandardProgramRunner forkedProgramRunner = new StandardProgramRunner(
+                // the forked clock runs in virtual time, so it waits for every program as lockstep participant
+                true, forkedClock, this.programRunner.getSharedExecutor()
+        );
+        final StandardSimulation fork = new StandardSimulation(
+                forkedPlayfield[0], forkedClock, new StandardEntityTypeRegistry(this.entityTypeRegistry), forkedActionLog[0], null, null, forkedProgramRunner, true
+        );
+        forkedPlayfield[0].initForkedEntities();
+        return fork;
+    }
 }
@@ -13,12 +13,14 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -38,16 +40,85 @@ import de.unistuttgart.informatik.fius.icge.ui.exception.ListenerSetException;
 public class StandardSimulationClock implements SimulationClock {
     private final Object tickListenerLock = new Object();
     
-    private final List<Function<Long, Boolean>> tickListeners;
-    private final List<Function<Long, Boolean>> postTickListeners;
+    private final List<LongTickListener> tickListeners;
+    private final List<LongTickListener> postTickListeners;
+    
+    /**
+     * The operation performed by the current thread if it was released together with other operations and has to
+     * coordinate its changes with them; see {@link #awaitCommitTurn()} and {@link #commit(Runnable)}.
+     */
+    private static final ThreadLocal<ScheduledOperation> currentBatchedOperation = new ThreadLocal<>();
+    
+    /**
+     * The operations waiting for their tick, ordered by tick and then by the order they were scheduled in.
+     * <p>
+     * Only the operations due in the current tick are touched when processing a tick.
+     * </p>
+     */
+    private final PriorityQueue<ScheduledOperation> scheduledOperations;
+    private final Object                            scheduleLock = new Object();
+    private long                                    nextOperationSequenceNumber;
     
     private final Set<CompletableFuture<Void>> operationBoundaries;
     
     private Consumer<Long>      animationTickListener;
     private StateChangeListener stateChangeListener;
     
-    private TimerTask   task;
-    private final Timer timer;
+    private volatile TimerTask task;
+    /** The timer running the ticks; created when the clock is first started. */
+    private Timer              timer;
+    /** The executor running the tick loop of a virtual time clock instead of the timer; may be null. */
+    private Executor           tickLoopExecutor;
+    
+    /** The last simulation tick a virtual time clock processes before it stops. */
+    private volatile long     tickLimit = Long.MAX_VALUE;
+    /** Called when a virtual time clock stops at the tick limit; may be null. */
+    private volatile Runnable tickLimitListener;
+    
+    /**
+     * Whether this clock runs in virtual time.
+     * <p>
+     * A virtual time clock does not tick at a fixed period but advances to the next simulation tick with a scheduled
+     * operation as soon as the previous one is processed. It only waits while no operation is scheduled.
+     * </p>
+     */
+    private final boolean virtualTime;
+    
+    /**
+     * Whether all operations due in a simulation tick are released at once.
+     * <p>
+     * If this is false the operations are performed one after another on the tick thread.
+     * </p>
+     */
+    private volatile boolean concurrentOperationRelease;
+    
+    /**
+     * Whether this clock runs in deterministic lockstep mode.
+     * <p>
+     * In this mode operations due in the same tick are ordered by their order key and a simulation tick is only
+     * processed once every lockstep participant waits for the clock.
+     * </p>
+     */
+    private volatile boolean deterministic;
+    
+    /**
+     * Whether the operations of a tick commit their changes in two phases.
+     * <p>
+     * In the first phase all released operations run in parallel until they commit their changes or end. In the second
+     * phase all committed changes are applied in one batch.
+     * </p>
+     */
+    private volatile boolean twoPhaseCommit;
+    
+    /** Used to apply the batch of changes in a two phase commit; e.g. to hold the playfield lock during the batch. */
+    private volatile Consumer<Runnable> commitBatchExecutor = Runnable::run;
+    
+    /** Marks the threads of lockstep participants. */
+    private final ThreadLocal<Boolean> lockstepParticipantThread = new ThreadLocal<>();
+    /** The number of registered lockstep participants; guarded by the schedule lock. */
+    private int                        lockstepParticipants;
+    /** The number of lockstep participants currently waiting for the clock; guarded by the schedule lock. */
+    private int                        waitingLockstepParticipants;
     
     private volatile long tickCount;
     
@@ -71,15 +142,88 @@ public class StandardSimulationClock implements SimulationClock {
      * Default constructor
      */
     public StandardSimulationClock() {
+        this(false);
+    }
+    
+    /**
+     * Create a new simulation clock.
+     *
+     * @param virtualTime
+     *     if {@code true} the clock does not use the wall clock but advances the simulation ticks as fast as the
+     *     scheduled operations complete; render ticks are skipped in this mode
+     */
+    public StandardSimulationClock(final boolean virtualTime) {
+        this.virtualTime = virtualTime;
         this.tickListeners = new ArrayList<>();
         this.postTickListeners = new ArrayList<>();
-        this.timer = new Timer("STM-TickTimer", true);
+        this.scheduledOperations = new PriorityQueue<>();
         this.tickCount = -1;
         this.period = SimulationClock.DEFAULT_RENDER_TICK_PERIOD;
         this.shuttingDown = false;
         this.operationBoundaries = Collections.synchronizedSet(new HashSet<>());
     }
     
+    /**
+     * Create a stopped clock for a fork of the simulation.
+     * <p>
+     * The new clock continues at the current tick of this clock and uses the same modes, but always runs in virtual
+     * time. No operations or listeners are copied.
+     * </p>
+     *
+     * @return the new clock
+     */
+    public StandardSimulationClock fork() {
+        final StandardSimulationClock fork = new StandardSimulationClock(true);
+        fork.tickCount = this.tickCount;
+        fork.period = this.period;
+        fork.concurrentOperationRelease = this.concurrentOperationRelease;
+        fork.deterministic = this.deterministic;
+        fork.twoPhaseCommit = this.twoPhaseCommit;
+        fork.tickLoopExecutor = this.tickLoopExecutor;
+        return fork;
+    }
+    
+    /**
+     * Set the executor running the tick loop of this clock if it runs in virtual time.
+     * <p>
+     * By default every clock uses its own timer thread. With an executor shared by many simulations no thread is
+     * created for the clock. The tick loop blocks while the clock waits for operations, so the executor must not queue
+     * it behind other blocking tasks (e.g. use a cached thread pool). Clocks not running in virtual time always use
+     * their timer.
+     * </p>
+     *
+     * @param tickLoopExecutor
+     *     the executor to use; null to use the timer of this clock
+     */
+    public synchronized void setTickLoopExecutor(final Executor tickLoopExecutor) {
+        this.tickLoopExecutor = tickLoopExecutor;
+    }
+    
+    /**
+     * Set the last simulation tick this clock processes if it runs in virtual time.
+     * <p>
+     * Instead of processing a later tick the clock stops and calls the given listener on the tick thread. Operations
+     * scheduled for later ticks are not released. Ticks without operations are skipped in virtual time, so the last
+     * processed tick may be before the limit.
+     * </p>
+     *
+     * @param tickLimit
+     *     the last tick to process; {@link Long#MAX_VALUE} for no limit
+     * @param tickLimitListener
+     *     the listener called when the clock stops at the limit; may be null
+     */
+    public void setTickLimit(final long tickLimit, final Runnable tickLimitListener) {
+        this.tickLimit = tickLimit;
+        this.tickLimitListener = tickLimitListener;
+    }
+    
+    private Timer getTimer() {
+        if (this.timer == null) {
+            this.timer = new Timer("STM-TickTimer", true);
+        }
+        return this.timer;
+    }
+    
     /**
      * This internal start function actually starts the timer but does not notify the simulation proxy. If you don't
      * know what you do use {@link SimulationClock#start()}
@@ -88,6 +232,22 @@ public class StandardSimulationClock implements SimulationClock {
         if (this.isRunning()) throw new TimerAlreadyRunning();
         if (this.shuttingDown) return;
         
+        if (this.virtualTime) {
+            this.task = new TimerTask() {
+                
+                @Override
+                public void run() {
+                    StandardSimulationClock.this.tickInVirtualTime(this);
+                }
+            };
+            if (this.tickLoopExecutor != null) {
+                this.tickLoopExecutor.execute(this.task);
+            } else {
+                this.getTimer().schedule(this.task, 0);
+            }
+            return;
+        }
+        
         this.task = new TimerTask() {
             
             @Override
@@ -95,7 +255,7 @@ public class StandardSimulationClock implements SimulationClock {
                 StandardSimulationClock.this.tick();
             }
         };
-        this.timer.schedule(this.task, 0, this.period);
+        this.getTimer().schedule(this.task, 0, this.period);
     }
     
     /**
@@ -107,6 +267,272 @@ public class StandardSimulationClock implements SimulationClock {
             this.task.cancel();
         }
         this.task = null;
+        synchronized (this.scheduleLock) {
+            this.scheduleLock.notifyAll();
+        }
+    }
+    
+    /**
+     * Set whether all operations due in a simulation tick should be released at once.
+     * <p>
+     * If enabled, the clock lets all due operations start at the same time and waits until all of them are done before
+     * the tick listeners are called. The operations of one tick may then run in parallel and in any order. If disabled
+     * (default), the operations are performed one after another in the order they were scheduled in.
+     * </p>
+     *
+     * @param concurrentOperationRelease
+     *     true to release all due operations at once
+     */
+    public void setConcurrentOperationRelease(final boolean concurrentOperationRelease) {
+        this.concurrentOperationRelease = concurrentOperationRelease;
+    }
+    
+    /**
+     * @return whether all operations due in a simulation tick are released at once
+     */
+    public boolean isConcurrentOperationRelease() {
+        return this.concurrentOperationRelease;
+    }
+    
+    /**
+     * Set whether this clock should run in deterministic lockstep mode.
+     * <p>
+     * In this mode operations due in the same tick are performed in the order of their order key instead of the order
+     * they were scheduled in. Additionally a simulation tick is only processed when every lockstep participant (see
+     * {@link #registerLockstepParticipant()}) waits for an operation or has ended. This makes the tick every operation
+     * is scheduled for independent of thread timing.
+     * </p>
+     * <p>
+     * If all due operations are released at once (see {@link #setConcurrentOperationRelease(boolean)}), they still run
+     * in parallel, but every operation waits for the end of the operations before it in the tick before it changes the
+     * playfield or logs an action (see {@link #awaitCommitTurn()}).
+     * </p>
+     *
+     * @param deterministic
+     *     true to run in deterministic lockstep mode
+     */
+    public void setDeterministic(final boolean deterministic) {
+        this.deterministic = deterministic;
+    }
+    
+    /**
+     * Set whether the operations released at once should commit their changes in two phases.
+     * <p>
+     * This only has an effect if all due operations are released at once (see
+     * {@link #setConcurrentOperationRelease(boolean)}). In the first phase the operations of a tick run in parallel
+     * until they call {@link #commit(Runnable)} or end. As nothing is changed during this phase, they all see the
+     * simulation state of the start of the tick. In the second phase the clock applies all committed changes in one
+     * batch in the order of the operations, so every change is checked against the changes applied before it. Only then
+     * the operations continue.
+     * </p>
+     *
+     * @param twoPhaseCommit
+     *     true to commit the changes of concurrently released operations in two phases
+     */
+    public void setTwoPhaseCommit(final boolean twoPhaseCommit) {
+        this.twoPhaseCommit = twoPhaseCommit;
+    }
+    
+    /**
+     * @return whether the operations released at once commit their changes in two phases
+     */
+    public boolean isTwoPhaseCommit() {
+        return this.twoPhaseCommit;
+    }
+    
+    /**
+     * Set the executor used to apply a batch of changes in a two phase commit.
+     * <p>
+     * The executor gets a runnable applying the whole batch and must run it on the calling thread. It can for example
+     * hold a lock during the batch.
+     * </p>
+     *
+     * @param commitBatchExecutor
+     *     the executor; must not be null
+     */
+    public void setCommitBatchExecutor(final Consumer<Runnable> commitBatchExecutor) {
+        if (commitBatchExecutor == null) throw new IllegalArgumentException("The given executor is null.");
+        this.commitBatchExecutor = commitBatchExecutor;
+    }
+    
+    /**
+     * @return whether this clock runs in deterministic lockstep mode
+     */
+    public boolean isDeterministic() {
+        return this.deterministic;
+    }
+    
+    /**
+     * Register a new lockstep participant.
+     * <p>
+     * In deterministic mode and in virtual time the clock does not process a simulation tick while a registered
+     * participant is running. A participant must be registered before it starts to run to prevent the clock from
+     * advancing in between. The participant must then run inside of {@link #runAsLockstepParticipant(Runnable)} and be
+     * unregistered with {@link #unregisterLockstepParticipant()} once it is done.
+     * </p>
+     * <p>
+     * A participant blocking on anything other than an entity operation stops the clock until it continues.
+     * </p>
+     */
+    public void registerLockstepParticipant() {
+        synchronized (this.scheduleLock) {
+            this.lockstepParticipants++;
+        }
+    }
+    
+    /**
+     * Unregister a lockstep participant that has ended.
+     */
+    public void unregisterLockstepParticipant() {
+        synchronized (this.scheduleLock) {
+            this.lockstepParticipants--;
+            this.scheduleLock.notifyAll();
+        }
+    }
+    
+    /**
+     * Run the given runnable on the current thread as a registered lockstep participant.
+     *
+     * @param participant
+     *     the code of the participant
+     */
+    public void runAsLockstepParticipant(final Runnable participant) {
+        this.lockstepParticipantThread.set(Boolean.TRUE);
+        try {
+            participant.run();
+        } finally {
+            this.lockstepParticipantThread.remove();
+        }
+    }
+    
+    /**
+     * Count the current thread as a waiting lockstep participant until the given future completes.
+     * <p>
+     * The count is decreased by the thread completing the future, so the clock never sees a participant as waiting
+     * after it was released.
+     * </p>
+     *
+     * @param future
+     *     the future the current thread is about to wait for
+     */
+    private void beginWaitingForClock(final CompletableFuture<Void> future) {
+        if (!this.isLockstepClock() || (this.lockstepParticipantThread.get() == null)) return;
+        synchronized (this.scheduleLock) {
+            this.waitingLockstepParticipants++;
+            this.scheduleLock.notifyAll();
+        }
+        future.whenComplete((result, exception) -> {
+            synchronized (this.scheduleLock) {
+                this.waitingLockstepParticipants--;
+            }
+        });
+    }
+    
+    /**
+     * Check whether this clock waits for its lockstep participants before processing a simulation tick.
+     * <p>
+     * This is the case in deterministic mode and in virtual time, as a clock in virtual time would otherwise skip ahead
+     * to the next scheduled operation before the programs released in the current tick scheduled their next operation.
+     * </p>
+     *
+     * @return true if the clock waits for its lockstep participants
+     */
+    public boolean isLockstepClock() {
+        return this.deterministic || this.virtualTime;
+    }
+    
+    /**
+     * Check whether all lockstep participants wait for the clock; must hold the schedule lock.
+     *
+     * @return true if the next simulation tick may be processed
+     */
+    private boolean isLockstepComplete() {
+        return !this.isLockstepClock() || (this.waitingLockstepParticipants >= this.lockstepParticipants);
+    }
+    
+    /**
+     * Wait until all lockstep participants wait for the clock.
+     * <p>
+     * Must not be called while holding the tick listener lock, as the participants may register tick listeners.
+     * </p>
+     *
+     * @return false if the current thread was interrupted while waiting; its interrupt flag is set again
+     */
+    private boolean awaitLockstep() {
+        if (!this.isLockstepClock()) return true;
+        synchronized (this.scheduleLock) {
+            while (!this.isLockstepComplete() && !this.shuttingDown) {
+                try {
+                    this.scheduleLock.wait();
+                } catch (@SuppressWarnings("unused") final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Wait until the current thread may commit its changes to the simulation.
+     * <p>
+     * If the current thread performs an operation that was released together with other operations by a deterministic
+     * clock, this method waits until all operations ordered before it have ended. Otherwise it returns immediately.
+     * Call this method before reading or changing the playfield or logging an action, as the result of a read may
+     * depend on the changes of the operations before.
+     * </p>
+     */
+    public static void awaitCommitTurn() {
+        final ScheduledOperation operation = StandardSimulationClock.currentBatchedOperation.get();
+        if (operation == null) return;
+        if (operation.endOfOperation.isDone()) {
+            StandardSimulationClock.currentBatchedOperation.remove();
+            return;
+        }
+        if (operation.hasCommitTurn || !operation.orderedCommit) return;
+        // in the first phase of a two phase commit nothing is changed, so there is no need to wait
+        if (operation.twoPhaseCommit && (operation.changes == null)) return;
+        for (int i = 0; i < operation.batchIndex; i++) {
+            try {
+                operation.batch.get(i).endOfOperation.get();
+            } catch (final InterruptedException e) {
+                throw new UncheckedInterruptedException(e);
+            } catch (@SuppressWarnings("unused") ExecutionException | CancellationException e) {
+                // the operation has ended, which is all we are waiting for
+            }
+        }
+        operation.hasCommitTurn = true;
+    }
+    
+    @Override
+    public void commit(final Runnable changes) {
+        final ScheduledOperation operation = StandardSimulationClock.currentBatchedOperation.get();
+        if ((operation == null) || !operation.twoPhaseCommit || (operation.changes != null) || operation.endOfOperation.isDone()) {
+            // not in the first phase of a two phase commit
+            StandardSimulationClock.awaitCommitTurn();
+            changes.run();
+            return;
+        }
+        operation.changes = changes;
+        operation.changesApplied = new CompletableFuture<>();
+        operation.reachedCommit.complete(null);
+        try {
+            operation.changesApplied.get();
+        } catch (final InterruptedException e) {
+            throw new UncheckedInterruptedException(e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+    
+    /**
+     * @return whether this clock runs in virtual time instead of using the wall clock
+     */
+    public boolean isVirtualTime() {
+        return this.virtualTime;
     }
     
     /**
@@ -130,6 +556,10 @@ public class StandardSimulationClock implements SimulationClock {
         for (final var boundary : Set.copyOf(this.operationBoundaries)) {
             boundary.cancel(true);
         }
+        if (this.timer != null) {
+            // the clock is never started again, so the timer thread can end
+            this.timer.cancel();
+        }
     }
     
     @Override
@@ -187,10 +617,54 @@ public class StandardSimulationClock implements SimulationClock {
         }, "single-step").start();
     }
     
+    /**
+     * Process simulation ticks in virtual time until the given task is no longer the active task of this clock.
+     * <p>
+     * Every iteration skips the render ticks and all simulation ticks without a scheduled operation and processes the
+     * next simulation tick with a scheduled operation directly. While no operation is scheduled or a lockstep
+     * participant is still running the loop waits instead of producing empty ticks.
+     * </p>
+     *
+     * @param owner
+     *     the timer task running this loop
+     */
+    private void tickInVirtualTime(final TimerTask owner) {
+        while ((this.task == owner) && !this.shuttingDown) {
+            long nextTick;
+            synchronized (this.scheduleLock) {
+                while ((this.scheduledOperations.isEmpty() || !this.isLockstepComplete()) && (this.task == owner) && !this.shuttingDown) {
+                    try {
+                        this.scheduleLock.wait();
+                    } catch (@SuppressWarnings("unused") final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if ((this.task != owner) || this.shuttingDown) return;
+                nextTick = Math.max(this.scheduledOperations.peek().tick, this.getLastTickNumber() + 1);
+            }
+            if (nextTick > this.tickLimit) {
+                // stopping needs the monitor of the clock, so it must not be done while holding the schedule lock
+                this.stopInternal();
+                final Runnable listener = this.tickLimitListener;
+                if (listener != null) {
+                    listener.run();
+                }
+                return;
+            }
+            // set the tick count to the last render tick before the next simulation tick to process
+            this.tickCount = (nextTick * SimulationClock.RENDER_TICKS_PER_SIMULATION_TICK) - 1;
+            this.tick();
+        }
+    }
+    
     /**
      * Process a tick
      */
     private void tick() {
+        final boolean simulationTick = ((this.tickCount + 1) % SimulationClock.RENDER_TICKS_PER_SIMULATION_TICK) == 0;
+        // wait for the lockstep participants before locking, so they can still register tick listeners
+        if (simulationTick && !this.awaitLockstep()) return;
         synchronized (this.tickListenerLock) {
             //Don't process tick when shutting down.
             if (this.shuttingDown) return;
@@ -213,19 +687,167 @@ public class StandardSimulationClock implements SimulationClock {
      *     The number of the simulation tick since the start of the clock.
      */
     private void tickSimulation(final long tickNumber) {
-        for (final var listener : List.copyOf(this.tickListeners)) {
-            //Don't continue to process tick when shutting down.
-            if (this.shuttingDown) return;
-            if (!listener.apply(tickNumber)) {
-                this.tickListeners.remove(listener);
+        final List<ScheduledOperation> dueOperations = this.pollDueOperations(tickNumber);
+        if (this.concurrentOperationRelease && (dueOperations.size() > 1)) {
+            this.performOperationsConcurrently(dueOperations);
+        } else {
+            for (final ScheduledOperation operation : dueOperations) {
+                //Don't continue to process tick when shutting down.
+                if (this.shuttingDown) return;
+                this.performOperation(operation);
             }
         }
+        //Don't continue to process tick when shutting down.
+        if (this.shuttingDown) return;
         
-        for (final var listener : List.copyOf(this.postTickListeners)) {
+        this.callListeners(this.tickListeners, tickNumber);
+        this.callListeners(this.postTickListeners, tickNumber);
+    }
+    
+    private void callListeners(final List<LongTickListener> listeners, final long tickNumber) {
+        if (listeners.isEmpty()) return;
+        for (final var listener : List.copyOf(listeners)) {
             //Don't continue to process tick when shutting down.
             if (this.shuttingDown) return;
-            if (!listener.apply(tickNumber)) {
-                this.postTickListeners.remove(listener);
+            if (!listener.onTick(tickNumber)) {
+                listeners.remove(listener);
+            }
+        }
+    }
+    
+    /**
+     * Remove all operations due in the given tick from the queue of scheduled operations.
+     * <p>
+     * Operations scheduled for this tick while the returned operations are performed will be performed in the next
+     * tick.
+     * </p>
+     *
+     * @param tickNumber
+     *     the number of the current simulation tick
+     * @return the due operations in the order they should be performed in
+     */
+    private List<ScheduledOperation> pollDueOperations(final long tickNumber) {
+        synchronized (this.scheduleLock) {
+            if (this.scheduledOperations.isEmpty() || (this.scheduledOperations.peek().tick > tickNumber)) return List.of();
+            final List<ScheduledOperation> dueOperations = new ArrayList<>();
+            while (!this.scheduledOperations.isEmpty() && (this.scheduledOperations.peek().tick <= tickNumber)) {
+                dueOperations.add(this.scheduledOperations.poll());
+            }
+            return dueOperations;
+        }
+    }
+    
+    /**
+     * Let all given operations start at once and wait until all of them are done.
+     *
+     * @param operations
+     *     the operations to perform
+     */
+    private void performOperationsConcurrently(final List<ScheduledOperation> operations) {
+        final CompletableFuture<?>[] endsOfOperations = new CompletableFuture<?>[operations.size()];
+        for (int i = 0; i < endsOfOperations.length; i++) {
+            final ScheduledOperation operation = operations.get(i);
+            endsOfOperations[i] = operation.endOfOperation;
+            if (this.deterministic || this.twoPhaseCommit) {
+                operation.batch = operations;
+                operation.batchIndex = i;
+                // the operations have to commit in the order of the list
+                operation.orderedCommit = this.deterministic;
+                operation.twoPhaseCommit = this.twoPhaseCommit;
+            }
+            if (this.twoPhaseCommit) {
+                operation.reachedCommit = new CompletableFuture<>();
+                final CompletableFuture<Void> reachedCommit = operation.reachedCommit;
+                operation.endOfOperation.whenComplete((result, exception) -> reachedCommit.complete(null));
+            }
+        }
+        for (final ScheduledOperation operation : operations) {
+            operation.startOfOperation.complete(null);
+        }
+        try {
+            if (this.twoPhaseCommit) {
+                this.applyCommittedChanges(operations);
+            }
+            CompletableFuture.allOf(endsOfOperations).get();
+        } catch (final InterruptedException e) {
+            e.printStackTrace();
+        } catch (ExecutionException | CancellationException e) {
+            //When shutting down this is expected
+            if (!this.shuttingDown) {
+                e.printStackTrace();
+            }
+        }
+        for (final CompletableFuture<?> endOfOperation : endsOfOperations) {
+            this.operationBoundaries.remove(endOfOperation);
+        }
+    }
+    
+    /**
+     * Wait until all given operations have committed their changes or ended and apply all committed changes in one
+     * batch.
+     * <p>
+     * The operations waiting for their changes are released after the whole batch is applied.
+     * </p>
+     *
+     * @param operations
+     *     the operations released together
+     * @throws InterruptedException
+     *     if interrupted while waiting for the operations
+     * @throws ExecutionException
+     *     should not happen as the futures are only completed normally
+     */
+    private void applyCommittedChanges(final List<ScheduledOperation> operations) throws InterruptedException, ExecutionException {
+        final CompletableFuture<?>[] reachedCommits = new CompletableFuture<?>[operations.size()];
+        for (int i = 0; i < reachedCommits.length; i++) {
+            reachedCommits[i] = operations.get(i).reachedCommit;
+        }
+        CompletableFuture.allOf(reachedCommits).get();
+        
+        final Throwable[] failures = new Throwable[operations.size()];
+        this.commitBatchExecutor.accept(() -> {
+            for (int i = 0; i < failures.length; i++) {
+                final ScheduledOperation operation = operations.get(i);
+                if (operation.changes == null) {
+                    continue;
+                }
+                try {
+                    operation.changes.run();
+                } catch (final Throwable e) {
+                    // the changes are rejected, e.g. because of a conflict with changes applied before
+                    failures[i] = e;
+                }
+            }
+        });
+        for (int i = 0; i < failures.length; i++) {
+            final ScheduledOperation operation = operations.get(i);
+            if (operation.changesApplied == null) {
+                continue;
+            }
+            if (failures[i] != null) {
+                operation.changesApplied.completeExceptionally(failures[i]);
+            } else {
+                operation.changesApplied.complete(null);
+            }
+        }
+    }
+    
+    /**
+     * Let the given operation start and wait for its end.
+     *
+     * @param operation
+     *     the operation to perform
+     */
+    private void performOperation(final ScheduledOperation operation) {
+        operation.startOfOperation.complete(null);
+        try {
+            operation.endOfOperation.get();
+            this.operationBoundaries.remove(operation.endOfOperation);
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+        } catch (final CancellationException e) {
+            //When shutting down this is expected
+            if (!this.shuttingDown) {
+                e.printStackTrace();
             }
         }
     }
@@ -269,6 +891,16 @@ public class StandardSimulationClock implements SimulationClock {
     
     @Override
     public void registerTickListener(final Function<Long, Boolean> listener) {
+        this.registerLongTickListener(listener::apply);
+    }
+    
+    @Override
+    public void registerPostTickListener(final Function<Long, Boolean> listener) {
+        this.registerLongPostTickListener(listener::apply);
+    }
+    
+    @Override
+    public void registerLongTickListener(final LongTickListener listener) {
         if (this.shuttingDown) return;
         synchronized (this.tickListenerLock) {
             this.tickListeners.add(listener);
@@ -276,7 +908,7 @@ public class StandardSimulationClock implements SimulationClock {
     }
     
     @Override
-    public void registerPostTickListener(final Function<Long, Boolean> listener) {
+    public void registerLongPostTickListener(final LongTickListener listener) {
         if (this.shuttingDown) return;
         synchronized (this.tickListenerLock) {
             this.postTickListeners.add(listener);
@@ -296,31 +928,42 @@ public class StandardSimulationClock implements SimulationClock {
     
     @Override
     public void scheduleOperationAtTick(final long tick, final CompletableFuture<Void> endOfOperation) {
-        if (this.shuttingDown) return;
+        // operations without an order key are performed after all operations with an order key
+        this.scheduleOperationAtTick(tick, endOfOperation, Long.MAX_VALUE);
+    }
+    
+    @Override
+    public void scheduleOperationAtTick(final long tick, final CompletableFuture<Void> endOfOperation, final long orderKey) {
+        if (this.shuttingDown) {
+            // the operation is never performed; threads waiting for its end (e.g. the next operation of the entity)
+            // must not wait forever
+            endOfOperation.cancel(true);
+            return;
+        }
         this.operationBoundaries.add(endOfOperation);
-        final CompletableFuture<Void> startOfOperation = new CompletableFuture<>();
-        this.operationBoundaries.add(startOfOperation);
-        this.registerTickListener(tickNumber -> {
-            if (tickNumber >= tick) {
-                startOfOperation.complete(null);
-                try {
-                    endOfOperation.get();
-                    this.operationBoundaries.remove(endOfOperation);
-                } catch (InterruptedException | ExecutionException e) {
-                    e.printStackTrace();
-                } catch (final CancellationException e) {
-                    //When shutting down this is expected
-                    if (!this.shuttingDown) {
-                        e.printStackTrace();
-                    }
-                }
-                return false;
+        final ScheduledOperation operation;
+        synchronized (this.scheduleLock) {
+            operation = new ScheduledOperation(tick, this.deterministic ? orderKey : 0, this.nextOperationSequenceNumber++, endOfOperation);
+            this.operationBoundaries.add(operation.startOfOperation);
+            this.scheduledOperations.add(operation);
+            if (this.virtualTime || this.deterministic) {
+                this.scheduleLock.notifyAll();
             }
-            return true;
-        });
+        }
+        if (this.shuttingDown) {
+            // shut down while scheduling; the boundaries may have been added after they were cancelled
+            endOfOperation.cancel(true);
+            operation.startOfOperation.cancel(true);
+        }
+        this.beginWaitingForClock(operation.startOfOperation);
         try {
-            startOfOperation.get();
-            this.operationBoundaries.remove(startOfOperation);
+            operation.startOfOperation.get();
+            this.operationBoundaries.remove(operation.startOfOperation);
+            if (operation.batch != null) {
+                StandardSimulationClock.currentBatchedOperation.set(operation);
+            } else {
+                StandardSimulationClock.currentBatchedOperation.remove();
+            }
         } catch (final InterruptedException e) {
             throw new UncheckedInterruptedException(e);
         } catch (final ExecutionException e) {
@@ -339,6 +982,64 @@ public class StandardSimulationClock implements SimulationClock {
         this.scheduleOperationInTicks(1, endOfOperation);
     }
     
+    @Override
+    public void awaitEndOfOperation(final CompletableFuture<Void> endOfOperation) {
+        this.beginWaitingForClock(endOfOperation);
+        endOfOperation.join();
+    }
+    
+    /**
+     * An operation waiting for the tick it is scheduled for.
+     */
+    private static final class ScheduledOperation implements Comparable<ScheduledOperation> {
+        /** The tick the operation is scheduled for. */
+        private final long                    tick;
+        /** The key used to order operations in the same tick in deterministic mode. */
+        private final long                    orderKey;
+        /** The sequence number used to keep the scheduling order for operations in the same tick. */
+        private final long                    sequenceNumber;
+        /** Completed by the clock when the operation may start. */
+        private final CompletableFuture<Void> startOfOperation;
+        /** Completed by the entity when the operation is done. */
+        private final CompletableFuture<Void> endOfOperation;
+        
+        /** The operations released together with this operation that have to commit in order; may be null. */
+        private List<ScheduledOperation> batch;
+        /** The index of this operation in the batch. */
+        private int                      batchIndex;
+        /** Whether all operations before this one in the batch have ended; only accessed by the operation thread. */
+        private boolean                  hasCommitTurn;
+        /** Whether this operation has to wait for the operations before it in the batch to commit. */
+        private boolean                  orderedCommit;
+        /** Whether this operation commits its changes in two phases. */
+        private boolean                  twoPhaseCommit;
+        /** Completed when this operation committed its changes or ended in a two phase commit. */
+        private CompletableFuture<Void>  reachedCommit;
+        /** The changes committed by this operation in a two phase commit; null if there are none (yet). */
+        private Runnable                 changes;
+        /** Completed when the changes of this operation were applied (exceptionally if they were rejected). */
+        private CompletableFuture<Void>  changesApplied;
+        
+        private ScheduledOperation(
+                final long tick, final long orderKey, final long sequenceNumber, final CompletableFuture<Void> endOfOperation
+        ) {
+            this.tick = tick;
+            this.orderKey = orderKey;
+            this.sequenceNumber = sequenceNumber;
+            this.startOfOperation = new CompletableFuture<>();
+            this.endOfOperation = endOfOperation;
+        }
+        
+        @Override
+        public int compareTo(final ScheduledOperation o) {
+            int result = Long.compare(this.tick, o.tick);
+            if (result != 0) return result;
+            result = Long.compare(this.orderKey, o.orderKey);
+            if (result != 0) return result;
+            return Long.compare(this.sequenceNumber, o.sequenceNumber);
+        }
+    }
+    
     /**
      * The interface for a listener listening for simulation clock starts and stops. The listener is only informed when
      * the state change is caused from the public API, not from UI interaction.
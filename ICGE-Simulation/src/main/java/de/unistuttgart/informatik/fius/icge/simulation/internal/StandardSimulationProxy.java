@@ -10,8 +10,10 @@
 package de.unistuttgart.informatik.fius.icge.simulation.internal;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
@@ -24,7 +26,7 @@ import de.unistuttgart.informatik.fius.icge.simulation.inspection.InspectionMana
 import de.unistuttgart.informatik.fius.icge.simulation.internal.StandardSimulationClock.StateChangeListener;
 import de.unistuttgart.informatik.fius.icge.simulation.internal.entity.StandardEntityTypeRegistry;
 import de.unistuttgart.informatik.fius.icge.simulation.internal.playfield.StandardPlayfield;
-import de.unistuttgart.informatik.fius.icge.ui.Drawable;
+import de.unistuttgart.informatik.fius.icge.ui.DrawableDelta;
 import de.unistuttgart.informatik.fius.icge.ui.EntityInspectorEntry;
 import de.unistuttgart.informatik.fius.icge.ui.GameWindow;
 import de.unistuttgart.informatik.fius.icge.ui.SimulationProxy;
@@ -51,6 +53,15 @@ public class StandardSimulationProxy implements SimulationProxy {
             // These values are aproximated by two functions originally by haslersn which where modified by waeltkts
     };
     
+    /**
+     * The types of attribute values which cannot change while they stay equal, so their string does not need to be
+     * computed again.
+     */
+    private static final Set<Class<?>> IMMUTABLE_VALUE_TYPES = Set.of(
+            String.class, Integer.class, Long.class, Short.class, Byte.class, Character.class, Boolean.class, Double.class, Float.class,
+            Position.class
+    );
+    
     // GAME WINDOW
     private GameWindow gameWindow;
     private boolean    stopSimulationWithWindowClose = false;
@@ -66,7 +77,14 @@ public class StandardSimulationProxy implements SimulationProxy {
     private final TaskVerifier                    taskVerifier;
     private final Map<SimulationTreeNode, Entity> simualtionSidebarMap;
     
-    private Entity entityToInspect;
+    private volatile Entity entityToInspect;
+    
+    // VALUES SHOWN BY THE ENTITY INSPECTOR
+    private final Object inspectorLock = new Object();
+    private Entity       inspectedEntity;
+    private List<String> inspectedAttributeNames;
+    private Object[]     inspectedValues;
+    private String[]     inspectedValueStrings;
     
     /**
      * Create a new standard simulation proxy
@@ -108,7 +126,7 @@ public class StandardSimulationProxy implements SimulationProxy {
         });
         
         this.simulationClock.registerPostTickListener(unused -> {
-            updateEntityInspector();
+            refreshEntityInspectorValues();
             return true; // post tick listener could be removed by returning false here
         });
     }
@@ -146,11 +164,11 @@ public class StandardSimulationProxy implements SimulationProxy {
         
         //EntityDrawing
         
-        this.playfield.setDrawablesChangedListener(new Consumer<List<Drawable>>() {
+        this.playfield.setDrawablesChangedListener(new Consumer<List<DrawableDelta>>() {
             @Override
-            public void accept(final List<Drawable> drawables) {
+            public void accept(final List<DrawableDelta> deltas) {
                 if (StandardSimulationProxy.this.gameWindow != null) {
-                    StandardSimulationProxy.this.gameWindow.getPlayfieldDrawer().setDrawables(drawables);
+                    StandardSimulationProxy.this.gameWindow.getPlayfieldDrawer().applyDrawableDeltas(deltas);
                 }
             }
         });
@@ -296,7 +314,7 @@ public class StandardSimulationProxy implements SimulationProxy {
                 System.out.println("Could not create a new entity of type " + typeName + "!");
                 return;
             }
-            this.playfield.addEntity(new Position(x, y), ent);
+            this.playfield.addEntity(Position.of(x, y), ent);
         } catch (final Exception e) {
             System.out.println("Something went wrong while creating new entity.");
             e.printStackTrace();
@@ -305,7 +323,7 @@ public class StandardSimulationProxy implements SimulationProxy {
     
     @Override
     public void clearCell(final int x, final int y) {
-        final List<Entity> toRemove = this.playfield.getEntitiesAt(new Position(x, y));
+        final List<Entity> toRemove = this.playfield.getEntitiesAt(Position.of(x, y));
         
         toRemove.forEach(entity -> {
             try {
@@ -319,16 +337,23 @@ public class StandardSimulationProxy implements SimulationProxy {
     private EntityInspectorEntry[] getEntries(final Entity e) {
         final List<EntityInspectorEntry> result = new ArrayList<>();
         
-        for (final String name : this.inspectionManager.getAttributeNamesOfEntity(e)) {
+        final List<String> attributeNames = this.inspectionManager.getAttributeNamesOfEntity(e);
+        final Object[] values = new Object[attributeNames.size()];
+        final String[] valueStrings = new String[attributeNames.size()];
+        for (int i = 0; i < attributeNames.size(); i++) {
+            final String name = attributeNames.get(i);
             String type = "string";
             if (!this.inspectionManager.isAttributeEditable(e, name)) {
                 type = "readonly_string";
             }
             //TODO: this.inspectionManager.getAttributeType(e, name)
-            final String value = this.inspectionManager.getAttributeValue(e, name).toString();
+            values[i] = this.inspectionManager.getAttributeValue(e, name);
+            valueStrings[i] = String.valueOf(values[i]);
+            final String value = valueStrings[i];
             result.add(new EntityInspectorEntry(name, type, value, newValue -> {
                 this.inspectionManager.setAttributeValue(e, name, newValue);
-                this.playfield.drawEntities();
+                this.playfield.drawInformationChanged(e);
+                this.playfield.sendDrawableDeltas();
                 this.gameWindow.getPlayfieldDrawer().draw(this.simulationClock.getLastRenderTickNumber());
                 this.updateEntityInspector();
             }));
@@ -338,14 +363,66 @@ public class StandardSimulationProxy implements SimulationProxy {
             final String type = "function";
             result.add(new EntityInspectorEntry(name, type, "", unused -> {
                 this.inspectionManager.invokeMethod(e, name);
-                this.playfield.drawEntities();
+                this.playfield.drawInformationChanged(e);
+                this.playfield.sendDrawableDeltas();
                 this.gameWindow.getPlayfieldDrawer().draw(this.simulationClock.getLastRenderTickNumber());
                 this.updateEntityInspector();
             }));
         }
+        
+        synchronized (this.inspectorLock) {
+            this.inspectedEntity = e;
+            this.inspectedAttributeNames = attributeNames;
+            this.inspectedValues = values;
+            this.inspectedValueStrings = valueStrings;
+        }
         return result.toArray(new EntityInspectorEntry[result.size()]);
     }
     
+    /**
+     * Send the values of the inspected entity which changed since they were last shown to the entity inspector.
+     * <p>
+     * Nothing is sent, if no value changed.
+     * </p>
+     */
+    private void refreshEntityInspectorValues() {
+        if (this.gameWindow == null) return;
+        Map<String, String> changedValues = null;
+        synchronized (this.inspectorLock) {
+            final Entity e = this.inspectedEntity;
+            if ((e == null) || (e != this.entityToInspect)) return;
+            for (int i = 0; i < this.inspectedAttributeNames.size(); i++) {
+                final String name = this.inspectedAttributeNames.get(i);
+                final Object value = this.inspectionManager.getAttributeValue(e, name);
+                if (StandardSimulationProxy.isUnchanged(this.inspectedValues[i], value)) {
+                    continue;
+                }
+                this.inspectedValues[i] = value;
+                final String valueString = String.valueOf(value);
+                if (valueString.equals(this.inspectedValueStrings[i])) {
+                    continue;
+                }
+                this.inspectedValueStrings[i] = valueString;
+                if (changedValues == null) {
+                    changedValues = new HashMap<>();
+                }
+                changedValues.put(name, valueString);
+            }
+        }
+        if (changedValues != null) {
+            this.gameWindow.getEntitySidebar().updateEntityInspectorValues(changedValues);
+        }
+    }
+    
+    /**
+     * @return true if the new value is known to be shown like the old value without computing its string
+     */
+    private static boolean isUnchanged(final Object oldValue, final Object newValue) {
+        if (newValue == null) return oldValue == null;
+        if (!newValue.equals(oldValue)) return false;
+        return (newValue instanceof Enum) || StandardSimulationProxy.IMMUTABLE_VALUE_TYPES.contains(newValue.getClass());
+    }
+    
     private void updateEntityInspector() {
         if (this.gameWindow == null) return;
         if (this.entityToInspect == null) return;
@@ -359,6 +436,11 @@ public class StandardSimulationProxy implements SimulationProxy {
         } else {
             this.entityToInspect = this.simualtionSidebarMap.get(node);
         }
+        if (this.entityToInspect == null) {
+            synchronized (this.inspectorLock) {
+                this.inspectedEntity = null;
+            }
+        }
         
         if (this.entityToInspect != null) {
             this.gameWindow.getEntitySidebar().enableEntityInspector();
@@ -0,0 +1,133 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ * 
+ * Copyright (c) 2019 the ICGE project authors.
+ * 
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.actions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.unistuttgart.informatik.fius.icge.simulation.actions.Action;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.ActionLogSink;
+
+
+/**
+ * Hands logged actions to an {@link ActionLogSink} in batches on a background thread.
+ * <p>
+ * Submitting an action only appends it to a queue. The writer thread takes all queued actions at once and writes them
+ * to the sink, so a slow sink leads to larger batches instead of waiting entity operations.
+ * </p>
+ */
+public class BatchingActionLogWriter {
+    
+    private final ActionLogSink sink;
+    
+    private final Object queueLock = new Object();
+    private List<Action> queue     = new ArrayList<>();
+    private boolean      stopped   = false;
+    private Thread       writerThread;
+    
+    /**
+     * Create a new writer for the given sink.
+     * 
+     * @param sink
+     *     the sink to write the actions to
+     */
+    public BatchingActionLogWriter(final ActionLogSink sink) {
+        if (sink == null) throw new IllegalArgumentException("The given sink is null.");
+        this.sink = sink;
+    }
+    
+    /**
+     * @return the sink the actions are written to
+     */
+    public ActionLogSink getSink() {
+        return this.sink;
+    }
+    
+    /**
+     * Queue the given action to be written to the sink.
+     * <p>
+     * Actions submitted after {@link #stop()} are ignored.
+     * </p>
+     * 
+     * @param action
+     *     the action to write
+     */
+    public void submit(final Action action) {
+        synchronized (this.queueLock) {
+            if (this.stopped) return;
+            if (this.writerThread == null) {
+                this.writerThread = new Thread(this::writeBatches, "ActionLogWriter");
+                this.writerThread.setDaemon(true);
+                this.writerThread.start();
+            }
+            this.queue.add(action);
+            if (this.queue.size() == 1) {
+                this.queueLock.notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * Stop this writer and close the sink.
+     * <p>
+     * The actions already submitted are still written before this method returns.
+     * </p>
+     */
+    public void stop() {
+        final Thread thread;
+        synchronized (this.queueLock) {
+            if (this.stopped) return;
+            this.stopped = true;
+            this.queueLock.notifyAll();
+            thread = this.writerThread;
+        }
+        if (thread == null) {
+            this.sink.close();
+            return;
+        }
+        try {
+            thread.join();
+        } catch (@SuppressWarnings("unused") final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void writeBatches() {
+        try {
+            this.writeBatchesUntilStopped();
+        } finally {
+            this.sink.close();
+        }
+    }
+    
+    private void writeBatchesUntilStopped() {
+        while (true) {
+            final List<Action> batch;
+            synchronized (this.queueLock) {
+                while (this.queue.isEmpty()) {
+                    if (this.stopped) return;
+                    try {
+                        this.queueLock.wait();
+                    } catch (@SuppressWarnings("unused") final InterruptedException e) {
+                        return;
+                    }
+                }
+                batch = this.queue;
+                this.queue = new ArrayList<>();
+            }
+            try {
+                this.sink.writeActions(batch);
+            } catch (final RuntimeException e) {
+                // a broken sink must not stop the writer
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,973 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.actions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import de.unistuttgart.informatik.fius.icge.simulation.Playfield;
+import de.unistuttgart.informatik.fius.icge.simulation.Position;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.Action;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.ActionEncoding;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityCollectAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityDespawnAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityDropAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntitySpawnAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityStepAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityTeleportAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityTurnAction;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.CollectableEntity;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
+
+
+/**
+ * An append-only store for actions keeping the properties of the actions in columns of primitive arrays.
+ * <p>
+ * Every logged action is a row. The columns hold the tick, the id of the type, the id of the entity, the from and to
+ * coordinates and the id of an object referenced by the action (the playfield of spawns and despawns, the collected or
+ * dropped entity). The rows are stored in chunks of fixed size, so appending never copies old rows. A tick index (the
+ * highest tick up to every row) allows to find the rows of a range of ticks by binary search.
+ * </p>
+ * <p>
+ * The action objects of the standard entity actions are not kept: queries create new actions from the columns. Only
+ * actions of other types (including subclasses of the standard actions) are kept as objects, in a column which only
+ * exists for chunks containing such actions.
+ * </p>
+ * <p>
+ * Rows are appended under a lock but read without any lock: a row is only visible to readers after all its columns are
+ * written, both by the size and by the rows of its entity.
+ * </p>
+ * <p>
+ * The store can evict old rows to bound its memory use: rows older than a number of ticks, rows exceeding a number of
+ * rows per entity, or rows of types that are not retained at all. Evicted rows are only counted, see
+ * {@link #getCount(Class, boolean)}. Chunks without any remaining row are dropped, and entities without any remaining
+ * row are no longer referenced by the store.
+ * </p>
+ * <p>
+ * A store can be forked (see {@link #fork(Map)}): the fork shares all chunks with the original store and only copies a
+ * chunk once one of the stores changes it.
+ * </p>
+ */
+public class ColumnarActionStore {
+    
+    /** The chunks hold {@code 2^CHUNK_SHIFT} rows each. */
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_SIZE  = 1 << ColumnarActionStore.CHUNK_SHIFT;
+    private static final int CHUNK_MASK  = ColumnarActionStore.CHUNK_SIZE - 1;
+    
+    /** Entity id of actions not caused by an entity and id of missing references. */
+    private static final int NO_ID = -1;
+    
+    /** Flag of rows with from coordinates. */
+    private static final byte HAS_FROM = 1;
+    /** Flag of rows with to coordinates. */
+    private static final byte HAS_TO   = 2;
+    /** Flag of evicted rows. */
+    private static final byte EVICTED  = 4;
+    
+    /** Kind of the types of actions which are kept as objects. */
+    private static final byte KIND_OTHER    = 0;
+    private static final byte KIND_SPAWN    = 1;
+    private static final byte KIND_DESPAWN  = 2;
+    private static final byte KIND_STEP     = 3;
+    private static final byte KIND_TELEPORT = 4;
+    /** The x columns of turns hold the ordinals of the directions and the y columns the ids of the texture handles. */
+    private static final byte KIND_TURN     = 5;
+    private static final byte KIND_COLLECT  = 6;
+    private static final byte KIND_DROP     = 7;
+    
+    private final Object appendLock = new Object();
+    
+    private volatile Chunk[] chunks            = new Chunk[16];
+    /** The highest tick of the rows of every chunk; kept for dropped chunks to allow binary search over chunks. */
+    private volatile long[]  chunkHighestTicks = new long[16];
+    private volatile int     size              = 0;
+    
+    /** The highest tick of all rows so far. */
+    private long          highestTick     = Long.MIN_VALUE;
+    /** The largest difference of a tick to the highest tick of the rows before it; 0 if the ticks never decreased. */
+    private volatile long maxTickLateness = 0;
+    
+    private final List<Class<? extends Action>>         types   = new CopyOnWriteArrayList<>();
+    private final Map<Class<? extends Action>, Integer> typeIds = new ConcurrentHashMap<>();
+    /** The kind of every type id; see {@link #KIND_OTHER}. */
+    private volatile byte[]                             kinds   = new byte[16];
+    
+    /** The rows of the entities which caused actions. */
+    private final Map<Entity, EntityRows> rowsByEntity     = new ConcurrentHashMap<>();
+    /** The entities by their id; null for entities no remaining row refers to. */
+    private volatile Entity[]             entities         = new Entity[16];
+    private int                           entityCount      = 0;
+    /** The ids of the entities any remaining row refers to; only used while holding the append lock. */
+    private final Map<Entity, Integer>    entityIds        = new HashMap<>();
+    /** The number of remaining rows referring to an entity by its id; only used while holding the append lock. */
+    private int[]                         entityReferences = new int[16];
+    
+    /**
+     * The other referenced objects (playfields and texture handles) by their id; these are never removed, as there are
+     * only few of them.
+     */
+    private final List<Object>         referencedObjects   = new CopyOnWriteArrayList<>();
+    private final Map<Object, Integer> referencedObjectIds = new HashMap<>();
+    
+    private final long                         retainedTicks;
+    private final int                          retainedRowsPerEntity;
+    private final Set<Class<? extends Action>> retainedTypes;
+    /** Whether the actions of a type id are retained. */
+    private boolean[]                          retainedTypeIds = new boolean[16];
+    /** The first row which may not be evicted yet by the tick retention. */
+    private int                                firstRowToCheck = 0;
+    
+    /** The number of all actions appended by type id, including evicted ones. */
+    private long[]                    countsByTypeId = new long[16];
+    /** The number of all actions appended by entity and type id, including evicted ones. */
+    private final Map<Entity, long[]> countsByEntity = new WeakHashMap<>();
+    private long                      evictedCount   = 0;
+    
+    /**
+     * Create a new store keeping all rows.
+     */
+    public ColumnarActionStore() {
+        this(Long.MAX_VALUE, Integer.MAX_VALUE, null);
+    }
+    
+    /**
+     * Create a new store evicting rows.
+     *
+     * @param retainedTicks
+     *     the number of ticks to keep the rows of; the rows of older ticks are evicted; {@link Long#MAX_VALUE} to keep
+     *     all ticks
+     * @param retainedRowsPerEntity
+     *     the number of rows to keep of every entity; the oldest rows of an entity are evicted;
+     *     {@link Integer#MAX_VALUE} to keep all rows
+     * @param retainedTypes
+     *     the types of actions (including subclasses) to keep rows of; all other actions are only counted; null to keep
+     *     all types
+     */
+    public ColumnarActionStore(
+            final long retainedTicks, final int retainedRowsPerEntity, final Set<Class<? extends Action>> retainedTypes
+    ) {
+        if (retainedTicks < 0) throw new IllegalArgumentException("The number of retained ticks must not be negative.");
+        if (retainedRowsPerEntity < 1) throw new IllegalArgumentException("The number of retained rows per entity must be at least 1.");
+        this.retainedTicks = retainedTicks;
+        this.retainedRowsPerEntity = retainedRowsPerEntity;
+        this.retainedTypes = retainedTypes == null ? null : Set.copyOf(retainedTypes);
+    }
+    
+    /**
+     * Create a fork of this store.
+     * <p>
+     * The fork contains all rows of this store and uses the same retention policies; rows appended or evicted later
+     * only change one of the stores. The chunks are shared until they are changed, so forking only copies the
+     * references to the chunks and the per entity data.
+     * </p>
+     *
+     * @param copies
+     *     the entities of the fork by the entities of this store; the rows of these entities are found by their copy in
+     *     the fork and the actions of the fork refer to the copy; other entities and the playfields are kept; actions
+     *     kept as objects are not changed and still refer to the original entities
+     * @return the fork
+     */
+    public ColumnarActionStore fork(final Map<Entity, Entity> copies) {
+        final ColumnarActionStore fork = new ColumnarActionStore(this.retainedTicks, this.retainedRowsPerEntity, this.retainedTypes);
+        synchronized (this.appendLock) {
+            for (final Chunk chunk : this.chunks) {
+                if (chunk != null) {
+                    chunk.shared = true;
+                }
+            }
+            fork.chunks = this.chunks.clone();
+            fork.chunkHighestTicks = this.chunkHighestTicks.clone();
+            fork.highestTick = this.highestTick;
+            fork.maxTickLateness = this.maxTickLateness;
+            
+            fork.types.addAll(this.types);
+            fork.typeIds.putAll(this.typeIds);
+            fork.kinds = this.kinds.clone();
+            fork.retainedTypeIds = this.retainedTypeIds.clone();
+            fork.countsByTypeId = this.countsByTypeId.clone();
+            
+            final Entity[] forkEntities = new Entity[this.entities.length];
+            for (int id = 0; id < this.entityCount; id++) {
+                final Entity entity = this.entities[id];
+                if (entity == null) continue;
+                final Entity forkEntity = copies.getOrDefault(entity, entity);
+                forkEntities[id] = forkEntity;
+                fork.entityIds.put(forkEntity, id);
+                final EntityRows entityRows = this.rowsByEntity.get(entity);
+                if (entityRows != null) {
+                    fork.rowsByEntity.put(forkEntity, entityRows.share());
+                }
+            }
+            fork.entities = forkEntities;
+            fork.entityCount = this.entityCount;
+            fork.entityReferences = this.entityReferences.clone();
+            fork.referencedObjects.addAll(this.referencedObjects);
+            fork.referencedObjectIds.putAll(this.referencedObjectIds);
+            for (final Map.Entry<Entity, long[]> counts : this.countsByEntity.entrySet()) {
+                fork.countsByEntity.put(copies.getOrDefault(counts.getKey(), counts.getKey()), counts.getValue().clone());
+            }
+            
+            fork.evictedCount = this.evictedCount;
+            fork.firstRowToCheck = this.firstRowToCheck;
+            fork.size = this.size; // publishes the fork
+        }
+        return fork;
+    }
+    
+    /**
+     * Append the given action as a new row.
+     *
+     * @param action
+     *     the action to append
+     * @return the index of the new row
+     */
+    public int append(final Action action) {
+        if (action == null) throw new IllegalArgumentException("The given action is null.");
+        synchronized (this.appendLock) {
+            final int typeId = this.getTypeId(action.getClass());
+            this.countAppended(action, typeId);
+            if (!this.retainedTypeIds[typeId]) {
+                this.evictedCount++;
+                return -1;
+            }
+            
+            final int row = this.size;
+            final Chunk chunk = this.getChunkForAppend(row);
+            final int i = row & ColumnarActionStore.CHUNK_MASK;
+            
+            final long tick = action.getTickNumber();
+            if (tick < this.highestTick) {
+                // actions created concurrently may be logged slightly out of order
+                this.maxTickLateness = Math.max(this.maxTickLateness, this.highestTick - tick);
+            } else {
+                this.highestTick = tick;
+            }
+            chunk.ticks[i] = tick;
+            chunk.highestTicks[i] = this.highestTick;
+            this.chunkHighestTicks[row >>> ColumnarActionStore.CHUNK_SHIFT] = this.highestTick;
+            chunk.typeIds[i] = typeId;
+            chunk.liveRows++;
+            
+            EntityRows entityRows = null;
+            if (action instanceof EntityAction) {
+                entityRows = this.getEntityRows(((EntityAction) action).getEntity());
+                chunk.entityIds[i] = entityRows.id;
+            } else {
+                chunk.entityIds[i] = ColumnarActionStore.NO_ID;
+            }
+            
+            chunk.flags[i] = this.writeColumns(action, this.kinds[typeId], chunk, i);
+            
+            this.size = row + 1; // publishes the row
+            if (entityRows != null) {
+                // only added after publishing, as the rows of an entity are read without checking the size
+                entityRows.add(row);
+            }
+            
+            while ((entityRows != null) && (entityRows.liveCount > this.retainedRowsPerEntity)) {
+                this.evict(entityRows.getOldestLiveRow());
+            }
+            this.evictOldTicks();
+            return row;
+        }
+    }
+    
+    private void countAppended(final Action action, final int typeId) {
+        this.countsByTypeId[typeId]++;
+        if (action instanceof EntityAction) {
+            final Entity entity = ((EntityAction) action).getEntity();
+            long[] counts = this.countsByEntity.get(entity);
+            if (counts == null) {
+                counts = new long[this.countsByTypeId.length];
+                this.countsByEntity.put(entity, counts);
+            } else if (counts.length <= typeId) {
+                final long[] newCounts = new long[this.countsByTypeId.length];
+                System.arraycopy(counts, 0, newCounts, 0, counts.length);
+                counts = newCounts;
+                this.countsByEntity.put(entity, counts);
+            }
+            counts[typeId]++;
+        }
+    }
+    
+    /**
+     * Evict all rows older than the retained ticks; only called while holding the append lock.
+     */
+    private void evictOldTicks() {
+        if (this.retainedTicks == Long.MAX_VALUE) return;
+        final long oldestRetainedTick = this.highestTick - this.retainedTicks;
+        final int rows = this.size;
+        while (this.firstRowToCheck < rows) {
+            final int row = this.firstRowToCheck;
+            final Chunk chunk = this.chunks[row >>> ColumnarActionStore.CHUNK_SHIFT];
+            if (chunk == null) {
+                // skip the whole dropped chunk
+                this.firstRowToCheck = ((row >>> ColumnarActionStore.CHUNK_SHIFT) + 1) << ColumnarActionStore.CHUNK_SHIFT;
+                continue;
+            }
+            // the highest tick up to the row is only old if the tick of the row is old
+            if (chunk.highestTicks[row & ColumnarActionStore.CHUNK_MASK] >= oldestRetainedTick) return;
+            this.evict(row);
+            this.firstRowToCheck++;
+        }
+    }
+    
+    /**
+     * Evict the given row if it was not evicted yet; only called while holding the append lock.
+     */
+    private void evict(final int row) {
+        final int chunkIndex = row >>> ColumnarActionStore.CHUNK_SHIFT;
+        final Chunk chunk = this.getWritableChunk(this.chunks, chunkIndex);
+        if (chunk == null) return;
+        final int i = row & ColumnarActionStore.CHUNK_MASK;
+        if ((chunk.flags[i] & ColumnarActionStore.EVICTED) != 0) return;
+        chunk.flags[i] |= ColumnarActionStore.EVICTED;
+        if (chunk.otherActions != null) {
+            chunk.otherActions[i] = null;
+        }
+        this.evictedCount++;
+        
+        final int entityId = chunk.entityIds[i];
+        if (entityId != ColumnarActionStore.NO_ID) {
+            final Entity entity = this.entities[entityId];
+            if (this.rowsByEntity.get(entity).evicted(row) == 0) {
+                this.rowsByEntity.remove(entity);
+            }
+            this.releaseEntity(entityId);
+        }
+        final byte kind = this.kinds[chunk.typeIds[i]];
+        if (
+            ((kind == ColumnarActionStore.KIND_COLLECT) || (kind == ColumnarActionStore.KIND_DROP))
+                    && (chunk.referenceIds[i] != ColumnarActionStore.NO_ID)
+        ) {
+            this.releaseEntity(chunk.referenceIds[i]);
+        }
+        
+        chunk.liveRows--;
+        if ((chunk.liveRows == 0) && ((((long) chunkIndex + 1) << ColumnarActionStore.CHUNK_SHIFT) <= this.size)) {
+            // the chunk is full and nothing of it is left
+            this.chunks[chunkIndex] = null;
+        }
+    }
+    
+    private Chunk getChunkForAppend(final int row) {
+        final int chunkIndex = row >>> ColumnarActionStore.CHUNK_SHIFT;
+        Chunk[] currentChunks = this.chunks;
+        if (chunkIndex >= currentChunks.length) {
+            // only the references to the chunks are copied
+            final Chunk[] newChunks = new Chunk[currentChunks.length * 2];
+            System.arraycopy(currentChunks, 0, newChunks, 0, currentChunks.length);
+            final long[] newChunkHighestTicks = new long[newChunks.length];
+            System.arraycopy(this.chunkHighestTicks, 0, newChunkHighestTicks, 0, currentChunks.length);
+            currentChunks = newChunks;
+            this.chunkHighestTicks = newChunkHighestTicks;
+            this.chunks = newChunks;
+        }
+        if ((row & ColumnarActionStore.CHUNK_MASK) == 0) {
+            currentChunks[chunkIndex] = new Chunk();
+            if ((chunkIndex > 0) && (currentChunks[chunkIndex - 1] != null) && (currentChunks[chunkIndex - 1].liveRows == 0)) {
+                // the previous chunk is full now and nothing of it is left
+                currentChunks[chunkIndex - 1] = null;
+            }
+        }
+        return this.getWritableChunk(currentChunks, chunkIndex);
+    }
+    
+    /**
+     * Get a chunk to change, copying it first if it is shared with a fork; only called while holding the append lock.
+     * <p>
+     * Readers may still read the replaced chunk; it contains the same published rows.
+     * </p>
+     */
+    private Chunk getWritableChunk(final Chunk[] currentChunks, final int chunkIndex) {
+        final Chunk chunk = currentChunks[chunkIndex];
+        if ((chunk == null) || !chunk.shared) return chunk;
+        final Chunk copy = new Chunk(chunk);
+        currentChunks[chunkIndex] = copy;
+        return copy;
+    }
+    
+    private int getTypeId(final Class<? extends Action> type) {
+        final Integer id = this.typeIds.get(type);
+        if (id != null) return id;
+        this.types.add(type);
+        final int newId = this.types.size() - 1;
+        if (newId == this.countsByTypeId.length) {
+            final long[] newCounts = new long[newId * 2];
+            System.arraycopy(this.countsByTypeId, 0, newCounts, 0, newId);
+            this.countsByTypeId = newCounts;
+            final boolean[] newRetained = new boolean[newId * 2];
+            System.arraycopy(this.retainedTypeIds, 0, newRetained, 0, newId);
+            this.retainedTypeIds = newRetained;
+            final byte[] newKinds = new byte[newId * 2];
+            System.arraycopy(this.kinds, 0, newKinds, 0, newId);
+            newKinds[newId] = ColumnarActionStore.getKind(type);
+            this.kinds = newKinds;
+        } else {
+            this.kinds[newId] = ColumnarActionStore.getKind(type);
+        }
+        this.retainedTypeIds[newId] = this.isRetainedType(type);
+        this.typeIds.put(type, newId);
+        return newId;
+    }
+    
+    private boolean isRetainedType(final Class<? extends Action> type) {
+        if (this.retainedTypes == null) return true;
+        for (final Class<? extends Action> retainedType : this.retainedTypes) {
+            if (retainedType.isAssignableFrom(type)) return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Get the kind of the given type; only the standard actions themselves are rebuilt from the columns, as subclasses
+     * may hold more properties.
+     */
+    private static byte getKind(final Class<? extends Action> type) {
+        if (type == EntitySpawnAction.class) return ColumnarActionStore.KIND_SPAWN;
+        if (type == EntityDespawnAction.class) return ColumnarActionStore.KIND_DESPAWN;
+        if (type == EntityStepAction.class) return ColumnarActionStore.KIND_STEP;
+        if (type == EntityTeleportAction.class) return ColumnarActionStore.KIND_TELEPORT;
+        if (type == EntityTurnAction.class) return ColumnarActionStore.KIND_TURN;
+        if (type == EntityCollectAction.class) return ColumnarActionStore.KIND_COLLECT;
+        if (type == EntityDropAction.class) return ColumnarActionStore.KIND_DROP;
+        return ColumnarActionStore.KIND_OTHER;
+    }
+    
+    private EntityRows getEntityRows(final Entity entity) {
+        final int entityId = this.referenceEntity(entity);
+        EntityRows entityRows = this.rowsByEntity.get(entity);
+        if (entityRows == null) {
+            entityRows = new EntityRows(entityId);
+            this.rowsByEntity.put(entity, entityRows);
+        }
+        return entityRows;
+    }
+    
+    /**
+     * Count a new row referring to the given entity; only called while holding the append lock.
+     *
+     * @return the id of the entity
+     */
+    private int referenceEntity(final Entity entity) {
+        final Integer id = this.entityIds.get(entity);
+        if (id != null) {
+            this.entityReferences[id]++;
+            return id;
+        }
+        Entity[] currentEntities = this.entities;
+        if (this.entityCount == currentEntities.length) {
+            currentEntities = new Entity[this.entityCount * 2];
+            System.arraycopy(this.entities, 0, currentEntities, 0, this.entityCount);
+            final int[] newReferences = new int[currentEntities.length];
+            System.arraycopy(this.entityReferences, 0, newReferences, 0, this.entityCount);
+            this.entityReferences = newReferences;
+        }
+        final int newId = this.entityCount++;
+        currentEntities[newId] = entity;
+        this.entities = currentEntities;
+        this.entityIds.put(entity, newId);
+        this.entityReferences[newId] = 1;
+        return newId;
+    }
+    
+    /**
+     * Count an evicted row referring to the entity with the given id; only called while holding the append lock.
+     */
+    private void releaseEntity(final int entityId) {
+        if (--this.entityReferences[entityId] == 0) {
+            // nothing of the entity is left, so do not keep it alive
+            this.entityIds.remove(this.entities[entityId]);
+            this.entities[entityId] = null;
+        }
+    }
+    
+    private int getReferencedObjectId(final Object object) {
+        if (object == null) return ColumnarActionStore.NO_ID;
+        final Integer id = this.referencedObjectIds.get(object);
+        if (id != null) return id;
+        this.referencedObjects.add(object);
+        final int newId = this.referencedObjects.size() - 1;
+        this.referencedObjectIds.put(object, newId);
+        return newId;
+    }
+    
+    /**
+     * Write the columns of the given action except the tick, type and entity columns; only called while holding the
+     * append lock.
+     *
+     * @return the flags of the row
+     */
+    private byte writeColumns(final Action action, final byte kind, final Chunk chunk, final int i) {
+        switch (kind) {
+            case KIND_SPAWN:
+                chunk.referenceIds[i] = this.getReferencedObjectId(((EntitySpawnAction) action).getPlayfield());
+                break;
+            case KIND_DESPAWN:
+                chunk.referenceIds[i] = this.getReferencedObjectId(((EntityDespawnAction) action).getPlayfield());
+                break;
+            case KIND_TURN:
+                final EntityTurnAction turn = (EntityTurnAction) action;
+                chunk.fromX[i] = ActionEncoding.encodeDirection(turn.from());
+                chunk.toX[i] = ActionEncoding.encodeDirection(turn.to());
+                chunk.fromY[i] = this.getReferencedObjectId(turn.getFromTextureHandle());
+                chunk.toY[i] = this.getReferencedObjectId(turn.getToTextureHandle());
+                break;
+            case KIND_COLLECT:
+                final Entity collected = ((EntityCollectAction) action).getCollectedEntity();
+                chunk.referenceIds[i] = collected == null ? ColumnarActionStore.NO_ID : this.referenceEntity(collected);
+                break;
+            case KIND_DROP:
+                final Entity dropped = ((EntityDropAction) action).getDroppedEntity();
+                chunk.referenceIds[i] = dropped == null ? ColumnarActionStore.NO_ID : this.referenceEntity(dropped);
+                break;
+            case KIND_OTHER:
+                if (chunk.otherActions == null) {
+                    chunk.otherActions = new Action[ColumnarActionStore.CHUNK_SIZE];
+                }
+                chunk.otherActions[i] = action;
+                return 0;
+            default:
+                break;
+        }
+        final Position from = ActionEncoding.getFromPosition(action);
+        final Position to = ActionEncoding.getToPosition(action);
+        byte flags = 0;
+        if (from != null) {
+            chunk.fromX[i] = from.getX();
+            chunk.fromY[i] = from.getY();
+            flags |= ColumnarActionStore.HAS_FROM;
+        }
+        if (to != null) {
+            chunk.toX[i] = to.getX();
+            chunk.toY[i] = to.getY();
+            flags |= ColumnarActionStore.HAS_TO;
+        }
+        return flags;
+    }
+    
+    /**
+     * Get the action of a row, creating a new action from the columns for the standard actions.
+     *
+     * @return the action or null if the row was evicted
+     */
+    private Action readAction(final Chunk chunk, final int i, final byte kind, final Entity[] currentEntities) {
+        final byte flags = chunk.flags[i];
+        if ((flags & ColumnarActionStore.EVICTED) != 0) return null;
+        if (kind == ColumnarActionStore.KIND_OTHER) return chunk.otherActions == null ? null : chunk.otherActions[i];
+        
+        final long tick = chunk.ticks[i];
+        // a missing entity means that the row was evicted while reading it
+        final Entity entity = currentEntities[chunk.entityIds[i]];
+        if (entity == null) return null;
+        final Position from = (flags & ColumnarActionStore.HAS_FROM) == 0 ? null : new Position(chunk.fromX[i], chunk.fromY[i]);
+        final Position to = (flags & ColumnarActionStore.HAS_TO) == 0 ? null : new Position(chunk.toX[i], chunk.toY[i]);
+        switch (kind) {
+            case KIND_SPAWN:
+                return new EntitySpawnAction(tick, entity, this.getReferencedPlayfield(chunk.referenceIds[i]), to);
+            case KIND_DESPAWN:
+                return new EntityDespawnAction(tick, entity, this.getReferencedPlayfield(chunk.referenceIds[i]));
+            case KIND_STEP:
+                return new EntityStepAction(tick, entity, from, to);
+            case KIND_TELEPORT:
+                return new EntityTeleportAction(tick, entity, from, to);
+            case KIND_TURN:
+                return new EntityTurnAction(
+                        tick, entity, ActionEncoding.decodeDirection(chunk.fromX[i]), ActionEncoding.decodeDirection(chunk.toX[i]), this.getReferencedTextureHandle(chunk.fromY[i]), this.getReferencedTextureHandle(chunk.toY[i])
+                );
+            case KIND_COLLECT:
+            case KIND_DROP:
+                CollectableEntity other = null;
+                if (chunk.referenceIds[i] != ColumnarActionStore.NO_ID) {
+                    other = (CollectableEntity) currentEntities[chunk.referenceIds[i]];
+                    if (other == null) return null;
+                }
+                if (kind == ColumnarActionStore.KIND_COLLECT) return new EntityCollectAction(tick, entity, other, to, from);
+                return new EntityDropAction(tick, entity, other, from, to);
+            default:
+                throw new IllegalStateException("Unknown kind of action: " + kind);
+        }
+    }
+    
+    private Playfield getReferencedPlayfield(final int id) {
+        return id == ColumnarActionStore.NO_ID ? null : (Playfield) this.referencedObjects.get(id);
+    }
+    
+    private String getReferencedTextureHandle(final int id) {
+        return id == ColumnarActionStore.NO_ID ? null : (String) this.referencedObjects.get(id);
+    }
+    
+    /**
+     * Get which type ids match the given type.
+     *
+     * @return an array with an entry for every type id known when called
+     */
+    private boolean[] getMatchingTypeIds(final Class<?> type, final boolean includeSubclasses) {
+        final Object[] knownTypes = this.types.toArray();
+        final boolean[] matching = new boolean[knownTypes.length];
+        for (int typeId = 0; typeId < knownTypes.length; typeId++) {
+            final Class<?> knownType = (Class<?>) knownTypes[typeId];
+            matching[typeId] = includeSubclasses ? type.isAssignableFrom(knownType) : type.equals(knownType);
+        }
+        return matching;
+    }
+    
+    /**
+     * Get the number of all appended actions of the given type, including the evicted ones.
+     *
+     * @param type
+     *     the type of the actions to count
+     * @param includeSubclasses
+     *     whether to include the subclasses of the given type
+     * @return the number of matching actions
+     */
+    public long getCount(final Class<? extends Action> type, final boolean includeSubclasses) {
+        final boolean[] matchingTypeIds = this.getMatchingTypeIds(type, includeSubclasses);
+        long count = 0;
+        synchronized (this.appendLock) {
+            for (int typeId = 0; typeId < matchingTypeIds.length; typeId++) {
+                if (matchingTypeIds[typeId]) {
+                    count += this.countsByTypeId[typeId];
+                }
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Get the number of all appended actions of the given entity and type, including the evicted ones.
+     *
+     * @param entity
+     *     the entity to count the actions of
+     * @param type
+     *     the type of the actions to count
+     * @param includeSubclasses
+     *     whether to include the subclasses of the given type
+     * @return the number of matching actions
+     */
+    public long getCountOfEntity(final Entity entity, final Class<? extends Action> type, final boolean includeSubclasses) {
+        final boolean[] matchingTypeIds = this.getMatchingTypeIds(type, includeSubclasses);
+        long count = 0;
+        synchronized (this.appendLock) {
+            final long[] counts = this.countsByEntity.get(entity);
+            if (counts == null) return 0;
+            for (int typeId = 0; typeId < Math.min(matchingTypeIds.length, counts.length); typeId++) {
+                if (matchingTypeIds[typeId]) {
+                    count += counts[typeId];
+                }
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * @return the number of all evicted actions, including the actions of types that are not retained at all
+     */
+    public long getEvictedCount() {
+        synchronized (this.appendLock) {
+            return this.evictedCount;
+        }
+    }
+    
+    /**
+     * Get the actions of all rows of the given type in the order they were appended.
+     *
+     * @param <T>
+     *     the type to return the actions as
+     * @param type
+     *     the type of the actions to get
+     * @param includeSubclasses
+     *     whether to include the subclasses of the given type
+     * @return the matching actions
+     */
+    public <T extends Action> List<T> getActions(final Class<? extends T> type, final boolean includeSubclasses) {
+        final int rows = this.size;
+        return this.getActionsOfRows(0, rows, Long.MIN_VALUE, Long.MAX_VALUE, type, includeSubclasses);
+    }
+    
+    /**
+     * Get the actions of all rows with a tick between the given ticks in the order they were appended.
+     *
+     * @param <T>
+     *     the type to return the actions as
+     * @param firstTick
+     *     the first tick to include
+     * @param lastTick
+     *     the last tick to include
+     * @param type
+     *     the type of the actions to get
+     * @param includeSubclasses
+     *     whether to include the subclasses of the given type
+     * @return the matching actions
+     */
+    public <T extends Action> List<T> getActionsBetweenTicks(
+            final long firstTick, final long lastTick, final Class<? extends T> type, final boolean includeSubclasses
+    ) {
+        if (firstTick > lastTick) return Collections.emptyList();
+        final int rows = this.size;
+        // rows before the first row with a highest tick of at least firstTick only have smaller ticks
+        final int firstRow = this.findFirstRowWithHighestTickAtLeast(firstTick, 0, rows);
+        // a tick is never smaller than the highest tick before it by more than the lateness
+        final long lateness = this.maxTickLateness;
+        final long lastPossibleHighestTick = (lastTick > (Long.MAX_VALUE - lateness)) ? Long.MAX_VALUE : lastTick + lateness;
+        final int endRow = lastPossibleHighestTick == Long.MAX_VALUE ? rows
+                : this.findFirstRowWithHighestTickAtLeast(lastPossibleHighestTick + 1, firstRow, rows);
+        return this.getActionsOfRows(firstRow, endRow, firstTick, lastTick, type, includeSubclasses);
+    }
+    
+    /**
+     * Binary search on the tick index.
+     *
+     * @return the first row in the given range with a highest tick of at least the given tick or {@code toRow}
+     */
+    private int findFirstRowWithHighestTickAtLeast(final long tick, final int fromRow, final int toRow) {
+        if (fromRow >= toRow) return toRow;
+        // first search the chunk, as single rows can only be read for chunks which were not dropped
+        final long[] currentChunkHighestTicks = this.chunkHighestTicks;
+        int lowChunk = fromRow >>> ColumnarActionStore.CHUNK_SHIFT;
+        int highChunk = (toRow - 1) >>> ColumnarActionStore.CHUNK_SHIFT;
+        while (lowChunk < highChunk) {
+            final int middle = (lowChunk + highChunk) >>> 1;
+            if (currentChunkHighestTicks[middle] < tick) {
+                lowChunk = middle + 1;
+            } else {
+                highChunk = middle;
+            }
+        }
+        int low = Math.max(fromRow, lowChunk << ColumnarActionStore.CHUNK_SHIFT);
+        final Chunk chunk = this.chunks[lowChunk];
+        if (chunk == null) return low; // all rows of the chunk are evicted anyway
+        int high = Math.min(toRow, (lowChunk + 1) << ColumnarActionStore.CHUNK_SHIFT);
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (chunk.highestTicks[middle & ColumnarActionStore.CHUNK_MASK] < tick) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+    
+    private <T extends Action> List<T> getActionsOfRows(
+            final int fromRow, final int toRow, final long firstTick, final long lastTick, final Class<? extends T> type,
+            final boolean includeSubclasses
+    ) {
+        final boolean[] matchingTypeIds = this.getMatchingTypeIds(type, includeSubclasses);
+        final Chunk[] currentChunks = this.chunks;
+        final byte[] currentKinds = this.kinds;
+        final Entity[] currentEntities = this.entities;
+        final List<T> result = new ArrayList<>();
+        for (int row = fromRow; row < toRow; row++) {
+            final Chunk chunk = currentChunks[row >>> ColumnarActionStore.CHUNK_SHIFT];
+            if (chunk == null) {
+                // skip the rest of the dropped chunk
+                row |= ColumnarActionStore.CHUNK_MASK;
+                continue;
+            }
+            final int i = row & ColumnarActionStore.CHUNK_MASK;
+            if (!matchingTypeIds[chunk.typeIds[i]]) continue;
+            final long tick = chunk.ticks[i];
+            if ((tick < firstTick) || (tick > lastTick)) continue;
+            final Action action = this.readAction(chunk, i, currentKinds[chunk.typeIds[i]], currentEntities);
+            if (action != null) {
+                result.add(type.cast(action));
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Get the actions of all rows of the given entity and type in the order they were appended.
+     *
+     * @param <T>
+     *     the type to return the actions as
+     * @param entity
+     *     the entity to get the actions of
+     * @param type
+     *     the type of the actions to get
+     * @param includeSubclasses
+     *     whether to include the subclasses of the given type
+     * @return the matching actions
+     */
+    public <T extends Action> List<T> getActionsOfEntity(
+            final Entity entity, final Class<? extends T> type, final boolean includeSubclasses
+    ) {
+        final EntityRows entityRows = this.rowsByEntity.get(entity);
+        if (entityRows == null) return Collections.emptyList();
+        final int[] rows = entityRows.copyRows();
+        final boolean[] matchingTypeIds = this.getMatchingTypeIds(type, includeSubclasses);
+        final Chunk[] currentChunks = this.chunks;
+        final byte[] currentKinds = this.kinds;
+        final Entity[] currentEntities = this.entities;
+        final List<T> result = new ArrayList<>();
+        for (final int row : rows) {
+            final Chunk chunk = currentChunks[row >>> ColumnarActionStore.CHUNK_SHIFT];
+            if (chunk == null) continue;
+            final int i = row & ColumnarActionStore.CHUNK_MASK;
+            if (!matchingTypeIds[chunk.typeIds[i]]) continue;
+            final Action action = this.readAction(chunk, i, currentKinds[chunk.typeIds[i]], currentEntities);
+            if (action != null) {
+                result.add(type.cast(action));
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * The columns of {@link ColumnarActionStore#CHUNK_SIZE} rows.
+     */
+    private static final class Chunk {
+        private final long[]     ticks;
+        /** The tick index: the highest tick of all rows up to and including the row. */
+        private final long[]     highestTicks;
+        private final int[]      typeIds;
+        private final int[]      entityIds;
+        private final byte[]     flags;
+        private final int[]      fromX;
+        private final int[]      fromY;
+        private final int[]      toX;
+        private final int[]      toY;
+        /**
+         * The playfield or the collected or dropped entity; see
+         * {@link ColumnarActionStore#readAction(Chunk, int, byte, Entity[])}.
+         */
+        private final int[]      referenceIds;
+        /** The actions kept as objects; null until the first such action. */
+        private Action[]         otherActions;
+        /** The number of rows of this chunk which were not evicted; only used while holding the append lock. */
+        private int              liveRows;
+        /** Whether this chunk is shared by forked stores and must be copied before changing it. */
+        private volatile boolean shared;
+        
+        private Chunk() {
+            this.ticks = new long[ColumnarActionStore.CHUNK_SIZE];
+            this.highestTicks = new long[ColumnarActionStore.CHUNK_SIZE];
+            this.typeIds = new int[ColumnarActionStore.CHUNK_SIZE];
+            this.entityIds = new int[ColumnarActionStore.CHUNK_SIZE];
+            this.flags = new byte[ColumnarActionStore.CHUNK_SIZE];
+            this.fromX = new int[ColumnarActionStore.CHUNK_SIZE];
+            this.fromY = new int[ColumnarActionStore.CHUNK_SIZE];
+            this.toX = new int[ColumnarActionStore.CHUNK_SIZE];
+            this.toY = new int[ColumnarActionStore.CHUNK_SIZE];
+            this.referenceIds = new int[ColumnarActionStore.CHUNK_SIZE];
+        }
+        
+        private Chunk(final Chunk chunk) {
+            this.ticks = chunk.ticks.clone();
+            this.highestTicks = chunk.highestTicks.clone();
+            this.typeIds = chunk.typeIds.clone();
+            this.entityIds = chunk.entityIds.clone();
+            this.flags = chunk.flags.clone();
+            this.fromX = chunk.fromX.clone();
+            this.fromY = chunk.fromY.clone();
+            this.toX = chunk.toX.clone();
+            this.toY = chunk.toY.clone();
+            this.referenceIds = chunk.referenceIds.clone();
+            this.otherActions = chunk.otherActions == null ? null : chunk.otherActions.clone();
+            this.liveRows = chunk.liveRows;
+        }
+    }
+    
+    /**
+     * The indices of the rows of a single entity.
+     * <p>
+     * Changed while holding the append lock of the store and the monitor of this object; read while holding the monitor
+     * of this object.
+     * </p>
+     */
+    private static final class EntityRows {
+        
+        private final int id;
+        private int[]     rows      = new int[8];
+        /** The index of the first row in {@link #rows} which was not evicted. */
+        private int       first     = 0;
+        private int       end       = 0;
+        /** The number of rows which were not evicted; only used while holding the append lock. */
+        private int       liveCount = 0;
+        
+        /** Whether {@link #rows} is shared with the rows of a forked store and must be copied before adding rows. */
+        private boolean shared = false;
+        
+        private EntityRows(final int id) {
+            this.id = id;
+        }
+        
+        /**
+         * @return new rows for a forked store sharing the row indices with these rows
+         */
+        private synchronized EntityRows share() {
+            final EntityRows fork = new EntityRows(this.id);
+            fork.rows = this.rows;
+            fork.first = this.first;
+            fork.end = this.end;
+            fork.liveCount = this.liveCount;
+            fork.shared = true;
+            this.shared = true;
+            return fork;
+        }
+        
+        private synchronized void add(final int row) {
+            if (this.shared || (this.end == this.rows.length)) {
+                // drop the evicted rows at the start while growing or copying the shared rows
+                final int[] newRows = new int[Math.max(8, (this.end - this.first) * 2)];
+                System.arraycopy(this.rows, this.first, newRows, 0, this.end - this.first);
+                this.end -= this.first;
+                this.first = 0;
+                this.rows = newRows;
+                this.shared = false;
+            }
+            this.rows[this.end++] = row;
+            this.liveCount++;
+        }
+        
+        /**
+         * Record that a row of this entity was evicted.
+         * <p>
+         * Rows are always evicted oldest first, so the row is either the first row or was already removed from the rows
+         * by {@link #getOldestLiveRow()}.
+         * </p>
+         *
+         * @param row
+         *     the evicted row
+         * @return the number of remaining rows
+         */
+        private synchronized int evicted(final int row) {
+            if ((this.first < this.end) && (this.rows[this.first] == row)) {
+                this.first++;
+            }
+            return --this.liveCount;
+        }
+        
+        /**
+         * Remove the oldest row; it must be evicted by the caller.
+         *
+         * @return the oldest row
+         */
+        private synchronized int getOldestLiveRow() {
+            return this.rows[this.first++];
+        }
+        
+        private synchronized int[] copyRows() {
+            final int[] copy = new int[this.end - this.first];
+            System.arraycopy(this.rows, this.first, copy, 0, copy.length);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ * 
+ * Copyright (c) 2019 the ICGE project authors.
+ * 
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.actions;
+
+import java.util.List;
+
+import de.unistuttgart.informatik.fius.icge.simulation.actions.Action;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.ActionLogSink;
+
+
+/**
+ * An {@link ActionLogSink} printing the description of every action as a line on {@link System#out}.
+ */
+public class ConsoleActionLogSink implements ActionLogSink {
+    
+    @Override
+    public void writeActions(final List<Action> actions) {
+        // print the whole batch at once instead of one line per action
+        final StringBuilder lines = new StringBuilder();
+        for (final Action action : actions) {
+            lines.append(action.getDescription()).append(System.lineSeparator());
+        }
+        System.out.print(lines);
+        System.out.flush();
+    }
+}
@@ -9,83 +9,162 @@
  */
 package de.unistuttgart.informatik.fius.icge.simulation.internal.actions;
 
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
-import de.unistuttgart.informatik.fius.icge.simulation.MultiTypedList;
 import de.unistuttgart.informatik.fius.icge.simulation.actions.Action;
 import de.unistuttgart.informatik.fius.icge.simulation.actions.ActionLog;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.ActionLogSink;
 import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityAction;
 import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
+import de.unistuttgart.informatik.fius.icge.simulation.internal.StandardSimulationClock;
 
 
 /**
  * The standard implementation of {@link ActionLog}.
+ * <p>
+ * The actions are kept in a {@link ColumnarActionStore}, so queries do not need any lock. The store may evict old
+ * actions depending on the retention policies given to the constructor.
+ * </p>
  *
  * @author Tim Neumann
  */
 public class StandardActionLog implements ActionLog {
     
-    private final Object actionsLock       = new Object();
-    private final Object entityActionsLock = new Object();
+    private final ColumnarActionStore actions;
     
-    private final MultiTypedList<Action> actions = new MultiTypedList<>();
+    /** The writer for the sink; null if the actions are not written to any sink. */
+    private final BatchingActionLogWriter sinkWriter;
     
-    private final Map<Entity, MultiTypedList<EntityAction>> entityActions = new HashMap<>();
+    /**
+     * Create a new action log printing all actions to the console.
+     */
+    public StandardActionLog() {
+        this(new ConsoleActionLogSink());
+    }
+    
+    /**
+     * Create a new action log.
+     * 
+     * @param sink
+     *     the sink to write all logged actions to on a background thread; null to not write the actions anywhere
+     */
+    public StandardActionLog(final ActionLogSink sink) {
+        this(sink, Long.MAX_VALUE, Integer.MAX_VALUE, null);
+    }
     
+    /**
+     * Create a new action log evicting old actions.
+     * 
+     * @param sink
+     *     the sink to write all logged actions to on a background thread; null to not write the actions anywhere
+     * @param retainedTicks
+     *     the number of ticks to keep the actions of; {@link Long#MAX_VALUE} to keep the actions of all ticks
+     * @param retainedActionsPerEntity
+     *     the number of actions to keep of every entity; {@link Integer#MAX_VALUE} to keep all actions
+     * @param retainedTypes
+     *     the types of actions (including subclasses) to keep; null to keep all types
+     */
+    public StandardActionLog(
+            final ActionLogSink sink, final long retainedTicks, final int retainedActionsPerEntity,
+            final Set<Class<? extends Action>> retainedTypes
+    ) {
+        this(new ColumnarActionStore(retainedTicks, retainedActionsPerEntity, retainedTypes), sink);
+    }
+    
+    private StandardActionLog(final ColumnarActionStore actions, final ActionLogSink sink) {
+        this.actions = actions;
+        this.sinkWriter = sink == null ? null : new BatchingActionLogWriter(sink);
+    }
+    
+    /**
+     * Create a fork of this action log containing all actions logged so far; see {@link ColumnarActionStore#fork(Map)}.
+     * <p>
+     * The fork does not write its actions to any sink.
+     * </p>
+     * 
+     * @param copies
+     *     the entities of the fork by the entities of this log
+     * @return the fork
+     */
+    public StandardActionLog fork(final Map<Entity, Entity> copies) {
+        return new StandardActionLog(this.actions.fork(copies), null);
+    }
+    
+    /**
+     * Stop writing actions to the sink; the actions logged so far are still written.
+     */
+    public void stopSink() {
+        if (this.sinkWriter != null) {
+            this.sinkWriter.stop();
+        }
+    }
+    
+    /**
+     * The actions are returned in the order they were logged.
+     */
     @Override
     public List<Action> getAllActions() {
-        synchronized (this.actionsLock) {
-            return this.actions.get(Action.class, true);
-        }
+        return this.actions.getActions(Action.class, true);
     }
     
     @Override
     public <T extends Action> List<T> getActionsOfType(final Class<? extends T> type, final boolean includeSubclasses) {
-        synchronized (this.actionsLock) {
-            return this.actions.get(type, includeSubclasses);
-        }
+        if (type == null) throw new IllegalArgumentException("The given type is null.");
+        return this.actions.getActions(type, includeSubclasses);
     }
     
     @Override
     public List<EntityAction> getAllActionsOfEntity(final Entity entity) {
-        synchronized (this.entityActionsLock) {
-            final MultiTypedList<EntityAction> list = this.entityActions.get(entity);
-            if (list == null) return Collections.emptyList();
-            return list.get(EntityAction.class, true);
-        }
+        return this.actions.getActionsOfEntity(entity, EntityAction.class, true);
     }
     
     @Override
     public <T extends EntityAction> List<T> getActionsOfTypeOfEntity(
             final Entity entity, final Class<? extends T> type, final boolean includeSubclasses
     ) {
-        synchronized (this.entityActionsLock) {
-            final MultiTypedList<EntityAction> list = this.entityActions.get(entity);
-            if (list == null) return Collections.emptyList();
-            return list.get(type, includeSubclasses);
-        }
+        if (type == null) throw new IllegalArgumentException("The given type is null.");
+        return this.actions.getActionsOfEntity(entity, type, includeSubclasses);
+    }
+    
+    @Override
+    public List<Action> getActionsBetweenTicks(final long firstTick, final long lastTick) {
+        return this.actions.getActionsBetweenTicks(firstTick, lastTick, Action.class, true);
+    }
+    
+    @Override
+    public <T extends Action> List<T> getActionsOfTypeBetweenTicks(
+            final long firstTick, final long lastTick, final Class<? extends T> type, final boolean includeSubclasses
+    ) {
+        if (type == null) throw new IllegalArgumentException("The given type is null.");
+        return this.actions.getActionsBetweenTicks(firstTick, lastTick, type, includeSubclasses);
+    }
+    
+    @Override
+    public long getActionCount(final Class<? extends Action> type, final boolean includeSubclasses) {
+        if (type == null) throw new IllegalArgumentException("The given type is null.");
+        return this.actions.getCount(type, includeSubclasses);
+    }
+    
+    @Override
+    public long getActionCountOfEntity(final Entity entity, final Class<? extends EntityAction> type, final boolean includeSubclasses) {
+        if (type == null) throw new IllegalArgumentException("The given type is null.");
+        return this.actions.getCountOfEntity(entity, type, includeSubclasses);
+    }
+    
+    @Override
+    public long getEvictedActionCount() {
+        return this.actions.getEvictedCount();
     }
     
     @Override
     public void logAction(final Action actionToLog) {
-        if (actionToLog instanceof EntityAction) {
-            final EntityAction entityAction = ((EntityAction) actionToLog);
-            final Entity entity = entityAction.getEntity();
-            synchronized (this.entityActionsLock) {
-                if (!this.entityActions.containsKey(entity)) {
-                    this.entityActions.put(entity, new MultiTypedList<>());
-                }
-                this.entityActions.get(entity).add(entityAction);
-            }
-        }
-        synchronized (this.actionsLock) {
-            this.actions.add(actionToLog);
+        StandardSimulationClock.awaitCommitTurn();
+        this.actions.append(actionToLog);
+        if (this.sinkWriter != null) {
+            this.sinkWriter.submit(actionToLog);
         }
-        // TODO make it possible to turn off actions logging to console
-        System.out.println(actionToLog.getDescription());
     }
     
 }
@@ -0,0 +1,404 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.entity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.UUID;
+import java.util.function.Function;
+
+import de.unistuttgart.informatik.fius.icge.simulation.Position;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.BasicEntity;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.Inventory;
+import de.unistuttgart.informatik.fius.icge.ui.Drawable;
+
+
+/**
+ * Copies the entities of a simulation for a fork; see
+ * {@link de.unistuttgart.informatik.fius.icge.simulation.Simulation#fork() Simulation.fork()}.
+ * <p>
+ * Every entity is copied once with {@link Entity#copyForFork(Function)}, so entities referencing each other reference
+ * the copies of each other in the fork. The fields of an entity are copied deeply:
+ * </p>
+ * <ul>
+ * <li>Referenced entities are replaced by their copies.</li>
+ * <li>Immutable values (e.g. strings, boxed primitives, enums, positions and drawables) and lambdas are kept.</li>
+ * <li>Arrays, collections and maps are copied with copies of their elements.</li>
+ * <li>Other objects are copied field by field if their package is open to the simulation (like for the inspection);
+ * otherwise they are copied by serialization.</li>
+ * </ul>
+ * <p>
+ * An object referenced several times is copied once, so the copies reference the same copy. Objects which cannot be
+ * copied this way cause an {@link UnsupportedOperationException}; the entity has to override
+ * {@link Entity#copyForFork(Function)} to copy them.
+ * </p>
+ */
+public final class EntityForkCopier implements Function<Entity, Entity> {
+    
+    /** The copies of the entities by the entity; null if the copies are created by {@link #entityCopies}. */
+    private final Map<Entity, Entity>      copies;
+    /** The function creating the copies of the entities; null if this copier creates them. */
+    private final Function<Entity, Entity> entityCopies;
+    /** The copies of all other objects by the object. */
+    private final Map<Object, Object>      copiedObjects = new IdentityHashMap<>();
+    
+    /**
+     * Create a new copier for a fork.
+     *
+     * @param copies
+     *     The map to put the copies of the entities into, with the copied entities as keys; should be an
+     *     {@link IdentityHashMap}
+     */
+    public EntityForkCopier(final Map<Entity, Entity> copies) {
+        if (copies == null) throw new IllegalArgumentException("The given map is null.");
+        this.copies = copies;
+        this.entityCopies = null;
+    }
+    
+    private EntityForkCopier(final Function<Entity, Entity> entityCopies) {
+        this.copies = null;
+        this.entityCopies = entityCopies;
+    }
+    
+    /**
+     * Get the copier used by the given function returning the copies of the entities.
+     */
+    private static EntityForkCopier of(final Function<Entity, Entity> copyOf) {
+        if (copyOf == null) throw new IllegalArgumentException("The given function is null.");
+        if (copyOf instanceof EntityForkCopier) return (EntityForkCopier) copyOf;
+        return new EntityForkCopier(copyOf);
+    }
+    
+    /**
+     * Get the copy of the given entity, copying it if it was not copied yet.
+     */
+    @Override
+    public Entity apply(final Entity entity) {
+        if (entity == null) throw new IllegalArgumentException("The given entity is null.");
+        if (this.entityCopies != null) return this.entityCopies.apply(entity);
+        Entity copy = this.copies.get(entity);
+        if (copy == null) {
+            copy = entity.copyForFork(this);
+            this.copies.put(entity, copy);
+        }
+        return copy;
+    }
+    
+    /**
+     * Create a copy of the given entity by creating a new instance of its class and copying all its fields.
+     * <p>
+     * The new instance is created with the constructor without parameters of the class.
+     * </p>
+     *
+     * @param entity
+     *     The entity to copy
+     * @param copyOf
+     *     The function returning the copy of another entity for the same fork
+     * @return the copy
+     * @throws UnsupportedOperationException
+     *     if the entity or one of the objects it references cannot be copied
+     */
+    public static Entity copyEntity(final Entity entity, final Function<Entity, Entity> copyOf) {
+        if (entity == null) throw new IllegalArgumentException("The given entity is null.");
+        final EntityForkCopier copier = EntityForkCopier.of(copyOf);
+        final Entity copy = (Entity) copier.newInstance(entity.getClass());
+        copier.register(entity, copy);
+        copier.copyFields(entity, copy, null);
+        return copy;
+    }
+    
+    /**
+     * Replace the values of the fields declared by the subclasses of {@link BasicEntity} by copies.
+     * <p>
+     * Only the fields declared outside of the package of {@link BasicEntity} are copied; the classes of that package
+     * copy their own fields in their {@link Entity#copyForFork(Function)} method.
+     * </p>
+     *
+     * @param entity
+     *     The copied entity
+     * @param copy
+     *     The copy of the entity; a field by field copy of it
+     * @param copyOf
+     *     The function returning the copy of another entity for the same fork
+     * @throws UnsupportedOperationException
+     *     if one of the objects referenced by the entity cannot be copied
+     */
+    public static void copyFieldsOfSubclasses(final BasicEntity entity, final BasicEntity copy, final Function<Entity, Entity> copyOf) {
+        if ((entity == null) || (copy == null)) throw new IllegalArgumentException("A given entity is null.");
+        final EntityForkCopier copier = EntityForkCopier.of(copyOf);
+        copier.register(entity, copy);
+        copier.copyFields(entity, copy, BasicEntity.class.getPackageName());
+    }
+    
+    /**
+     * Copy the given value for a fork like the fields of an entity.
+     *
+     * @param <T>
+     *     The type of the value
+     * @param value
+     *     The value to copy; may be null
+     * @param copyOf
+     *     The function returning the copy of an entity for the same fork
+     * @return the copy of the value
+     * @throws UnsupportedOperationException
+     *     if the value cannot be copied
+     */
+    public static <T> T copy(final T value, final Function<Entity, Entity> copyOf) {
+        @SuppressWarnings("unchecked")
+        final T copy = (T) EntityForkCopier.of(copyOf).copyValue(value);
+        return copy;
+    }
+    
+    /**
+     * Remember the copy of an entity before its fields are copied, so references back to it get the same copy.
+     */
+    private void register(final Entity entity, final Entity copy) {
+        if (this.copies != null) {
+            this.copies.putIfAbsent(entity, copy);
+        }
+    }
+    
+    /**
+     * Copy all fields of the class of the given object and its superclasses to the given copy.
+     *
+     * @param object
+     *     The object to copy the fields of
+     * @param copy
+     *     The object to set the fields of
+     * @param excludedPackage
+     *     The package whose classes are skipped with all their superclasses; null to copy all fields
+     */
+    private void copyFields(final Object object, final Object copy, final String excludedPackage) {
+        for (Class<?> type = object.getClass(); type != null; type = type.getSuperclass()) {
+            if (type.getPackageName().equals(excludedPackage)) return;
+            for (final Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                EntityForkCopier.makeAccessible(field);
+                try {
+                    final Object value = field.get(object);
+                    // primitives and synthetic fields (e.g. the reference to the enclosing object) are kept
+                    final boolean keep = field.getType().isPrimitive() || field.isSynthetic();
+                    field.set(copy, keep ? value : this.copyValue(value));
+                } catch (final IllegalAccessException e) {
+                    throw new UnsupportedOperationException("Cannot copy the field " + field + " for a fork.", e);
+                }
+            }
+        }
+    }
+    
+    private static void makeAccessible(final Field field) {
+        try {
+            field.setAccessible(true);
+        } catch (final RuntimeException e) {
+            throw new UnsupportedOperationException(
+                    "Cannot copy the field " + field + " for a fork; its package must be open to the simulation.", e
+            );
+        }
+    }
+    
+    /**
+     * Copy a value of a field.
+     */
+    private Object copyValue(final Object value) {
+        if (value == null) return null;
+        if (value instanceof Entity) return this.apply((Entity) value);
+        if (EntityForkCopier.isImmutable(value)) return value;
+        final Object copied = this.copiedObjects.get(value);
+        if (copied != null) return copied;
+        
+        final Class<?> type = value.getClass();
+        if (type.isArray()) return this.copyArray(value);
+        if (value instanceof Inventory) {
+            final Inventory copy = ((Inventory) value).copyForFork(this);
+            this.copiedObjects.put(value, copy);
+            return copy;
+        }
+        if (EntityForkCopier.isOpen(type)) {
+            final Object copy = this.newInstance(type);
+            this.copiedObjects.put(value, copy);
+            this.copyFields(value, copy, null);
+            return copy;
+        }
+        if (value instanceof Collection) return this.copyCollection((Collection<?>) value);
+        if (value instanceof Map) return this.copyMap((Map<?, ?>) value);
+        if (value instanceof Serializable) return this.copySerialized(value);
+        throw new UnsupportedOperationException(
+                "Cannot copy an object of " + type + " for a fork; override copyForFork of the entity referencing it."
+        );
+    }
+    
+    private static boolean isImmutable(final Object value) {
+        return (value instanceof String) || (value instanceof Boolean) || (value instanceof Character) || (value instanceof Byte)
+                || (value instanceof Short) || (value instanceof Integer) || (value instanceof Long) || (value instanceof Float)
+                || (value instanceof Double) || (value instanceof BigInteger) || (value instanceof BigDecimal) || (value instanceof Enum)
+                || (value instanceof Class) || (value instanceof UUID) || (value instanceof Position) || (value instanceof Drawable)
+                || value.getClass().isSynthetic();
+    }
+    
+    /**
+     * Check whether the fields of the given class and all its superclasses can be accessed by reflection.
+     */
+    private static boolean isOpen(final Class<?> type) {
+        final Module module = EntityForkCopier.class.getModule();
+        for (Class<?> current = type; current != Object.class; current = current.getSuperclass()) {
+            if (!current.getModule().isOpen(current.getPackageName(), module)) return false;
+        }
+        return true;
+    }
+    
+    private Object newInstance(final Class<?> type) {
+        try {
+            final Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor.newInstance();
+        } catch (final NoSuchMethodException e) {
+            throw new UnsupportedOperationException(
+                    "Cannot copy an object of " + type + " for a fork, as it has no constructor without parameters.", e
+            );
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException | RuntimeException e) {
+            throw new UnsupportedOperationException("Cannot create a copy of an object of " + type + " for a fork.", e);
+        }
+    }
+    
+    private Object copyArray(final Object array) {
+        final int length = Array.getLength(array);
+        final Class<?> componentType = array.getClass().getComponentType();
+        final Object copy = Array.newInstance(componentType, length);
+        this.copiedObjects.put(array, copy);
+        if (componentType.isPrimitive()) {
+            System.arraycopy(array, 0, copy, 0, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                Array.set(copy, i, this.copyValue(Array.get(array, i)));
+            }
+        }
+        return copy;
+    }
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Object copyCollection(final Collection<?> collection) {
+        final Collection<Object> copy;
+        if (collection instanceof EnumSet) {
+            // the elements of an enum set are enums, so they are kept
+            copy = ((EnumSet) collection).clone();
+            this.copiedObjects.put(collection, copy);
+            return copy;
+        }
+        Object instance = null;
+        if (collection instanceof SortedSet) {
+            instance = EntityForkCopier.newInstance(collection.getClass(), ((SortedSet<?>) collection).comparator());
+        } else if (collection instanceof PriorityQueue) {
+            instance = EntityForkCopier.newInstance(collection.getClass(), ((PriorityQueue<?>) collection).comparator());
+        } else {
+            instance = EntityForkCopier.newInstance(collection.getClass(), null);
+        }
+        if (instance != null) {
+            copy = (Collection<Object>) instance;
+        } else if (collection instanceof List) {
+            copy = new ArrayList<>(collection.size());
+        } else if (collection instanceof Set) {
+            copy = new LinkedHashSet<>();
+        } else {
+            copy = new ArrayList<>(collection.size());
+        }
+        this.copiedObjects.put(collection, copy);
+        for (final Object element : collection) {
+            copy.add(this.copyValue(element));
+        }
+        return copy;
+    }
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Object copyMap(final Map<?, ?> map) {
+        final Map<Object, Object> copy;
+        Object instance = null;
+        if (map instanceof EnumMap) {
+            instance = new EnumMap((EnumMap) map);
+            ((EnumMap) instance).clear();
+        } else if (map instanceof SortedMap) {
+            instance = EntityForkCopier.newInstance(map.getClass(), ((SortedMap<?, ?>) map).comparator());
+        } else {
+            instance = EntityForkCopier.newInstance(map.getClass(), null);
+        }
+        copy = instance != null ? (Map<Object, Object>) instance : new LinkedHashMap<>();
+        this.copiedObjects.put(map, copy);
+        for (final Map.Entry<?, ?> entry : map.entrySet()) {
+            copy.put(this.copyValue(entry.getKey()), this.copyValue(entry.getValue()));
+        }
+        return copy;
+    }
+    
+    /**
+     * Create an empty instance of a public collection or map class with its public constructor.
+     *
+     * @param type
+     *     The class
+     * @param comparator
+     *     The comparator to pass to the constructor; null to use the constructor without parameters
+     * @return the instance or null if the class has no such public constructor
+     */
+    private static Object newInstance(final Class<?> type, final Comparator<?> comparator) {
+        if (!Modifier.isPublic(type.getModifiers())) return null;
+        try {
+            if (comparator == null) return type.getConstructor().newInstance();
+            return type.getConstructor(Comparator.class).newInstance(comparator);
+        } catch (
+            @SuppressWarnings(
+                "unused"
+            ) NoSuchMethodException | InstantiationException | IllegalAccessException | InvocationTargetException e
+        ) {
+            return null;
+        }
+    }
+    
+    private Object copySerialized(final Object value) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        } catch (final IOException e) {
+            throw new UnsupportedOperationException("Cannot copy an object of " + value.getClass() + " for a fork.", e);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            final Object copy = in.readObject();
+            this.copiedObjects.put(value, copy);
+            return copy;
+        } catch (IOException | ClassNotFoundException e) {
+            throw new UnsupportedOperationException("Cannot copy an object of " + value.getClass() + " for a fork.", e);
+        }
+    }
+}
@@ -33,6 +33,26 @@ public class StandardEntityTypeRegistry implements EntityTypeRegistry {
     
     private EntityRegisteredListener entityRegisteredListener;
     
+    /**
+     * Create a new empty registry.
+     */
+    public StandardEntityTypeRegistry() {
+        // nothing registered yet
+    }
+    
+    /**
+     * Create a new registry containing all entity types of the given registry, e.g. for a fork of the simulation.
+     * 
+     * @param registry
+     *     the registry to copy the entity types of
+     */
+    public StandardEntityTypeRegistry(final StandardEntityTypeRegistry registry) {
+        synchronized (registry) {
+            this.typeToEntityFactory.putAll(registry.typeToEntityFactory);
+            this.typeToTextureHandle.putAll(registry.typeToTextureHandle);
+        }
+    }
+    
     @Override
     public void registerEntityType(final String typeName, final String textureHandle, final Class<? extends Entity> entityType) {
         if (entityType == null) throw new IllegalArgumentException("Entity type class object cannot be null!");
@@ -0,0 +1,240 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ * 
+ * Copyright (c) 2019 the ICGE project authors.
+ * 
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.inspection;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+
+/**
+ * The index of inspectable members written by the {@link InspectionIndexProcessor}.
+ * <p>
+ * Every line of an index names a field or method with an inspection annotation: {@code <class>\tfield\t<name>} or
+ * {@code <class>\tmethod\t<name>\t<comma separated parameter types>}, using the names of {@link Class#getName()}. The
+ * members of indexed classes are looked up directly; the members of classes not in an index (e.g. because they were
+ * compiled without the processor) are found by reflection like
+ * {@link de.unistuttgart.informatik.fius.icge.simulation.inspection.AnnotationReader AnnotationReader} does. The index
+ * also defines the names of the attributes of annotated getters and setters, see
+ * {@link #getAttributeName(String, String)}.
+ * </p>
+ */
+public final class InspectionIndex {
+    
+    /** The name of the index resource. */
+    public static final String RESOURCE = "META-INF/icge/inspection-index";
+    
+    /** The kind of an indexed field. */
+    public static final String FIELD  = "field";
+    /** The kind of an indexed method. */
+    public static final String METHOD = "method";
+    
+    private static final Map<String, Class<?>> primitiveTypes = new HashMap<>();
+    static {
+        for (
+            final Class<?> type : new Class<?>[] { Integer.TYPE, Long.TYPE, Character.TYPE, Byte.TYPE, Float.TYPE, Double.TYPE, Short.TYPE,
+                    Boolean.TYPE }
+        ) {
+            InspectionIndex.primitiveTypes.put(type.getName(), type);
+        }
+    }
+    
+    /** The index lines by class name of every class loader; loaded when first needed. */
+    private static final Map<ClassLoader, Map<String, List<String[]>>> indexOfClassLoader = new WeakHashMap<>();
+    
+    private InspectionIndex() {
+        //hide constructor
+    }
+    
+    /**
+     * Load the indices visible to the given class loader unless they are already loaded.
+     * 
+     * @param loader
+     *     the class loader; may be null for the bootstrap class loader
+     * @return the index lines by class name
+     */
+    public static synchronized Map<String, List<String[]>> load(final ClassLoader loader) {
+        if (loader == null) return Map.of();
+        Map<String, List<String[]>> index = InspectionIndex.indexOfClassLoader.get(loader);
+        if (index != null) return index;
+        
+        index = new HashMap<>();
+        try {
+            final Enumeration<URL> resources = loader.getResources(InspectionIndex.RESOURCE);
+            while (resources.hasMoreElements()) {
+                InspectionIndex.read(resources.nextElement(), index);
+            }
+        } catch (final IOException e) {
+            // the members of the classes not read are found by reflection
+            e.printStackTrace();
+        }
+        InspectionIndex.indexOfClassLoader.put(loader, index);
+        return index;
+    }
+    
+    private static void read(final URL resource, final Map<String, List<String[]>> index) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.openStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                final String[] columns = line.split("\t", -1);
+                index.computeIfAbsent(columns[0], name -> new ArrayList<>()).add(columns);
+            }
+        }
+    }
+    
+    /**
+     * Get the name of the attribute of a getter or setter annotated without a name.
+     * <p>
+     * The name is the name of the method without the given prefix and with a lower case first letter; names not
+     * starting with the prefix are kept.
+     * </p>
+     * 
+     * @param methodName
+     *     the name of the getter or setter
+     * @param prefix
+     *     the prefix to remove: {@code "get"} for getters and {@code "set"} for setters; it is matched ignoring case
+     * @return the name of the attribute
+     */
+    public static String getAttributeName(final String methodName, final String prefix) {
+        if (!methodName.toLowerCase().startsWith(prefix) || (methodName.length() == prefix.length())) return methodName;
+        final String name = methodName.substring(prefix.length());
+        return name.substring(0, 1).toLowerCase() + name.substring(1);
+    }
+    
+    /**
+     * Get all methods with the given annotation in the given class and all parent classes.
+     * 
+     * @param cls
+     *     The class to get the methods from
+     * @param annotation
+     *     The type of annotation all returned methods need to have.
+     * @return A list of methods with the given annotation, in the same order as
+     *     {@link de.unistuttgart.informatik.fius.icge.simulation.inspection.AnnotationReader#getAllMethodsWithAnnotationRecursively}
+     */
+    public static List<Method> getAllMethodsWithAnnotation(final Class<?> cls, final Class<? extends Annotation> annotation) {
+        final List<Method> result = new ArrayList<>();
+        for (Class<?> current = cls; current != null; current = current.getSuperclass()) {
+            final List<Method> indexed = InspectionIndex.getIndexedMethods(current);
+            if (indexed == null) {
+                for (final Method m : current.getDeclaredMethods()) {
+                    if (m.isAnnotationPresent(annotation)) {
+                        result.add(m);
+                    }
+                }
+                continue;
+            }
+            for (final Method m : indexed) {
+                if (m.isAnnotationPresent(annotation)) {
+                    result.add(m);
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Get all fields with the given annotation in the given class and all parent classes.
+     * 
+     * @param cls
+     *     The class to get the fields from
+     * @param annotation
+     *     The type of annotation all returned fields need to have.
+     * @return A list of fields with the given annotation, in the same order as
+     *     {@link de.unistuttgart.informatik.fius.icge.simulation.inspection.AnnotationReader#getAllAttributesWithAnnotationRecursively}
+     */
+    public static List<Field> getAllFieldsWithAnnotation(final Class<?> cls, final Class<? extends Annotation> annotation) {
+        final List<Field> result = new ArrayList<>();
+        for (Class<?> current = cls; current != null; current = current.getSuperclass()) {
+            final List<Field> indexed = InspectionIndex.getIndexedFields(current);
+            if (indexed == null) {
+                for (final Field f : current.getDeclaredFields()) {
+                    if (f.isAnnotationPresent(annotation)) {
+                        result.add(f);
+                    }
+                }
+                continue;
+            }
+            for (final Field f : indexed) {
+                if (f.isAnnotationPresent(annotation)) {
+                    result.add(f);
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * @return the indexed methods declared by the given class; null if the class is not indexed or the index does not
+     *     match the class
+     */
+    private static List<Method> getIndexedMethods(final Class<?> cls) {
+        final List<String[]> lines = InspectionIndex.load(cls.getClassLoader()).get(cls.getName());
+        if (lines == null) return null;
+        final List<Method> methods = new ArrayList<>();
+        try {
+            for (final String[] line : lines) {
+                if (!InspectionIndex.METHOD.equals(line[1])) {
+                    continue;
+                }
+                final String[] typeNames = line[3].isEmpty() ? new String[0] : line[3].split(",");
+                final Class<?>[] parameterTypes = new Class<?>[typeNames.length];
+                for (int i = 0; i < typeNames.length; i++) {
+                    parameterTypes[i] = InspectionIndex.getType(typeNames[i], cls.getClassLoader());
+                }
+                methods.add(cls.getDeclaredMethod(line[2], parameterTypes));
+            }
+        } catch (@SuppressWarnings("unused") final ReflectiveOperationException | RuntimeException e) {
+            // the index is outdated; fall back to reflection
+            return null;
+        }
+        return methods;
+    }
+    
+    /**
+     * @return the indexed fields declared by the given class; null if the class is not indexed or the index does not
+     *     match the class
+     */
+    private static List<Field> getIndexedFields(final Class<?> cls) {
+        final List<String[]> lines = InspectionIndex.load(cls.getClassLoader()).get(cls.getName());
+        if (lines == null) return null;
+        final List<Field> fields = new ArrayList<>();
+        try {
+            for (final String[] line : lines) {
+                if (InspectionIndex.FIELD.equals(line[1])) {
+                    fields.add(cls.getDeclaredField(line[2]));
+                }
+            }
+        } catch (@SuppressWarnings("unused") final ReflectiveOperationException | RuntimeException e) {
+            // the index is outdated; fall back to reflection
+            return null;
+        }
+        return fields;
+    }
+    
+    private static Class<?> getType(final String name, final ClassLoader loader) throws ClassNotFoundException {
+        final Class<?> primitive = InspectionIndex.primitiveTypes.get(name);
+        if (primitive != null) return primitive;
+        return Class.forName(name, false, loader);
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ * 
+ * Copyright (c) 2019 the ICGE project authors.
+ * 
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.inspection;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import de.unistuttgart.informatik.fius.icge.simulation.inspection.InspectionAttribute;
+import de.unistuttgart.informatik.fius.icge.simulation.inspection.InspectionMethod;
+
+
+/**
+ * An annotation processor writing the index of inspectable members read by the inspection manager and checking the
+ * getters and setters annotated with {@link InspectionAttribute} at compile time.
+ * <p>
+ * The processor is not registered as a service, so it only runs if a compilation names it explicitly (e.g. with
+ * {@code -processor}) and has this module on its annotation processor path. It reports the same errors for the
+ * annotated methods of a class as the inspection manager would report at runtime: methods which are neither getter nor
+ * setter, setters of read only attributes, setters without a getter and setters whose parameter type does not match the
+ * type of the getter.
+ * </p>
+ */
+@SupportedAnnotationTypes(
+    { "de.unistuttgart.informatik.fius.icge.simulation.inspection.InspectionAttribute",
+            "de.unistuttgart.informatik.fius.icge.simulation.inspection.InspectionMethod" }
+)
+public class InspectionIndexProcessor extends AbstractProcessor {
+    
+    /** The index lines by binary class name; sorted for reproducible builds. */
+    private final Map<String, Set<String>> index = new TreeMap<>();
+    
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+    
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            this.writeIndex();
+            return false;
+        }
+        
+        final Set<TypeElement> classes = new LinkedHashSet<>();
+        for (final Element element : roundEnv.getElementsAnnotatedWith(InspectionAttribute.class)) {
+            classes.add(this.addToIndex(element));
+        }
+        for (final Element element : roundEnv.getElementsAnnotatedWith(InspectionMethod.class)) {
+            classes.add(this.addToIndex(element));
+        }
+        for (final TypeElement cls : classes) {
+            this.checkAttributes(cls);
+        }
+        return false;
+    }
+    
+    private TypeElement addToIndex(final Element element) {
+        final TypeElement cls = (TypeElement) element.getEnclosingElement();
+        final String className = this.processingEnv.getElementUtils().getBinaryName(cls).toString();
+        final String line;
+        if (element.getKind() == ElementKind.FIELD) {
+            line = className + "\t" + InspectionIndex.FIELD + "\t" + element.getSimpleName();
+        } else {
+            final List<String> parameterTypes = new ArrayList<>();
+            for (final VariableElement parameter : ((ExecutableElement) element).getParameters()) {
+                parameterTypes.add(this.getClassName(parameter.asType()));
+            }
+            line = className + "\t" + InspectionIndex.METHOD + "\t" + element.getSimpleName() + "\t" + String.join(",", parameterTypes);
+        }
+        this.index.computeIfAbsent(className, name -> new LinkedHashSet<>()).add(line);
+        return cls;
+    }
+    
+    /**
+     * @return the name of the erasure of the given type as returned by {@link Class#getName()}
+     */
+    private String getClassName(final TypeMirror type) {
+        final TypeMirror erasure = this.processingEnv.getTypeUtils().erasure(type);
+        switch (erasure.getKind()) {
+            case BOOLEAN:
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case CHAR:
+            case FLOAT:
+            case DOUBLE:
+                return erasure.getKind().name().toLowerCase();
+            case ARRAY:
+                return "[" + this.getDescriptor(((ArrayType) erasure).getComponentType());
+            case DECLARED:
+                return this.processingEnv.getElementUtils().getBinaryName((TypeElement) ((DeclaredType) erasure).asElement()).toString();
+            default:
+                return erasure.toString();
+        }
+    }
+    
+    private String getDescriptor(final TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "Z";
+            case BYTE:
+                return "B";
+            case SHORT:
+                return "S";
+            case INT:
+                return "I";
+            case LONG:
+                return "J";
+            case CHAR:
+                return "C";
+            case FLOAT:
+                return "F";
+            case DOUBLE:
+                return "D";
+            case ARRAY:
+                return "[" + this.getDescriptor(((ArrayType) type).getComponentType());
+            default:
+                return "L" + this.getClassName(type) + ";";
+        }
+    }
+    
+    /**
+     * Check the getters and setters of the given class and its super classes like
+     * {@link de.unistuttgart.informatik.fius.icge.simulation.inspection.InspectionData InspectionData} does.
+     */
+    private void checkAttributes(final TypeElement cls) {
+        final Map<String, ExecutableElement> getters = new HashMap<>();
+        final Map<String, ExecutableElement> setters = new HashMap<>();
+        for (TypeElement current = cls; current != null; current = this.getSuperclass(current)) {
+            for (final ExecutableElement method : ElementFilter.methodsIn(current.getEnclosedElements())) {
+                final InspectionAttribute annotation = method.getAnnotation(InspectionAttribute.class);
+                if (annotation == null) {
+                    continue;
+                }
+                final boolean isVoid = method.getReturnType().getKind() == TypeKind.VOID;
+                if (method.getParameters().isEmpty() && !isVoid) {
+                    getters.put(InspectionIndexProcessor.getAttributeName(method, annotation, "get"), method);
+                } else if ((method.getParameters().size() == 1) && isVoid) {
+                    setters.put(InspectionIndexProcessor.getAttributeName(method, annotation, "set"), method);
+                } else {
+                    this.error(cls, method, "Method is neither a getter nor a setter!");
+                }
+            }
+        }
+        
+        for (final Map.Entry<String, ExecutableElement> entry : getters.entrySet()) {
+            final ExecutableElement getter = entry.getValue();
+            final ExecutableElement setter = setters.remove(entry.getKey());
+            if (setter == null) {
+                continue;
+            }
+            if (getter.getAnnotation(InspectionAttribute.class).readOnly()) {
+                this.error(cls, setter, "Getter specifies read only, but setter found!");
+            } else if (!this.processingEnv.getTypeUtils().isSameType(setter.getParameters().get(0).asType(), getter.getReturnType())) {
+                this.error(cls, setter, "Setter parameter type does not match getter return type!");
+            }
+        }
+        for (final ExecutableElement setter : setters.values()) {
+            this.error(cls, setter, "No getter for setter!");
+        }
+    }
+    
+    private TypeElement getSuperclass(final TypeElement cls) {
+        final TypeMirror superclass = cls.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) return null;
+        return (TypeElement) ((DeclaredType) superclass).asElement();
+    }
+    
+    private static String getAttributeName(final ExecutableElement method, final InspectionAttribute annotation, final String prefix) {
+        if (!annotation.name().isEmpty()) return annotation.name();
+        return InspectionIndex.getAttributeName(method.getSimpleName().toString(), prefix);
+    }
+    
+    /**
+     * Report an error at the given method, or at the checked class if the method is inherited from a class which is not
+     * compiled right now.
+     */
+    private void error(final TypeElement cls, final ExecutableElement method, final String message) {
+        if (method.getEnclosingElement().equals(cls)) {
+            this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, method);
+        } else {
+            this.processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.ERROR, message + " (" + method.getEnclosingElement() + "." + method.getSimpleName() + ")", cls
+            );
+        }
+    }
+    
+    private void writeIndex() {
+        if (this.index.isEmpty()) return;
+        try {
+            final FileObject resource = this.processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", InspectionIndex.RESOURCE);
+            try (PrintWriter writer = new PrintWriter(resource.openWriter())) {
+                writer.println("# inspectable members; generated by " + InspectionIndexProcessor.class.getName());
+                for (final Set<String> lines : this.index.values()) {
+                    for (final String line : lines) {
+                        writer.println(line);
+                    }
+                }
+            }
+        } catch (final IOException e) {
+            this.processingEnv.getMessager()
+                    .printMessage(Diagnostic.Kind.WARNING, "Could not write the inspection index: " + e.getMessage());
+        }
+    }
+}
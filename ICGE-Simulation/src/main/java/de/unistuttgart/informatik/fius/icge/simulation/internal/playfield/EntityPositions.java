@@ -0,0 +1,170 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.playfield;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.unistuttgart.informatik.fius.icge.simulation.Position;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
+
+
+/**
+ * The positions of the entities on a playfield, which can be shared with forks of the playfield.
+ * <p>
+ * The positions are kept in layers. A new layer (see {@link #newLayer(Map)}) is put on top of an existing layer, which
+ * must no longer be changed afterwards. Lookups go through the layers from the top to the bottom, so a playfield and
+ * its fork can each continue with their own layer on top of the same frozen layer. The layer of a fork maps its
+ * entities to the entities of the original playfield to look them up in the layers below. Removing an entity found in a
+ * lower layer records the removal in the top layer.
+ * </p>
+ * <p>
+ * Lookups do not lock. Changes of the position of an entity must not run concurrently with other changes of the same
+ * entity.
+ * </p>
+ */
+public class EntityPositions {
+    /** The value recording the removal of an entity which is still in a lower layer. */
+    private static final Object REMOVED = new Object();
+    
+    /** The positions set in this layer, or {@link #REMOVED}. */
+    private final Map<Entity, Object> positions = new ConcurrentHashMap<>();
+    /** The layer below this layer; null for the bottom layer. */
+    private final EntityPositions     below;
+    /** The entities of the layer below by the entities of this layer; null if both layers have the same entities. */
+    private final Map<Entity, Entity> entitiesBelow;
+    /** The number of layers including this layer. */
+    private final int                 layers;
+    
+    /**
+     * Create a new empty bottom layer.
+     */
+    public EntityPositions() {
+        this(null, null);
+    }
+    
+    private EntityPositions(final EntityPositions below, final Map<Entity, Entity> entitiesBelow) {
+        this.below = below;
+        this.entitiesBelow = entitiesBelow;
+        this.layers = below == null ? 1 : below.layers + 1;
+    }
+    
+    /**
+     * Create a new layer on top of this layer; this layer must not be changed afterwards.
+     *
+     * @param entitiesBelow
+     *     the entities of this layer by the entities of the new layer; null if the new layer has the same entities,
+     *     e.g. for the original playfield of a fork
+     * @return the new layer
+     */
+    public EntityPositions newLayer(final Map<Entity, Entity> entitiesBelow) {
+        return new EntityPositions(this, entitiesBelow);
+    }
+    
+    /**
+     * @return the number of layers including this layer
+     */
+    public int getLayers() {
+        return this.layers;
+    }
+    
+    /**
+     * Get the position of the given entity.
+     *
+     * @param entity
+     *     the entity
+     * @return the position or null if the entity is not on the playfield
+     */
+    public Position get(final Entity entity) {
+        Entity key = entity;
+        EntityPositions layer = this;
+        while (true) {
+            final Object position = layer.positions.get(key);
+            if (position != null) return position == EntityPositions.REMOVED ? null : (Position) position;
+            if (layer.below == null) return null;
+            if (layer.entitiesBelow != null) {
+                key = layer.entitiesBelow.get(key);
+                if (key == null) return null;
+            }
+            layer = layer.below;
+        }
+    }
+    
+    private Position getBelow(final Entity entity) {
+        if (this.below == null) return null;
+        if (this.entitiesBelow == null) return this.below.get(entity);
+        final Entity entityBelow = this.entitiesBelow.get(entity);
+        return entityBelow == null ? null : this.below.get(entityBelow);
+    }
+    
+    /**
+     * Check whether the given entity is on the playfield.
+     *
+     * @param entity
+     *     the entity
+     * @return true if the entity has a position
+     */
+    public boolean contains(final Entity entity) {
+        return this.get(entity) != null;
+    }
+    
+    /**
+     * Set the position of an entity which is not on the playfield yet.
+     *
+     * @param entity
+     *     the entity
+     * @param position
+     *     the position
+     * @return true if the position was set; false if the entity already has a position
+     */
+    public boolean putIfAbsent(final Entity entity, final Position position) {
+        while (true) {
+            final Object current = this.positions.get(entity);
+            if (current == null) {
+                if (this.getBelow(entity) != null) return false;
+                if (this.positions.putIfAbsent(entity, position) == null) return true;
+            } else if (current == EntityPositions.REMOVED) {
+                if (this.positions.replace(entity, EntityPositions.REMOVED, position)) return true;
+            } else return false;
+        }
+    }
+    
+    /**
+     * Change the position of an entity on the playfield.
+     *
+     * @param entity
+     *     the entity
+     * @param position
+     *     the new position
+     */
+    public void put(final Entity entity, final Position position) {
+        this.positions.put(entity, position);
+    }
+    
+    /**
+     * Remove the given entity if it has the given position.
+     *
+     * @param entity
+     *     the entity
+     * @param position
+     *     the expected position
+     * @return true if the entity was removed
+     */
+    public boolean remove(final Entity entity, final Position position) {
+        final Object current = this.positions.get(entity);
+        if (current == null) {
+            if (!position.equals(this.getBelow(entity))) return false;
+            return this.positions.putIfAbsent(entity, EntityPositions.REMOVED) == null;
+        }
+        if ((current == EntityPositions.REMOVED) || !position.equals(current)) return false;
+        if (this.getBelow(entity) == null) return this.positions.remove(entity, current);
+        return this.positions.replace(entity, current, EntityPositions.REMOVED);
+    }
+}
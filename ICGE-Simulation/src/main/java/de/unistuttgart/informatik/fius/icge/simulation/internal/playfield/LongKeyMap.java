@@ -0,0 +1,189 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ * 
+ * Copyright (c) 2019 the ICGE project authors.
+ * 
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.playfield;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * A hash map with primitive {@code long} keys, e.g. packed positions (see
+ * {@link de.unistuttgart.informatik.fius.icge.simulation.Position#toKey()}).
+ * <p>
+ * The map uses open addressing with linear probing, so lookups neither box the key nor allocate entries. Null values
+ * are not supported. This class is not thread safe.
+ * </p>
+ *
+ * @param <V>
+ *     The type of the values
+ */
+public class LongKeyMap<V> {
+    private static final int   INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR      = 0.5f;
+    
+    private long[]   keys;
+    private Object[] values;
+    private int      size;
+    private int      mask;
+    
+    /**
+     * Create a new empty map.
+     */
+    public LongKeyMap() {
+        this.allocate(LongKeyMap.INITIAL_CAPACITY);
+    }
+    
+    private void allocate(final int capacity) {
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+    
+    private int indexFor(final long key) {
+        final long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & this.mask;
+    }
+    
+    private int findIndex(final long key) {
+        int index = this.indexFor(key);
+        while (this.values[index] != null) {
+            if (this.keys[index] == key) return index;
+            index = (index + 1) & this.mask;
+        }
+        return -1;
+    }
+    
+    /**
+     * Get the value for the given key.
+     *
+     * @param key
+     *     the key
+     * @return the value or null if there is no value for the key
+     */
+    @SuppressWarnings("unchecked")
+    public V get(final long key) {
+        final int index = this.findIndex(key);
+        return index < 0 ? null : (V) this.values[index];
+    }
+    
+    /**
+     * Set the value for the given key.
+     *
+     * @param key
+     *     the key
+     * @param value
+     *     the value; must not be null
+     * @return the previous value or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(final long key, final V value) {
+        if (value == null) throw new IllegalArgumentException("The given value is null.");
+        int index = this.indexFor(key);
+        while (this.values[index] != null) {
+            if (this.keys[index] == key) {
+                final V oldValue = (V) this.values[index];
+                this.values[index] = value;
+                return oldValue;
+            }
+            index = (index + 1) & this.mask;
+        }
+        this.keys[index] = key;
+        this.values[index] = value;
+        this.size++;
+        if (this.size > (this.values.length * LongKeyMap.LOAD_FACTOR)) {
+            this.resize(this.values.length * 2);
+        }
+        return null;
+    }
+    
+    /**
+     * Remove the value for the given key.
+     *
+     * @param key
+     *     the key
+     * @return the removed value or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(final long key) {
+        int index = this.findIndex(key);
+        if (index < 0) return null;
+        final V oldValue = (V) this.values[index];
+        this.values[index] = null;
+        this.size--;
+        // move following entries of the probe sequence into the gap
+        int next = (index + 1) & this.mask;
+        while (this.values[next] != null) {
+            final int ideal = this.indexFor(this.keys[next]);
+            if (((next - ideal) & this.mask) >= ((next - index) & this.mask)) {
+                this.keys[index] = this.keys[next];
+                this.values[index] = this.values[next];
+                this.values[next] = null;
+                index = next;
+            }
+            next = (next + 1) & this.mask;
+        }
+        return oldValue;
+    }
+    
+    private void resize(final int capacity) {
+        final long[] oldKeys = this.keys;
+        final Object[] oldValues = this.values;
+        this.allocate(capacity);
+        this.size = 0;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                @SuppressWarnings("unchecked")
+                final V value = (V) oldValues[i];
+                this.put(oldKeys[i], value);
+            }
+        }
+    }
+    
+    /**
+     * @return a new map with the same entries as this map
+     */
+    public LongKeyMap<V> copy() {
+        final LongKeyMap<V> copy = new LongKeyMap<>();
+        copy.keys = this.keys.clone();
+        copy.values = this.values.clone();
+        copy.size = this.size;
+        copy.mask = this.mask;
+        return copy;
+    }
+    
+    /**
+     * @return the number of entries in this map
+     */
+    public int size() {
+        return this.size;
+    }
+    
+    /**
+     * @return whether this map is empty
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+    
+    /**
+     * @return a new list containing all values of this map
+     */
+    public List<V> values() {
+        final List<V> result = new ArrayList<>(this.size);
+        for (final Object value : this.values) {
+            if (value != null) {
+                @SuppressWarnings("unchecked")
+                final V typedValue = (V) value;
+                result.add(typedValue);
+            }
+        }
+        return result;
+    }
+}
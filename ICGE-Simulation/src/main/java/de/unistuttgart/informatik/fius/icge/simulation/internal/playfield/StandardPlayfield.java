@@ -11,12 +11,17 @@ package de.unistuttgart.informatik.fius.icge.simulation.internal.playfield;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
+import de.unistuttgart.informatik.fius.icge.simulation.MultiTypedList;
 import de.unistuttgart.informatik.fius.icge.simulation.Playfield;
 import de.unistuttgart.informatik.fius.icge.simulation.Position;
 import de.unistuttgart.informatik.fius.icge.simulation.Simulation;
@@ -28,31 +33,227 @@ import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
 import de.unistuttgart.informatik.fius.icge.simulation.entity.SolidEntity;
 import de.unistuttgart.informatik.fius.icge.simulation.exception.EntityAlreadyOnFieldExcpetion;
 import de.unistuttgart.informatik.fius.icge.simulation.exception.EntityNotOnFieldException;
+import de.unistuttgart.informatik.fius.icge.simulation.exception.IllegalMoveException;
 import de.unistuttgart.informatik.fius.icge.simulation.internal.StandardSimulation;
-import de.unistuttgart.informatik.fius.icge.ui.Drawable;
+import de.unistuttgart.informatik.fius.icge.simulation.internal.StandardSimulationClock;
+import de.unistuttgart.informatik.fius.icge.ui.DrawableDelta;
 import de.unistuttgart.informatik.fius.icge.ui.SimulationTreeNode;
 import de.unistuttgart.informatik.fius.icge.ui.exception.ListenerSetException;
 
 
 /**
  * The standard implementation of {@link Playfield}
+ * <p>
+ * A playfield can be forked (see {@link #fork(Function)}). The playfield and its fork share their cells, type index and
+ * positions until they change them.
+ * </p>
  *
  * @author Tim Neumann
  */
 public class StandardPlayfield implements Playfield {
+    /** The number of lock stripes used by a concurrent playfield. */
+    public static final int CONCURRENT_LOCK_STRIPES = 64;
+    
+    /** The chunks of the spatial index are squares with a side length of {@code 2^CHUNK_SHIFT} cells. */
+    private static final int CHUNK_SHIFT = 4;
+    
+    /** The number of position layers at which forking merges them; see {@link EntityPositions}. */
+    private static final int MAX_POSITION_LAYERS = 8;
+    
     private WeakReference<Simulation> sim;
     
-    private final Object playfieldLock = new Object();
+    /**
+     * The stripes holding the cells; every chunk belongs to exactly one stripe and every stripe is the lock for its
+     * cells. Multiple stripes are always locked in the order of their index.
+     */
+    private final Stripe[]           stripes;
+    /**
+     * The positions of all entities on this playfield; only changed while holding the stripe of the cell the entity is
+     * in, but read without any lock.
+     */
+    private volatile EntityPositions entityPositions = new EntityPositions();
     
-    private final Map<Position, PlayfieldCell> cells           = new HashMap<>();
-    private final Map<Entity, Position>        entityPositions = new HashMap<>();
+    /** Type index: the entities on this playfield by their concrete class, in the order they were added. */
+    private final MultiTypedList<Entity> entitiesByType = new MultiTypedList<>();
     
-    private SimulationTreeNode simualtionTreeRootNode;
+    /**
+     * The token a chunk must have to be changed by this playfield; replaced on every fork, so the chunks shared with
+     * the fork are copied before they are changed.
+     */
+    private Object                    chunkWriteToken = new Object();
+    /** The playfield this playfield is a fork of; null if it is no fork. */
+    private final StandardPlayfield   forkedFrom;
+    /** The copies of the entities of the playfield this playfield is a fork of; null if it is no fork. */
+    private final Map<Entity, Entity> forkCopies;
+    
+    private final Object simulationTreeLock = new Object();
+    
+    private SimulationTreeNode                      simualtionTreeRootNode;
+    /** The node of every entity class in the simulation tree; the parent node of the nodes of its entities. */
+    private final Map<Class<?>, SimulationTreeNode> simulationTreeClassNodes  = new HashMap<>();
+    /** The node of every entity in the simulation tree. */
+    private final Map<Entity, SimulationTreeNode>   simulationTreeEntityNodes = new IdentityHashMap<>();
+    /** The id of the next entity node; entity nodes get ids which are unique in this playfield. */
+    private long                                    nextSimulationTreeEntityId;
     
     private BiConsumer<SimulationTreeNode, Entity> simulationTreeEntityAddedListener;
     private Consumer<SimulationTreeNode>           simulationTreeEntityRemovedListener;
     
-    private Consumer<List<Drawable>> drawablesChangedListener;
+    private Consumer<List<DrawableDelta>> drawablesChangedListener;
+    
+    /**
+     * The entities whose drawables changed since the deltas were last sent, with the kind of the change; only filled
+     * while a drawables changed listener is set.
+     */
+    private Map<Entity, DrawableDelta.Kind> pendingDrawableChanges = new LinkedHashMap<>();
+    private final Object                    drawLock               = new Object();
+    /** Held while sending deltas, so that the listener gets all batches of deltas in order. */
+    private final Object                    drawSendLock           = new Object();
+    
+    /**
+     * Create a new playfield using a single lock.
+     */
+    public StandardPlayfield() {
+        this(1);
+    }
+    
+    /**
+     * Create a new playfield.
+     * <p>
+     * The cells of the playfield are split into the given number of stripes by their chunk. Each stripe has its own
+     * lock, so entities in different stripes can be read and moved in parallel. The positions of entities are always
+     * read without locking.
+     * </p>
+     *
+     * @param lockStripes
+     *     the number of lock stripes; must be a power of two; use 1 for a single lock or
+     *     {@link #CONCURRENT_LOCK_STRIPES} for a concurrent playfield
+     */
+    public StandardPlayfield(final int lockStripes) {
+        this(lockStripes, null, null);
+    }
+    
+    private StandardPlayfield(final int lockStripes, final StandardPlayfield forkedFrom, final Map<Entity, Entity> forkCopies) {
+        if ((lockStripes <= 0) || (Integer.bitCount(lockStripes) != 1)) {
+            throw new IllegalArgumentException("The number of lock stripes must be a power of two.");
+        }
+        this.stripes = new Stripe[lockStripes];
+        for (int i = 0; i < lockStripes; i++) {
+            this.stripes[i] = new Stripe(i);
+        }
+        this.forkedFrom = forkedFrom;
+        this.forkCopies = forkCopies;
+    }
+    
+    /**
+     * Create a fork of this playfield for a fork of its simulation; must be called while holding all locks of this
+     * playfield (see {@link #runExclusively(Runnable)}).
+     * <p>
+     * Every entity on this playfield is copied with the given function. The cells, the type index and the positions are
+     * not copied but shared with the fork. This playfield copies a chunk of cells before it changes it. The fork copies
+     * a chunk of cells when it first uses it and replaces the entities by their copies while doing so. So only copying
+     * the entities themselves takes time linear in their number.
+     * </p>
+     * <p>
+     * The copies are put on the fork by {@link #initForkedEntities()} once the fork is part of a simulation. Their
+     * spawn is not logged again, as the action log of the fork already contains the spawn of the original entities.
+     * They are not added to the simulation tree of the fork.
+     * </p>
+     *
+     * @param copyOf
+     *     the function returning the copy of an entity
+     * @return the fork
+     */
+    public StandardPlayfield fork(final Function<Entity, Entity> copyOf) {
+        if (copyOf == null) throw new IllegalArgumentException("The given function is null.");
+        final List<Entity> entities = this.getAllEntities();
+        final Map<Entity, Entity> copies = new IdentityHashMap<>(entities.size());
+        final Map<Entity, Entity> originals = new IdentityHashMap<>(entities.size());
+        for (final Entity entity : entities) {
+            final Entity copy = copyOf.apply(entity);
+            copies.put(entity, copy);
+            originals.put(copy, entity);
+        }
+        if (this.entityPositions.getLayers() >= StandardPlayfield.MAX_POSITION_LAYERS) {
+            // merge the layers, so looking up a position does not get slower with every fork
+            final EntityPositions merged = new EntityPositions();
+            for (final Entity entity : entities) {
+                merged.put(entity, this.entityPositions.get(entity));
+            }
+            this.entityPositions = merged;
+        }
+        
+        final StandardPlayfield fork = new StandardPlayfield(this.stripes.length, this, copies);
+        this.chunkWriteToken = new Object();
+        for (int i = 0; i < this.stripes.length; i++) {
+            fork.stripes[i].chunks = this.stripes[i].chunks;
+            fork.stripes[i].chunksShared = true;
+            this.stripes[i].chunksShared = true;
+        }
+        final EntityPositions sharedPositions = this.entityPositions;
+        this.entityPositions = sharedPositions.newLayer(null);
+        fork.entityPositions = sharedPositions.newLayer(originals);
+        fork.entitiesByType.shareObjectsOf(this.entitiesByType, copies::get);
+        return fork;
+    }
+    
+    /**
+     * Put the copies of the entities on this fork; see {@link #fork(Function)}.
+     *
+     * @throws IllegalStateException
+     *     if this playfield is no fork
+     */
+    public void initForkedEntities() {
+        if (this.forkCopies == null) throw new IllegalStateException("This playfield is no fork.");
+        for (final Entity entity : this.forkCopies.values()) {
+            entity.initOnPlayfield(this);
+        }
+    }
+    
+    /**
+     * Get the entity of this playfield for an entity in a chunk held by the given playfield.
+     *
+     * @param entity
+     *     the entity in the chunk
+     * @param holder
+     *     this playfield or a playfield this playfield is a (transitive) fork of
+     * @return the entity of this playfield
+     */
+    private Entity getOwnEntity(final Entity entity, final StandardPlayfield holder) {
+        if (holder == this) return entity;
+        return this.forkCopies.get(this.forkedFrom.getOwnEntity(entity, holder));
+    }
+    
+    /**
+     * Run the given runnable while holding all locks of this playfield.
+     * <p>
+     * Other threads can neither read nor change the cells of this playfield in the meantime. The runnable may use all
+     * methods of this playfield.
+     * </p>
+     *
+     * @param runnable
+     *     the runnable to run
+     */
+    public void runExclusively(final Runnable runnable) {
+        this.runWithStripesLocked(0, runnable);
+    }
+    
+    private void runWithStripesLocked(final int firstStripe, final Runnable runnable) {
+        if (firstStripe == this.stripes.length) {
+            runnable.run();
+            return;
+        }
+        synchronized (this.stripes[firstStripe]) {
+            this.runWithStripesLocked(firstStripe + 1, runnable);
+        }
+    }
+    
+    /**
+     * @return the number of lock stripes of this playfield
+     */
+    public int getLockStripes() {
+        return this.stripes.length;
+    }
     
     /**
      * Initialize the playfield for the given simulation
@@ -63,7 +264,7 @@ public class StandardPlayfield implements Playfield {
     public void initialize(final StandardSimulation simulation) {
         this.sim = new WeakReference<>(simulation);
         simulation.getSimulationClock().registerPostTickListener(count -> {
-            this.drawEntities();
+            this.sendDrawableDeltas();
             return true;
         });
         
@@ -83,27 +284,103 @@ public class StandardPlayfield implements Playfield {
     }
     
     /**
-     * Converts all entities to drawables and sends them to the playfield drawer.
+     * Record a change of the drawable of the given entity, to be sent with the next drawable deltas.
+     * <p>
+     * Changes of the same entity are merged, so every entity is part of at most one delta per batch.
+     * </p>
+     *
+     * @param entity
+     *     the entity whose drawable changed
+     * @param kind
+     *     the kind of the change
      */
-    public void drawEntities() {
-        final List<Drawable> drawables = new ArrayList<>();
-        for (final Entity entity : this.getAllEntities()) {
-            try {
-                drawables.add(entity.getDrawInformation());
-            } catch (@SuppressWarnings("unused") final EntityNotOnFieldException e) {
-                //Entity has been removed from the field while this loop was running.
-                //Just don't draw it and ignore the exception.
+    private void recordDrawableChange(final Entity entity, final DrawableDelta.Kind kind) {
+        synchronized (this.drawLock) {
+            //Without a listener nobody would receive the deltas (e.g. in a headless simulation)
+            if (this.drawablesChangedListener == null) return;
+            final DrawableDelta.Kind pendingKind = this.pendingDrawableChanges.get(entity);
+            if (pendingKind == null) {
+                this.pendingDrawableChanges.put(entity, kind);
+            } else if (kind == DrawableDelta.Kind.REMOVED) {
+                if (pendingKind == DrawableDelta.Kind.ADDED) {
+                    // the listener never got the entity
+                    this.pendingDrawableChanges.remove(entity);
+                } else {
+                    this.pendingDrawableChanges.put(entity, kind);
+                }
+            } else if (pendingKind == DrawableDelta.Kind.REMOVED) {
+                // removed and added again, so the listener already has a drawable for it
+                this.pendingDrawableChanges.put(entity, DrawableDelta.Kind.MOVED);
+            } else if ((pendingKind == DrawableDelta.Kind.ANIMATION_STARTED) && (kind == DrawableDelta.Kind.MOVED)) {
+                this.pendingDrawableChanges.put(entity, kind);
             }
+            // otherwise the pending change already sends the current drawable of the entity
         }
-        try {
-            if (this.drawablesChangedListener != null) {
-                this.drawablesChangedListener.accept(drawables);
+    }
+    
+    /**
+     * Send the pending drawable deltas right away, unless the simulation clock is running and sends them after the
+     * current tick anyway.
+     */
+    private void drawEntitiesIfPaused() {
+        final Simulation simulation = this.sim == null ? null : this.sim.get();
+        if ((simulation != null) && simulation.getSimulationClock().isRunning()) return;
+        this.sendDrawableDeltas();
+    }
+    
+    /**
+     * Converts the entities changed since the last call to drawable deltas and sends them to the playfield drawer.
+     * <p>
+     * The work done is proportional to the number of changed entities, not to the number of all entities.
+     * </p>
+     */
+    public void sendDrawableDeltas() {
+        synchronized (this.drawSendLock) {
+            final Consumer<List<DrawableDelta>> listener;
+            final Map<Entity, DrawableDelta.Kind> changes;
+            synchronized (this.drawLock) {
+                listener = this.drawablesChangedListener;
+                if ((listener == null) || this.pendingDrawableChanges.isEmpty()) return;
+                changes = this.pendingDrawableChanges;
+                this.pendingDrawableChanges = new LinkedHashMap<>();
+            }
+            final List<DrawableDelta> deltas = new ArrayList<>(changes.size());
+            for (final Map.Entry<Entity, DrawableDelta.Kind> change : changes.entrySet()) {
+                final Entity entity = change.getKey();
+                if (change.getValue() == DrawableDelta.Kind.REMOVED) {
+                    deltas.add(new DrawableDelta(DrawableDelta.Kind.REMOVED, entity, null));
+                    continue;
+                }
+                try {
+                    deltas.add(new DrawableDelta(change.getValue(), entity, entity.getDrawInformation()));
+                } catch (@SuppressWarnings("unused") final EntityNotOnFieldException e) {
+                    //Entity has been removed from the field while this loop was running.
+                    //The removal is part of the next deltas, so just don't draw it and ignore the exception.
+                }
+            }
+            try {
+                listener.accept(deltas);
+            } catch (@SuppressWarnings("unused") final IllegalStateException e) {
+                //If we are not attached to a simultion we do not need to draw anything
             }
-        } catch (@SuppressWarnings("unused") final IllegalStateException e) {
-            //If we are not attached to a simultion we do not need to draw anything
         }
     }
     
+    /**
+     * Inform this playfield that the draw information of the given entity changed without the entity being moved, e.g.
+     * because it started an animation.
+     *
+     * @param entity
+     *     the entity whose draw information changed
+     */
+    @Override
+    public void drawInformationChanged(final Entity entity) {
+        if (entity == null) throw new IllegalArgumentException("The given entity is null.");
+        if (!this.entityPositions.contains(entity)) return;
+        this.recordDrawableChange(entity, DrawableDelta.Kind.ANIMATION_STARTED);
+        this.drawEntitiesIfPaused();
+    }
+    
     @Override
     public List<Entity> getAllEntities() {
         return this.getAllEntitiesOfType(Entity.class, true);
@@ -113,9 +390,100 @@ public class StandardPlayfield implements Playfield {
     public <T extends Entity> List<T> getAllEntitiesOfType(final Class<? extends T> type, final boolean includeSubclasses) {
         if (type == null) throw new IllegalArgumentException("The given type is null.");
         final List<T> result = new ArrayList<>();
-        synchronized (this.playfieldLock) {
-            for (final PlayfieldCell cell : this.cells.values()) {
-                result.addAll(cell.get(type, includeSubclasses));
+        StandardSimulationClock.awaitCommitTurn();
+        this.entitiesByType.forEach(type, includeSubclasses, result::add);
+        return result;
+    }
+    
+    @Override
+    public List<Entity> getEntitiesInArea(final Position corner1, final Position corner2) {
+        return this.getEntitiesOfTypeInArea(corner1, corner2, Entity.class, true);
+    }
+    
+    @Override
+    public <T extends Entity> List<T> getEntitiesOfTypeInArea(
+            final Position corner1, final Position corner2, final Class<? extends T> type, final boolean includeSubclasses
+    ) {
+        if ((corner1 == null) || (corner2 == null)) throw new IllegalArgumentException("A given corner is null.");
+        if (type == null) throw new IllegalArgumentException("The given type is null.");
+        final int minX = Math.min(corner1.getX(), corner2.getX());
+        final int minY = Math.min(corner1.getY(), corner2.getY());
+        final int maxX = Math.max(corner1.getX(), corner2.getX());
+        final int maxY = Math.max(corner1.getY(), corner2.getY());
+        return this.getEntitiesOfTypeInArea(minX, minY, maxX, maxY, -1, type, includeSubclasses);
+    }
+    
+    @Override
+    public List<Entity> getEntitiesInRadius(final Position center, final int radius) {
+        return this.getEntitiesOfTypeInRadius(center, radius, Entity.class, true);
+    }
+    
+    @Override
+    public <T extends Entity> List<T> getEntitiesOfTypeInRadius(
+            final Position center, final int radius, final Class<? extends T> type, final boolean includeSubclasses
+    ) {
+        if (center == null) throw new IllegalArgumentException("The given center is null.");
+        if (type == null) throw new IllegalArgumentException("The given type is null.");
+        if (radius < 0) throw new IllegalArgumentException("The given radius is negative.");
+        return this.getEntitiesOfTypeInArea(
+                center.getX() - radius, center.getY() - radius, center.getX() + radius, center.getY() + radius, radius, type,
+                includeSubclasses
+        );
+    }
+    
+    /**
+     * Collect the matching entities in the given rectangle using the chunks of the spatial index.
+     *
+     * @param minX
+     *     the smallest x coordinate of the rectangle
+     * @param minY
+     *     the smallest y coordinate of the rectangle
+     * @param maxX
+     *     the largest x coordinate of the rectangle
+     * @param maxY
+     *     the largest y coordinate of the rectangle
+     * @param radius
+     *     if {@code >= 0} only cells within this distance of the center of the rectangle are included
+     * @param type
+     *     the type of the entities to get
+     * @param includeSubclasses
+     *     whether to include the subclasses of the given type
+     * @return the matching entities
+     */
+    private <T extends Entity> List<T> getEntitiesOfTypeInArea(
+            final int minX, final int minY, final int maxX, final int maxY, final int radius, final Class<? extends T> type,
+            final boolean includeSubclasses
+    ) {
+        final List<T> result = new ArrayList<>();
+        final int minChunkX = minX >> StandardPlayfield.CHUNK_SHIFT;
+        final int minChunkY = minY >> StandardPlayfield.CHUNK_SHIFT;
+        final int maxChunkX = maxX >> StandardPlayfield.CHUNK_SHIFT;
+        final int maxChunkY = maxY >> StandardPlayfield.CHUNK_SHIFT;
+        StandardSimulationClock.awaitCommitTurn();
+        final long chunksInArea = (((long) maxChunkX - minChunkX) + 1) * (((long) maxChunkY - minChunkY) + 1);
+        if (chunksInArea > this.getChunkCount()) {
+            // the area is larger than the occupied part of the playfield
+            for (final Stripe stripe : this.stripes) {
+                synchronized (stripe) {
+                    for (final Chunk chunk : stripe.chunks.values()) {
+                        StandardPlayfield.collectEntitiesInArea(
+                                this.getChunk(stripe, chunk.key, false), minX, minY, maxX, maxY, radius, type, includeSubclasses, result
+                        );
+                    }
+                }
+            }
+        } else {
+            for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+                for (int chunkY = minChunkY; chunkY <= maxChunkY; chunkY++) {
+                    final long chunkKey = Position.toKey(chunkX, chunkY);
+                    final Stripe stripe = this.getStripeOfChunk(chunkKey);
+                    synchronized (stripe) {
+                        final Chunk chunk = this.getChunk(stripe, chunkKey, false);
+                        if (chunk != null) {
+                            StandardPlayfield.collectEntitiesInArea(chunk, minX, minY, maxX, maxY, radius, type, includeSubclasses, result);
+                        }
+                    }
+                }
             }
         }
         return result;
@@ -134,36 +502,159 @@ public class StandardPlayfield implements Playfield {
         if (type == null) throw new IllegalArgumentException("The given type is null.");
         if (pos == null) throw new IllegalArgumentException("The given pos is null.");
         final List<T> result = new ArrayList<>();
-        synchronized (this.playfieldLock) {
-            final PlayfieldCell cell = this.cells.get(pos);
-            if ((cell != null) && cell.getPosition().equals(pos)) {
+        StandardSimulationClock.awaitCommitTurn();
+        final Stripe stripe = this.getStripe(pos);
+        synchronized (stripe) {
+            final PlayfieldCell cell = this.getCell(stripe, pos);
+            if (cell != null) {
                 result.addAll(cell.get(type, includeSubclasses));
             }
         }
         return result;
     }
     
-    private void addEntityToCell(final Position pos, final Entity entity) {
-        synchronized (this.playfieldLock) {
-            PlayfieldCell cell = this.cells.get(pos);
-            if (cell == null) {
-                cell = new PlayfieldCell(pos);
-                this.cells.put(pos, cell);
+    private int getChunkCount() {
+        int chunkCount = 0;
+        for (final Stripe stripe : this.stripes) {
+            synchronized (stripe) {
+                chunkCount += stripe.chunks.size();
             }
-            cell.add(entity);
         }
+        return chunkCount;
     }
     
-    private void removeEntityFromCell(final Position pos, final Entity entity) {
-        synchronized (this.playfieldLock) {
-            final PlayfieldCell cell = this.cells.get(pos);
-            if ((cell == null) || !cell.contains(entity)) {
-                // TODO decide if this should throw an Exception
-                return; // cell is already empty...
+    private static <T extends Entity> void collectEntitiesInArea(
+            final Chunk chunk, final int minX, final int minY, final int maxX, final int maxY, final int radius,
+            final Class<? extends T> type, final boolean includeSubclasses, final List<T> result
+    ) {
+        final long centerX = ((long) minX + maxX) / 2;
+        final long centerY = ((long) minY + maxY) / 2;
+        for (final PlayfieldCell cell : chunk.cells.values()) {
+            final int x = cell.getPosition().getX();
+            final int y = cell.getPosition().getY();
+            if ((x < minX) || (x > maxX) || (y < minY) || (y > maxY)) {
+                continue;
             }
-            cell.remove(entity);
-            if (cell.isEmpty()) {
-                this.cells.remove(pos, cell);
+            if (radius >= 0) {
+                final long dx = x - centerX;
+                final long dy = y - centerY;
+                if (((dx * dx) + (dy * dy)) > ((long) radius * radius)) {
+                    continue;
+                }
+            }
+            result.addAll(cell.get(type, includeSubclasses));
+        }
+    }
+    
+    /**
+     * Get the key of the chunk containing the given coordinates.
+     *
+     * @param x
+     *     the x coordinate
+     * @param y
+     *     the y coordinate
+     * @return the chunk key
+     */
+    private static long getChunkKey(final int x, final int y) {
+        // the arithmetic shift rounds down, so negative coordinates get their own chunks
+        return Position.toKey(x >> StandardPlayfield.CHUNK_SHIFT, y >> StandardPlayfield.CHUNK_SHIFT);
+    }
+    
+    private Stripe getStripeOfChunk(final long chunkKey) {
+        final long hash = chunkKey * 0x9E3779B97F4A7C15L;
+        return this.stripes[(int) (hash >>> 32) & (this.stripes.length - 1)];
+    }
+    
+    private Stripe getStripe(final Position pos) {
+        return this.getStripeOfChunk(StandardPlayfield.getChunkKey(pos.getX(), pos.getY()));
+    }
+    
+    /**
+     * Get the chunk with the given key; the caller must hold the stripe of the chunk.
+     * <p>
+     * A chunk holding the entities of the playfield this playfield is a fork of is copied first. A chunk shared with a
+     * fork is copied before it is changed.
+     * </p>
+     *
+     * @param stripe
+     *     the stripe of the chunk
+     * @param chunkKey
+     *     the key of the chunk
+     * @param forChange
+     *     whether the chunk or its cells will be changed
+     * @return the chunk or null if there is no entity in the chunk
+     */
+    private Chunk getChunk(final Stripe stripe, final long chunkKey, final boolean forChange) {
+        final Chunk chunk = stripe.chunks.get(chunkKey);
+        if ((chunk == null) || ((chunk.holder == this) && (!forChange || (chunk.writeToken == this.chunkWriteToken)))) return chunk;
+        
+        final StandardPlayfield holder = chunk.holder;
+        final Function<Entity, Entity> ownEntity = holder == this ? null : entity -> this.getOwnEntity(entity, holder);
+        final Chunk copy = new Chunk(this, this.chunkWriteToken, chunkKey);
+        for (final PlayfieldCell cell : chunk.cells.values()) {
+            final PlayfieldCell cellCopy = new PlayfieldCell(cell.getPosition());
+            cellCopy.shareObjectsOf(cell, ownEntity);
+            copy.cells.put(cell.getPosition().toKey(), cellCopy);
+        }
+        this.getChangeableChunks(stripe).put(chunkKey, copy);
+        return copy;
+    }
+    
+    /**
+     * Get the chunks of the given stripe to change them; the caller must hold the stripe.
+     */
+    private LongKeyMap<Chunk> getChangeableChunks(final Stripe stripe) {
+        if (stripe.chunksShared) {
+            stripe.chunks = stripe.chunks.copy();
+            stripe.chunksShared = false;
+        }
+        return stripe.chunks;
+    }
+    
+    /**
+     * Get the cell at the given position to read it; the caller must hold the stripe of the position.
+     */
+    private PlayfieldCell getCell(final Stripe stripe, final Position pos) {
+        final Chunk chunk = this.getChunk(stripe, StandardPlayfield.getChunkKey(pos.getX(), pos.getY()), false);
+        return chunk == null ? null : chunk.cells.get(pos.toKey());
+    }
+    
+    /**
+     * Add the given entity to the cell at the given position; the caller must hold the stripe of the position.
+     */
+    private void addEntityToCell(final Position pos, final Entity entity) {
+        final Stripe stripe = this.getStripe(pos);
+        final long chunkKey = StandardPlayfield.getChunkKey(pos.getX(), pos.getY());
+        Chunk chunk = this.getChunk(stripe, chunkKey, true);
+        if (chunk == null) {
+            chunk = new Chunk(this, this.chunkWriteToken, chunkKey);
+            this.getChangeableChunks(stripe).put(chunkKey, chunk);
+        }
+        PlayfieldCell cell = chunk.cells.get(pos.toKey());
+        if (cell == null) {
+            cell = new PlayfieldCell(pos);
+            chunk.cells.put(pos.toKey(), cell);
+        }
+        cell.add(entity);
+    }
+    
+    /**
+     * Remove the given entity from the cell at the given position; the caller must hold the stripe of the position.
+     */
+    private void removeEntityFromCell(final Position pos, final Entity entity) {
+        final Stripe stripe = this.getStripe(pos);
+        final long chunkKey = StandardPlayfield.getChunkKey(pos.getX(), pos.getY());
+        final Chunk chunk = this.getChunk(stripe, chunkKey, true);
+        final PlayfieldCell cell = chunk == null ? null : chunk.cells.get(pos.toKey());
+        if ((cell == null) || !cell.contains(entity)) {
+            // TODO decide if this should throw an Exception
+            return; // cell is already empty...
+        }
+        cell.remove(entity);
+        if (cell.isEmpty()) {
+            chunk.cells.remove(pos.toKey());
+            if (chunk.cells.isEmpty()) {
+                this.getChangeableChunks(stripe).remove(chunkKey);
             }
         }
     }
@@ -173,14 +664,14 @@ public class StandardPlayfield implements Playfield {
         if (pos == null) throw new IllegalArgumentException("The given pos is null.");
         if (entity == null) throw new IllegalArgumentException("The given entity is null.");
         
-        synchronized (this.playfieldLock) {
+        StandardSimulationClock.awaitCommitTurn();
+        synchronized (this.getStripe(pos)) {
             if (
-                this.entityPositions.containsKey(entity)
+                !this.entityPositions.putIfAbsent(entity, pos)
             ) throw new EntityAlreadyOnFieldExcpetion("The given entity" + entity + "is already on this playfield.");
             
-            this.entityPositions.put(entity, pos);
-            
             this.addEntityToCell(pos, entity);
+            this.entitiesByType.add(entity);
             
             this.getSimulation().getActionLog()
                     .logAction(new EntitySpawnAction(this.getSimulation().getSimulationClock().getLastTickNumber(), entity, this, pos));
@@ -188,47 +679,43 @@ public class StandardPlayfield implements Playfield {
             entity.initOnPlayfield(this);
             
             this.addEntityToSimulationTree(entity);
-            this.drawEntities();
+            this.recordDrawableChange(entity, DrawableDelta.Kind.ADDED);
         }
+        this.drawEntitiesIfPaused();
     }
     
-    private SimulationTreeNode findNodeForEntity(final Entity entity, final boolean create) {
-        final List<Class<?>> classHiera = new ArrayList<>();
-        {
-            Class<?> clazz = entity.getClass();
-            do {
-                classHiera.add(0, clazz);
-                clazz = clazz.getSuperclass();
-            } while (Entity.class.isAssignableFrom(clazz));
-        }
-        SimulationTreeNode node = this.simualtionTreeRootNode;
-        
-        hieraLoop: for (final Class<?> clazz : classHiera) {
-            for (final SimulationTreeNode child : node.getChildren()) {
-                if (child.getElementId().equals(clazz.getName())) {
-                    node = child;
-                    continue hieraLoop;
-                }
-            }
-            if (create) {
-                //TODO: get texture from EntityTypeRegistry
-                final SimulationTreeNode child = new SimulationTreeNode(clazz.getName(), clazz.getSimpleName(), "", false);
-                node.appendChild(child);
-                node = child;
-            } else return null;
+    /**
+     * Get the node of the given entity class in the simulation tree, creating the nodes of the class and its super
+     * classes if necessary.
+     * <p>
+     * Must be called while holding the simulation tree lock.
+     * </p>
+     */
+    private SimulationTreeNode getClassNode(final Class<?> clazz) {
+        if (!Entity.class.isAssignableFrom(clazz)) return this.simualtionTreeRootNode;
+        SimulationTreeNode node = this.simulationTreeClassNodes.get(clazz);
+        if (node == null) {
+            final SimulationTreeNode parent = this.getClassNode(clazz.getSuperclass());
+            //TODO: get texture from EntityTypeRegistry
+            node = new SimulationTreeNode(clazz.getName(), clazz.getSimpleName(), "", false);
+            parent.appendChild(node);
+            this.simulationTreeClassNodes.put(clazz, node);
         }
         return node;
     }
     
     private void addEntityToSimulationTree(final Entity entity) {
-        final SimulationTreeNode newNode = new SimulationTreeNode(
-                Integer.toHexString(entity.hashCode()), entity.toString(), entity.getDrawInformation().getTextureHandle()
-        );
-        this.findNodeForEntity(entity, true).appendChild(newNode);
-        
-        if (this.simulationTreeEntityAddedListener != null) {
-            // TODO check for bugs with simulation tree when window is reattached or attached late
-            this.simulationTreeEntityAddedListener.accept(newNode, entity);
+        synchronized (this.simulationTreeLock) {
+            final SimulationTreeNode newNode = new SimulationTreeNode(
+                    Long.toHexString(this.nextSimulationTreeEntityId++), entity.toString(), entity.getDrawInformation().getTextureHandle()
+            );
+            this.getClassNode(entity.getClass()).appendChild(newNode);
+            this.simulationTreeEntityNodes.put(entity, newNode);
+            
+            if (this.simulationTreeEntityAddedListener != null) {
+                // TODO check for bugs with simulation tree when window is reattached or attached late
+                this.simulationTreeEntityAddedListener.accept(newNode, entity);
+            }
         }
     }
     
@@ -239,52 +726,79 @@ public class StandardPlayfield implements Playfield {
     
     @Override
     public void moveEntity(final Entity entity, final Position pos, final EntityMoveAction action) {
+        this.moveEntity(entity, pos, action, false);
+    }
+    
+    /**
+     * The check for a solid entity holds the stripes of both positions until the entity is moved, so no solid entity
+     * can be moved to the position in between, even if operations are released concurrently without a two-phase commit.
+     */
+    @Override
+    public void moveEntityUnlessSolid(final Entity entity, final Position pos, final EntityMoveAction action) {
+        this.moveEntity(entity, pos, action, true);
+    }
+    
+    private void moveEntity(final Entity entity, final Position pos, final EntityMoveAction action, final boolean unlessSolid) {
         if (pos == null) throw new IllegalArgumentException("The given pos is null.");
         if (entity == null) throw new IllegalArgumentException("The given entity is null.");
         
-        synchronized (this.playfieldLock) {
-            if (
-                !this.entityPositions.containsKey(entity)
-            ) throw new EntityNotOnFieldException("The given entity" + entity + "is not on this playfield.");
-            
-            EntityMoveAction actionToLog = action;
-            
+        StandardSimulationClock.awaitCommitTurn();
+        while (true) {
             final Position oldPos = this.entityPositions.get(entity);
+            if (oldPos == null) throw new EntityNotOnFieldException("The given entity" + entity + "is not on this playfield.");
             
-            if (actionToLog == null) {
-                actionToLog = new EntityTeleportAction(this.getSimulation().getSimulationClock().getLastTickNumber(), entity, oldPos, pos);
-            } else {
-                if (
-                    !actionToLog.getEntity().equals(entity)
-                ) throw new IllegalArgumentException("Given action wasn't caused by given entity.");
-                if (
-                    !actionToLog.from().equals(oldPos)
-                ) throw new IllegalArgumentException("Given action does not start at current position of given entity.");
-                if (!actionToLog.to().equals(pos)) throw new IllegalArgumentException("Given action does not end at given pos.");
+            // lock both stripes in the order of their index to avoid deadlocks
+            final Stripe oldStripe = this.getStripe(oldPos);
+            final Stripe newStripe = this.getStripe(pos);
+            final Stripe firstStripe = (oldStripe.index <= newStripe.index) ? oldStripe : newStripe;
+            final Stripe secondStripe = (oldStripe.index <= newStripe.index) ? newStripe : oldStripe;
+            synchronized (firstStripe) {
+                synchronized (secondStripe) {
+                    if (!oldPos.equals(this.entityPositions.get(entity))) {
+                        // the entity was moved or removed concurrently; try again with its new position
+                        continue;
+                    }
+                    if (unlessSolid && this.isSolidEntityInCell(newStripe, pos)) throw new IllegalMoveException("Solid Entity in the way");
+                    
+                    EntityMoveAction actionToLog = action;
+                    
+                    if (actionToLog == null) {
+                        actionToLog = new EntityTeleportAction(
+                                this.getSimulation().getSimulationClock().getLastTickNumber(), entity, oldPos, pos
+                        );
+                    } else {
+                        if (
+                            !actionToLog.getEntity().equals(entity)
+                        ) throw new IllegalArgumentException("Given action wasn't caused by given entity.");
+                        if (
+                            !actionToLog.from().equals(oldPos)
+                        ) throw new IllegalArgumentException("Given action does not start at current position of given entity.");
+                        if (!actionToLog.to().equals(pos)) throw new IllegalArgumentException("Given action does not end at given pos.");
+                    }
+                    
+                    this.removeEntityFromCell(oldPos, entity);
+                    this.addEntityToCell(pos, entity);
+                    this.entityPositions.put(entity, pos);
+                    
+                    this.getSimulation().getActionLog().logAction(actionToLog);
+                    this.recordDrawableChange(entity, DrawableDelta.Kind.MOVED);
+                }
             }
-            
-            this.removeEntityFromCell(oldPos, entity);
-            this.addEntityToCell(pos, entity);
-            this.entityPositions.put(entity, pos);
-            
-            this.getSimulation().getActionLog().logAction(actionToLog);
-            
-            this.drawEntities();
+            break;
         }
+        this.drawEntitiesIfPaused();
     }
     
     private void removeEntityFromSimulationTree(final Entity entity) {
-        final SimulationTreeNode node = this.findNodeForEntity(entity, false);
-        
-        if (node == null) return;
-        
-        for (final SimulationTreeNode child : node.getChildren()) {
-            if (child.getElementId().equals(Integer.toHexString(entity.hashCode()))) {
-                node.removeChild(child);
-                if (this.simulationTreeEntityRemovedListener != null) {
-                    // TODO check for bugs with simulation tree when window is reattached or attached late
-                    this.simulationTreeEntityRemovedListener.accept(child);
-                }
+        synchronized (this.simulationTreeLock) {
+            final SimulationTreeNode node = this.simulationTreeEntityNodes.remove(entity);
+            
+            if (node == null) return;
+            
+            this.simulationTreeClassNodes.get(entity.getClass()).removeChild(node);
+            if (this.simulationTreeEntityRemovedListener != null) {
+                // TODO check for bugs with simulation tree when window is reattached or attached late
+                this.simulationTreeEntityRemovedListener.accept(node);
             }
         }
     }
@@ -293,49 +807,64 @@ public class StandardPlayfield implements Playfield {
     public void removeEntity(final Entity entity) {
         if (entity == null) throw new IllegalArgumentException("The given entity is null.");
         
-        synchronized (this.playfieldLock) {
-            if (
-                !this.entityPositions.containsKey(entity)
-            ) throw new EntityNotOnFieldException("The given entity" + entity + "is not on this playfield.");
-            
+        StandardSimulationClock.awaitCommitTurn();
+        while (true) {
             final Position pos = this.entityPositions.get(entity);
-            this.removeEntityFromCell(pos, entity);
-            this.entityPositions.remove(entity, pos);
-            
-            this.getSimulation().getActionLog()
-                    .logAction(new EntityDespawnAction(this.getSimulation().getSimulationClock().getLastTickNumber(), entity, this));
-            
-            this.removeEntityFromSimulationTree(entity);
+            if (pos == null) throw new EntityNotOnFieldException("The given entity" + entity + "is not on this playfield.");
             
-            this.drawEntities();
+            synchronized (this.getStripe(pos)) {
+                if (!this.entityPositions.remove(entity, pos)) {
+                    // the entity was moved or removed concurrently; try again with its new position
+                    continue;
+                }
+                this.removeEntityFromCell(pos, entity);
+                this.entitiesByType.remove(entity);
+                
+                this.getSimulation().getActionLog()
+                        .logAction(new EntityDespawnAction(this.getSimulation().getSimulationClock().getLastTickNumber(), entity, this));
+                
+                this.removeEntityFromSimulationTree(entity);
+                this.recordDrawableChange(entity, DrawableDelta.Kind.REMOVED);
+            }
+            break;
         }
+        this.drawEntitiesIfPaused();
     }
     
     @Override
     public Position getEntityPosition(final Entity entity) {
         if (entity == null) throw new IllegalArgumentException("The given entity is null.");
-        synchronized (this.playfieldLock) {
-            final Position pos = this.entityPositions.get(entity);
-            if (pos == null) throw new EntityNotOnFieldException("The given entity" + entity + "is not on this playfield.");
-            return pos;
-        }
+        StandardSimulationClock.awaitCommitTurn();
+        // positions are read without locking, so reading them never waits for a change in progress
+        final Position pos = this.entityPositions.get(entity);
+        if (pos == null) throw new EntityNotOnFieldException("The given entity" + entity + "is not on this playfield.");
+        return pos;
     }
     
     @Override
     public boolean containsEntity(final Entity entity) {
         if (entity == null) throw new IllegalArgumentException("The given entity is null.");
-        synchronized (this.playfieldLock) {
-            return this.entityPositions.containsKey(entity);
-        }
+        StandardSimulationClock.awaitCommitTurn();
+        return this.entityPositions.contains(entity);
     }
     
     @Override
     public boolean isSolidEntityAt(final Position pos) {
-        final List<SolidEntity> solidEntitiesAtPos = this.getEntitiesOfTypeAt(pos, SolidEntity.class, true);
-        for (final SolidEntity entity : solidEntitiesAtPos) {
-            if (entity.isCurrentlySolid()) return true;
+        if (pos == null) throw new IllegalArgumentException("The given pos is null.");
+        StandardSimulationClock.awaitCommitTurn();
+        final Stripe stripe = this.getStripe(pos);
+        synchronized (stripe) {
+            return this.isSolidEntityInCell(stripe, pos);
         }
-        return false;
+    }
+    
+    /**
+     * Check whether a solid entity is at the given position; the caller must hold the stripe of the position.
+     */
+    private boolean isSolidEntityInCell(final Stripe stripe, final Position pos) {
+        // called for every move, so the cell is checked without creating any lists
+        final PlayfieldCell cell = this.getCell(stripe, pos);
+        return (cell != null) && cell.containsMatching(SolidEntity.class, true, SolidEntity::isCurrentlySolid);
     }
     
     /**
@@ -386,14 +915,26 @@ public class StandardPlayfield implements Playfield {
     /**
      * Set the listener for when the drawables on the playfield changed. This listener is responsible for informing the
      * UI.
+     * <p>
+     * The listener gets the changes of the drawables as deltas. The first deltas add the drawables of all entities
+     * currently on this playfield.
+     * </p>
      *
      * @param listener
      *     the listener to set
      */
-    public void setDrawablesChangedListener(final Consumer<List<Drawable>> listener) {
-        if ((this.drawablesChangedListener == null) || (listener == null)) {
-            this.drawablesChangedListener = listener;
-        } else throw new ListenerSetException();
+    public void setDrawablesChangedListener(final Consumer<List<DrawableDelta>> listener) {
+        synchronized (this.drawLock) {
+            if ((this.drawablesChangedListener == null) || (listener == null)) {
+                this.drawablesChangedListener = listener;
+            } else throw new ListenerSetException();
+            this.pendingDrawableChanges.clear();
+        }
+        if (listener == null) return;
+        for (final Entity entity : this.getAllEntities()) {
+            this.recordDrawableChange(entity, DrawableDelta.Kind.ADDED);
+        }
+        this.sendDrawableDeltas();
     }
     
     /**
@@ -401,11 +942,53 @@ public class StandardPlayfield implements Playfield {
      * the UI.
      */
     public void removeDrawablesChangedListener() {
-        this.drawablesChangedListener = null;
+        synchronized (this.drawLock) {
+            this.drawablesChangedListener = null;
+            this.pendingDrawableChanges.clear();
+        }
     }
     
     @Override
     public String toString() {
         return this.getClass().getSimpleName() + "@" + Integer.toHexString(this.hashCode());
     }
+    
+    /**
+     * A lock stripe of the playfield holding the cells of all chunks mapped to it.
+     */
+    private static final class Stripe {
+        
+        /** The index of this stripe; stripes are locked in ascending order. */
+        private final int index;
+        
+        /** Spatial index: the non empty chunks by their key; see {@link StandardPlayfield#getChunkKey}. */
+        private LongKeyMap<Chunk> chunks = new LongKeyMap<>();
+        /** Whether the chunks are shared with a fork or the original playfield and must be copied before a change. */
+        private boolean           chunksShared;
+        
+        private Stripe(final int index) {
+            this.index = index;
+        }
+    }
+    
+    /**
+     * A chunk of the spatial index holding the non empty cells in a square of the playfield.
+     */
+    private static final class Chunk {
+        
+        /** The playfield whose entities are in the cells; this playfield or one it is a fork of. */
+        private final StandardPlayfield         holder;
+        /** The write token of the holder when this chunk was created; see {@link StandardPlayfield#chunkWriteToken}. */
+        private final Object                    writeToken;
+        /** The key of this chunk; see {@link StandardPlayfield#getChunkKey}. */
+        private final long                      key;
+        /** The non empty cells by the packed key of their position; see {@link Position#toKey()}. */
+        private final LongKeyMap<PlayfieldCell> cells = new LongKeyMap<>();
+        
+        private Chunk(final StandardPlayfield holder, final Object writeToken, final long key) {
+            this.holder = holder;
+            this.writeToken = writeToken;
+            this.key = key;
+        }
+    }
 }
@@ -9,18 +9,27 @@
  */
 package de.unistuttgart.informatik.fius.icge.simulation.internal.programs;
 
+import java.lang.reflect.Method;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import de.unistuttgart.informatik.fius.icge.simulation.programs.Program;
 import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
 import de.unistuttgart.informatik.fius.icge.simulation.exception.UncheckedInterruptedException;
+import de.unistuttgart.informatik.fius.icge.simulation.internal.StandardSimulationClock;
 
 
 /**
@@ -32,21 +41,148 @@ public class StandardProgramRunner {
     
     private ExecutorService executor;
     
+    /** The last program run for every entity; programs may run further programs, so it is used while locked. */
     private final Map<Entity, CompletableFuture<Void>> runningPrograms = new HashMap<>();
     
+    /**
+     * The factory for the program threads if every program runs on its own thread; null if a shared pool is used.
+     */
+    private final ThreadFactory threadPerProgramFactory;
+    
+    /**
+     * The clock to register the programs as lockstep participants with; null if the programs are no participants.
+     */
+    private final StandardSimulationClock lockstepClock;
+    
+    /**
+     * The executor shared with other simulations; null if this runner creates its own executor.
+     */
+    private final ExecutorService sharedExecutor;
+    
+    /**
+     * The threads currently running a program on the shared executor; used to interrupt them when stopping.
+     */
+    private final Set<Thread> programThreads = new HashSet<>();
+    
     /**
      * Standard constructor setting up the executor for the Futures.
      */
     public StandardProgramRunner() {
+        this(false);
+    }
+    
+    /**
+     * Constructor setting up the executor for the Futures.
+     * <p>
+     * If {@code threadPerProgram} is set, every program gets its own thread. On JDKs supporting virtual threads these
+     * are virtual threads, on older JDKs platform daemon threads are used instead. Otherwise all programs share a pool
+     * with one thread per processor.
+     * </p>
+     *
+     * @param threadPerProgram
+     *     whether every program should run on its own (virtual) thread
+     */
+    public StandardProgramRunner(final boolean threadPerProgram) {
+        this(threadPerProgram, null);
+    }
+    
+    /**
+     * Constructor setting up the executor for the Futures.
+     * <p>
+     * If a lockstep clock is given, every program is registered as a lockstep participant of that clock (see
+     * {@link StandardSimulationClock#registerLockstepParticipant()}) while it runs. This requires every program to
+     * actually run at once, so {@code threadPerProgram} should be set.
+     * </p>
+     *
+     * @param threadPerProgram
+     *     whether every program should run on its own (virtual) thread
+     * @param lockstepClock
+     *     the clock to register the programs as lockstep participants with; may be null
+     */
+    public StandardProgramRunner(final boolean threadPerProgram, final StandardSimulationClock lockstepClock) {
+        this(threadPerProgram, lockstepClock, null);
+    }
+    
+    /**
+     * Constructor setting up the executor for the Futures.
+     * <p>
+     * If a shared executor is given, the programs run on it instead of an executor owned by this runner. The shared
+     * executor is not shut down when the programs are stopped; running programs are interrupted instead. As programs
+     * block while waiting for the clock, the executor must start every program without waiting for other programs to
+     * end (e.g. a cached thread pool).
+     * </p>
+     *
+     * @param threadPerProgram
+     *     whether every program should run on its own (virtual) thread; ignored if a shared executor is given
+     * @param lockstepClock
+     *     the clock to register the programs as lockstep participants with; may be null
+     * @param sharedExecutor
+     *     the executor to run the programs on; null to create one
+     */
+    public StandardProgramRunner(
+            final boolean threadPerProgram, final StandardSimulationClock lockstepClock, final ExecutorService sharedExecutor
+    ) {
+        this.threadPerProgramFactory = threadPerProgram ? StandardProgramRunner.createThreadPerProgramFactory() : null;
+        this.lockstepClock = lockstepClock;
+        this.sharedExecutor = sharedExecutor;
         this.executor = this.createExecutor();
     }
     
+    /**
+     * Create the factory for the threads used if every program runs on its own thread.
+     * <p>
+     * Virtual threads are looked up via reflection as they are not available in every supported JDK.
+     * </p>
+     *
+     * @return a factory for virtual threads if available or for platform daemon threads otherwise
+     */
+    private static ThreadFactory createThreadPerProgramFactory() {
+        try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            final Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            final Method name = builderClass.getMethod("name", String.class, long.class);
+            final Method factory = builderClass.getMethod("factory");
+            final Object builder = name.invoke(ofVirtual.invoke(null), "ProgramThread-", 0L);
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (@SuppressWarnings("unused") final ReflectiveOperationException | RuntimeException e) {
+            // virtual threads are not supported by this JDK
+            final AtomicLong threadCount = new AtomicLong();
+            return runnable -> {
+                final Thread thread = new Thread(runnable, "ProgramThread-" + threadCount.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+    
+    /**
+     * @return the executor shared with other simulations; null if this runner uses its own executor
+     */
+    public ExecutorService getSharedExecutor() {
+        return this.sharedExecutor;
+    }
+    
+    /**
+     * @return whether every program runs on its own thread
+     */
+    public boolean isThreadPerProgram() {
+        return this.threadPerProgramFactory != null;
+    }
+    
     /**
      * Create an executor that uses named threads for a better debugging experience,
      * 
      * @return the executor service
      */
     private ExecutorService createExecutor() {
+        if (this.sharedExecutor != null) return this.sharedExecutor;
+        if (this.threadPerProgramFactory != null) {
+            // no queue and no idle threads: every program starts immediately on a new thread
+            return new ThreadPoolExecutor(
+                    0, Integer.MAX_VALUE, 0, TimeUnit.SECONDS, new SynchronousQueue<>(), this.threadPerProgramFactory
+            );
+        }
+        
         final ForkJoinWorkerThreadFactory factory = pool -> {
             final ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
             worker.setName("ProgramThread-" + worker.getPoolIndex());
@@ -73,16 +209,33 @@ public class StandardProgramRunner {
      */
     public <E extends Entity, S extends E> void run(final Program<E> program, final S entity) {
         if ((program == null) || (entity == null)) throw new IllegalArgumentException("Argument is null.");
-        if (this.runningPrograms.containsKey(entity)) {
-            if (!this.runningPrograms.get(entity).isDone()) {
-                // only throw exception if last program is still running
-                throw new IllegalStateException("Already running a program for entity " + entity.toString() + "!");
+        synchronized (this.runningPrograms) {
+            if (this.runningPrograms.containsKey(entity)) {
+                if (!this.runningPrograms.get(entity).isDone()) {
+                    // only throw exception if last program is still running
+                    throw new IllegalStateException("Already running a program for entity " + entity.toString() + "!");
+                }
             }
+            this.startProgram(program, entity);
+        }
+    }
+    
+    private <E extends Entity, S extends E> void startProgram(final Program<E> program, final S entity) {
+        if (this.lockstepClock != null) {
+            this.lockstepClock.registerLockstepParticipant();
         }
-        
         final CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+            if (this.sharedExecutor != null) {
+                synchronized (this.programThreads) {
+                    this.programThreads.add(Thread.currentThread());
+                }
+            }
             try {
-                program.run(entity);
+                if (this.lockstepClock != null) {
+                    this.lockstepClock.runAsLockstepParticipant(() -> program.run(entity));
+                } else {
+                    program.run(entity);
+                }
             } catch (@SuppressWarnings("unused") final UncheckedInterruptedException e) {
                 System.out.println("The running program " + program.toString() + " for entity " + entity.toString() + " was stopped.");
             } catch (@SuppressWarnings("unused") final CancellationException e) {
@@ -92,8 +245,18 @@ public class StandardProgramRunner {
                 System.out.println("The following exception happened while running a program for the entity " + entity.toString());
                 e.printStackTrace();
                 System.out.println("----------------------------------------------");
+            } finally {
+                if (this.sharedExecutor != null) {
+                    synchronized (this.programThreads) {
+                        this.programThreads.remove(Thread.currentThread());
+                    }
+                }
             }
         }, this.executor);
+        if (this.lockstepClock != null) {
+            // also called if the program is cancelled before it started
+            future.whenComplete((result, exception) -> this.lockstepClock.unregisterLockstepParticipant());
+        }
         
         // set the running program in the entityMap
         this.runningPrograms.put(entity, future);
@@ -107,7 +270,30 @@ public class StandardProgramRunner {
      * @return the CompletableFuture in which the program is wrapped (or null)
      */
     public CompletableFuture<Void> getRunningProgram(Entity entity) {
-        return this.runningPrograms.get(entity);
+        synchronized (this.runningPrograms) {
+            return this.runningPrograms.get(entity);
+        }
+    }
+    
+    /**
+     * Get a future completed once all programs run so far have ended, including the programs they run themselves.
+     *
+     * @return the completable future; already completed if no program is running
+     */
+    public CompletableFuture<Void> getAllProgramsDone() {
+        final CompletableFuture<?>[] programs;
+        synchronized (this.runningPrograms) {
+            programs = this.runningPrograms.values().toArray(new CompletableFuture<?>[0]);
+        }
+        // a program runs further programs before it ends, so they are known once the programs ended
+        return CompletableFuture.allOf(programs).handle((result, exception) -> null).thenCompose(ended -> {
+            synchronized (this.runningPrograms) {
+                for (final CompletableFuture<Void> program : this.runningPrograms.values()) {
+                    if (!program.isDone()) return this.getAllProgramsDone();
+                }
+            }
+            return CompletableFuture.completedFuture(null);
+        });
     }
     
     /**
@@ -116,12 +302,24 @@ public class StandardProgramRunner {
     public void stopAll() {
         // the completable futures will not be interrupted by cancel(true)
         // see https://github.com/vsilaev/tascalate-concurrent
-        for (final CompletableFuture<Void> future : this.runningPrograms.values()) {
-            future.cancel(true);
+        synchronized (this.runningPrograms) {
+            for (final CompletableFuture<Void> future : this.runningPrograms.values()) {
+                future.cancel(true);
+            }
+            if (this.sharedExecutor != null) {
+                // the shared executor keeps running, so only the threads of the programs of this runner are interrupted
+                synchronized (this.programThreads) {
+                    for (final Thread thread : this.programThreads) {
+                        thread.interrupt();
+                    }
+                }
+                this.runningPrograms.clear();
+                return;
+            }
+            ExecutorService oldExecutor = this.executor;
+            this.executor = this.createExecutor();
+            oldExecutor.shutdownNow(); // this interrupts all threads of this executor
+            this.runningPrograms.clear();
         }
-        ExecutorService oldExecutor = this.executor;
-        this.executor = this.createExecutor();
-        oldExecutor.shutdownNow(); // this interrupts all threads of this executor
-        this.runningPrograms.clear();
     }
 }
@@ -17,6 +17,7 @@ import java.util.concurrent.ThreadFactory;
 
 import de.unistuttgart.informatik.fius.icge.simulation.Simulation;
 import de.unistuttgart.informatik.fius.icge.simulation.exception.UncheckedInterruptedException;
+import de.unistuttgart.informatik.fius.icge.simulation.internal.StandardSimulationClock;
 import de.unistuttgart.informatik.fius.icge.simulation.tasks.Task;
 
 
@@ -28,10 +29,17 @@ import de.unistuttgart.informatik.fius.icge.simulation.tasks.Task;
 public class StandardTaskRunner {
     
     private final ExecutorService executor;
+    /** Whether the executor is shared with other simulations and must not be shut down. */
+    private final boolean         sharedExecutor;
+    /** The thread running the task on a shared executor; null if the task is not running. */
+    private Thread                taskThread;
     
     private final Task       taskToRun;
     private final Simulation sim;
     
+    /** The clock to register the task as lockstep participant with; may be null. */
+    private final StandardSimulationClock lockstepClock;
+    
     private CompletableFuture<Boolean> taskResult;
     
     /**
@@ -43,9 +51,53 @@ public class StandardTaskRunner {
      *     The simulation to run this Task instance with
      */
     public StandardTaskRunner(final Task taskToRun, final Simulation sim) {
+        this(taskToRun, sim, null);
+    }
+    
+    /**
+     * Create a new task runner, that runs the task as lockstep participant of the given clock.
+     *
+     * @param taskToRun
+     *     The Task instance to run
+     * @param sim
+     *     The simulation to run this Task instance with
+     * @param lockstepClock
+     *     The clock to register the task as lockstep participant with (see
+     *     {@link StandardSimulationClock#registerLockstepParticipant()}); may be null
+     */
+    public StandardTaskRunner(final Task taskToRun, final Simulation sim, final StandardSimulationClock lockstepClock) {
+        this(taskToRun, sim, lockstepClock, null);
+    }
+    
+    /**
+     * Create a new task runner, that runs the task on the given executor.
+     * <p>
+     * The executor is shared with other simulations and is not shut down when the task is cancelled; the thread running
+     * the task is interrupted instead.
+     * </p>
+     *
+     * @param taskToRun
+     *     The Task instance to run
+     * @param sim
+     *     The simulation to run this Task instance with
+     * @param lockstepClock
+     *     The clock to register the task as lockstep participant with (see
+     *     {@link StandardSimulationClock#registerLockstepParticipant()}); may be null
+     * @param sharedExecutor
+     *     The executor to run the task on; null to use a new thread
+     */
+    public StandardTaskRunner(
+            final Task taskToRun, final Simulation sim, final StandardSimulationClock lockstepClock, final ExecutorService sharedExecutor
+    ) {
         if ((taskToRun == null) || (sim == null)) throw new IllegalArgumentException("Argument is null.");
         this.taskToRun = taskToRun;
         this.sim = sim;
+        this.lockstepClock = lockstepClock;
+        this.sharedExecutor = sharedExecutor != null;
+        if (sharedExecutor != null) {
+            this.executor = sharedExecutor;
+            return;
+        }
         final ThreadFactory factory = runnable -> {
             Thread worker = new Thread(runnable, "TaskThread-" + taskToRun.toString());
             return worker;
@@ -65,12 +117,28 @@ public class StandardTaskRunner {
      */
     public CompletableFuture<Boolean> runTask() {
         if (this.taskResult != null) return this.taskResult;
-        this.taskResult = CompletableFuture.supplyAsync(this::executeTask, this.executor);
+        if (this.lockstepClock != null) {
+            this.lockstepClock.registerLockstepParticipant();
+            this.taskResult = CompletableFuture.supplyAsync(() -> {
+                final boolean[] result = new boolean[1];
+                this.lockstepClock.runAsLockstepParticipant(() -> result[0] = this.executeTask());
+                return result[0];
+            }, this.executor);
+            // also called if the task is cancelled before it started
+            this.taskResult.whenComplete((result, exception) -> this.lockstepClock.unregisterLockstepParticipant());
+        } else {
+            this.taskResult = CompletableFuture.supplyAsync(this::executeTask, this.executor);
+        }
         
         return this.taskResult;
     }
     
     private boolean executeTask() {
+        if (this.sharedExecutor) {
+            synchronized (this) {
+                this.taskThread = Thread.currentThread();
+            }
+        }
         try {
             this.taskToRun.run(this.sim);
             return true;
@@ -93,14 +161,37 @@ public class StandardTaskRunner {
             e.printStackTrace();
             System.out.println("----------------------------------------------");
             return false;
+        } finally {
+            if (this.sharedExecutor) {
+                synchronized (this) {
+                    this.taskThread = null;
+                }
+            }
         }
     }
     
+    /**
+     * Get the result of the task.
+     *
+     * @return the completable future of the running task; null if the task was not run yet
+     */
+    public CompletableFuture<Boolean> getTaskResult() {
+        return this.taskResult;
+    }
+    
     /**
      * Cancel the completable future and intterupt the underlying thread.
      */
     public void cancel() {
         this.taskResult.cancel(true);
+        if (this.sharedExecutor) {
+            synchronized (this) {
+                if (this.taskThread != null) {
+                    this.taskThread.interrupt();
+                }
+            }
+            return;
+        }
         this.executor.shutdownNow();
     }
 }
@@ -0,0 +1,106 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.tasks;
+
+import java.util.Collections;
+import java.util.List;
+
+import de.unistuttgart.informatik.fius.icge.ui.TaskVerificationStatus;
+
+
+/**
+ * The report of a batch of tasks run by a {@link BatchTaskRunner}.
+ */
+public class BatchReport {
+    
+    private final List<BatchTaskResult> results;
+    private final int                   parallelism;
+    private final long                  durationNanos;
+    
+    /**
+     * Create a new report.
+     *
+     * @param results
+     *     the results in the order of the tasks
+     * @param parallelism
+     *     the number of tasks run at once
+     * @param durationNanos
+     *     the wall clock time of the whole batch in nanoseconds
+     */
+    public BatchReport(final List<BatchTaskResult> results, final int parallelism, final long durationNanos) {
+        if (results == null) throw new IllegalArgumentException("The given results are null.");
+        this.results = Collections.unmodifiableList(results);
+        this.parallelism = parallelism;
+        this.durationNanos = durationNanos;
+    }
+    
+    /**
+     * @return the results in the order of the tasks
+     */
+    public List<BatchTaskResult> getResults() {
+        return this.results;
+    }
+    
+    /**
+     * @return the number of tasks run at once
+     */
+    public int getParallelism() {
+        return this.parallelism;
+    }
+    
+    /**
+     * @return the wall clock time of the whole batch in nanoseconds
+     */
+    public long getDurationNanos() {
+        return this.durationNanos;
+    }
+    
+    /**
+     * @return the sum of the wall clock times of all tasks in nanoseconds
+     */
+    public long getTotalTaskNanos() {
+        long total = 0;
+        for (final BatchTaskResult result : this.results) {
+            total += result.getDurationNanos();
+        }
+        return total;
+    }
+    
+    /**
+     * Count the tasks with the given verification status.
+     *
+     * @param status
+     *     the status to count; null to count the tasks that were not verified
+     * @return the number of tasks
+     */
+    public int getCount(final TaskVerificationStatus status) {
+        int count = 0;
+        for (final BatchTaskResult result : this.results) {
+            if (result.getStatus() == status) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    @Override
+    public String toString() {
+        final StringBuilder report = new StringBuilder();
+        report.append(this.results.size()).append(" tasks in ").append(this.durationNanos / 1_000_000).append(" ms with parallelism ")
+                .append(this.parallelism).append(": ");
+        report.append(this.getCount(TaskVerificationStatus.SUCCESSFUL)).append(" successful, ");
+        report.append(this.getCount(TaskVerificationStatus.FAILED)).append(" failed, ");
+        report.append(this.getCount(TaskVerificationStatus.UNDECIDED)).append(" undecided");
+        for (final BatchTaskResult result : this.results) {
+            report.append(System.lineSeparator()).append("  ").append(result);
+        }
+        return report.toString();
+    }
+}
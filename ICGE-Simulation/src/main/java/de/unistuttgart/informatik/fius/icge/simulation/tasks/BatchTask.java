@@ -0,0 +1,65 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.tasks;
+
+import de.unistuttgart.informatik.fius.icge.simulation.TaskVerifier;
+
+
+/**
+ * A task to run with a {@link BatchTaskRunner}, together with the verifier checking its result.
+ */
+public class BatchTask {
+    
+    private final String       name;
+    private final Task         task;
+    private final TaskVerifier verifier;
+    
+    /**
+     * Create a new batch task.
+     * <p>
+     * The task and the verifier are only used for a single run, as the verifier is attached to the simulation of that
+     * run.
+     * </p>
+     *
+     * @param name
+     *     the name of the task in the report, e.g. the name of the solution
+     * @param task
+     *     the task to run
+     * @param verifier
+     *     the verifier to use; may be null if the task should not be verified
+     */
+    public BatchTask(final String name, final Task task, final TaskVerifier verifier) {
+        if ((name == null) || (task == null)) throw new IllegalArgumentException("Argument is null.");
+        this.name = name;
+        this.task = task;
+        this.verifier = verifier;
+    }
+    
+    /**
+     * @return the name of the task in the report
+     */
+    public String getName() {
+        return this.name;
+    }
+    
+    /**
+     * @return the task to run
+     */
+    public Task getTask() {
+        return this.task;
+    }
+    
+    /**
+     * @return the verifier to use; null if the task is not verified
+     */
+    public TaskVerifier getVerifier() {
+        return this.verifier;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.tasks;
+
+import de.unistuttgart.informatik.fius.icge.ui.TaskVerificationStatus;
+
+
+/**
+ * The result of a single task run by a {@link BatchTaskRunner}.
+ */
+public class BatchTaskResult {
+    
+    private final String                 name;
+    private final TaskVerificationStatus status;
+    private final boolean                completed;
+    private final boolean                tickLimitReached;
+    private final boolean                timedOut;
+    private final long                   lastTick;
+    private final long                   durationNanos;
+    
+    /**
+     * Create a new result.
+     *
+     * @param name
+     *     the name of the task
+     * @param status
+     *     the verification status; null if the task was not verified
+     * @param completed
+     *     whether the task returned without an exception
+     * @param tickLimitReached
+     *     whether the simulation was stopped at the tick limit
+     * @param timedOut
+     *     whether the simulation was stopped after the timeout
+     * @param lastTick
+     *     the last simulation tick processed
+     * @param durationNanos
+     *     the wall clock time of the run in nanoseconds
+     */
+    public BatchTaskResult(
+            final String name, final TaskVerificationStatus status, final boolean completed, final boolean tickLimitReached,
+            final boolean timedOut, final long lastTick, final long durationNanos
+    ) {
+        this.name = name;
+        this.status = status;
+        this.completed = completed;
+        this.tickLimitReached = tickLimitReached;
+        this.timedOut = timedOut;
+        this.lastTick = lastTick;
+        this.durationNanos = durationNanos;
+    }
+    
+    /**
+     * @return the name of the task
+     */
+    public String getName() {
+        return this.name;
+    }
+    
+    /**
+     * @return the verification status after the run; null if the task was not verified
+     */
+    public TaskVerificationStatus getStatus() {
+        return this.status;
+    }
+    
+    /**
+     * @return whether the run method of the task returned without an exception
+     */
+    public boolean isCompleted() {
+        return this.completed;
+    }
+    
+    /**
+     * @return whether the simulation was stopped because it reached the tick limit
+     */
+    public boolean isTickLimitReached() {
+        return this.tickLimitReached;
+    }
+    
+    /**
+     * @return whether the simulation was stopped because the task took longer than the timeout
+     */
+    public boolean isTimedOut() {
+        return this.timedOut;
+    }
+    
+    /**
+     * @return the last simulation tick processed in the run
+     */
+    public long getLastTick() {
+        return this.lastTick;
+    }
+    
+    /**
+     * @return the wall clock time of the run in nanoseconds, including building and verifying the simulation
+     */
+    public long getDurationNanos() {
+        return this.durationNanos;
+    }
+    
+    @Override
+    public String toString() {
+        final StringBuilder result = new StringBuilder(this.name).append(": ");
+        result.append(this.status == null ? "NOT VERIFIED" : this.status.toString());
+        if (this.timedOut) {
+            result.append(", timed out");
+        } else if (this.tickLimitReached) {
+            result.append(", tick limit reached");
+        } else if (!this.completed) {
+            result.append(", task failed");
+        }
+        result.append(" (last tick ").append(this.lastTick).append(", ");
+        result.append(this.durationNanos / 1_000_000).append(" ms)");
+        return result.toString();
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.tasks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import de.unistuttgart.informatik.fius.icge.simulation.SimulationBuilder;
+import de.unistuttgart.informatik.fius.icge.simulation.TaskVerifier;
+import de.unistuttgart.informatik.fius.icge.simulation.exception.UncheckedInterruptedException;
+import de.unistuttgart.informatik.fius.icge.simulation.internal.StandardSimulation;
+import de.unistuttgart.informatik.fius.icge.simulation.internal.StandardSimulationClock;
+import de.unistuttgart.informatik.fius.icge.ui.TaskVerificationStatus;
+
+
+/**
+ * Runs many tasks in headless simulations at once and collects the results of their verifiers into one report.
+ * <p>
+ * At most {@link #getParallelism()} simulations run at the same time. Every simulation runs in virtual time (see
+ * {@link SimulationBuilder#setHeadless(boolean)}) and uses a pool of threads shared by all simulations of this runner
+ * for its task, its programs and its clock (see {@link SimulationBuilder#setSharedExecutor}), so no threads are created
+ * per task.
+ * </p>
+ * <p>
+ * A task is verified once its run method returned and all programs run in the simulation ended, once the simulation
+ * reached the tick limit or once the timeout expired, whatever comes first. The simulation is stopped before it is
+ * verified, so programs still running at that time are stopped as well.
+ * </p>
+ * <p>
+ * The runner should be closed once it is no longer needed to end its threads.
+ * </p>
+ */
+public class BatchTaskRunner implements AutoCloseable {
+    
+    private final int             parallelism;
+    /** Runs one simulation per thread from start to verification. */
+    private final ExecutorService taskExecutor;
+    /** Runs the tasks, programs and clocks of all simulations. */
+    private final ExecutorService simulationExecutor;
+    
+    private long                        tickLimit = Long.MAX_VALUE;
+    private long                        timeoutMillis;
+    private Consumer<SimulationBuilder> simulationConfiguration;
+    
+    /**
+     * Create a new batch task runner running one simulation per available processor at once.
+     */
+    public BatchTaskRunner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+    
+    /**
+     * Create a new batch task runner.
+     *
+     * @param parallelism
+     *     the maximum number of simulations to run at once
+     */
+    public BatchTaskRunner(final int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("The parallelism must be at least 1.");
+        this.parallelism = parallelism;
+        this.taskExecutor = Executors.newFixedThreadPool(parallelism, BatchTaskRunner.createThreadFactory("BatchTaskThread-"));
+        // the task, the programs and the clock of a simulation block while waiting for each other, so every runnable
+        // must start at once; idle threads are reused by the next simulations
+        this.simulationExecutor = Executors.newCachedThreadPool(BatchTaskRunner.createThreadFactory("BatchSimulationThread-"));
+    }
+    
+    private static ThreadFactory createThreadFactory(final String namePrefix) {
+        final AtomicLong threadCount = new AtomicLong();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, namePrefix + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+    
+    /**
+     * @return the maximum number of simulations run at once
+     */
+    public int getParallelism() {
+        return this.parallelism;
+    }
+    
+    /**
+     * Set the number of the last simulation tick to process.
+     * <p>
+     * The clock of a simulation stops instead of processing a later tick and the task is verified. This keeps tasks
+     * which never end (e.g. because the solution loops forever) from blocking the batch; the result does not depend on
+     * the speed of the machine.
+     * </p>
+     *
+     * @param tickLimit
+     *     the last tick to process; {@link Long#MAX_VALUE} (default) for no limit
+     */
+    public void setTickLimit(final long tickLimit) {
+        if (tickLimit < 0) throw new IllegalArgumentException("The tick limit must not be negative.");
+        this.tickLimit = tickLimit;
+    }
+    
+    /**
+     * Set the wall clock time after which a task is stopped and verified.
+     *
+     * @param timeoutMillis
+     *     the timeout in milliseconds; 0 (default) for no timeout
+     */
+    public void setTimeout(final long timeoutMillis) {
+        if (timeoutMillis < 0) throw new IllegalArgumentException("The timeout must not be negative.");
+        this.timeoutMillis = timeoutMillis;
+    }
+    
+    /**
+     * Set a configuration applied to the builder of every simulation before it is built, e.g. to enable the
+     * deterministic mode (see {@link SimulationBuilder#setDeterministic(boolean)}).
+     * <p>
+     * The simulations are always headless, do not log their actions to the console and use the shared threads of this
+     * runner.
+     * </p>
+     *
+     * @param simulationConfiguration
+     *     the configuration; may be null
+     */
+    public void setSimulationConfiguration(final Consumer<SimulationBuilder> simulationConfiguration) {
+        this.simulationConfiguration = simulationConfiguration;
+    }
+    
+    /**
+     * Run the given tasks and wait until all of them are verified.
+     *
+     * @param tasks
+     *     the tasks to run
+     * @return the report containing the results in the order of the given tasks
+     * @throws IllegalStateException
+     *     if a simulation could not be built or run
+     * @throws UncheckedInterruptedException
+     *     if the thread is interrupted while waiting for the tasks; the remaining tasks are cancelled
+     */
+    public BatchReport run(final List<BatchTask> tasks) {
+        if (tasks == null) throw new IllegalArgumentException("The given tasks are null.");
+        final long start = System.nanoTime();
+        final List<Future<BatchTaskResult>> futures = new ArrayList<>(tasks.size());
+        for (final BatchTask task : tasks) {
+            futures.add(this.taskExecutor.submit(() -> this.runTask(task)));
+        }
+        
+        final List<BatchTaskResult> results = new ArrayList<>(tasks.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (final InterruptedException e) {
+                futures.forEach(future -> future.cancel(true));
+                throw new UncheckedInterruptedException(e);
+            } catch (final ExecutionException e) {
+                futures.forEach(future -> future.cancel(true));
+                throw new IllegalStateException("Could not run the task " + tasks.get(i).getName() + ".", e.getCause());
+            }
+        }
+        return new BatchReport(results, this.parallelism, System.nanoTime() - start);
+    }
+    
+    private BatchTaskResult runTask(final BatchTask batchTask) {
+        final long start = System.nanoTime();
+        final SimulationBuilder builder = new SimulationBuilder();
+        if (this.simulationConfiguration != null) {
+            this.simulationConfiguration.accept(builder);
+        }
+        builder.setHeadless(true);
+        builder.setLogActionsToConsole(false);
+        builder.setTaskVerifier(batchTask.getVerifier());
+        builder.setSharedExecutor(this.simulationExecutor);
+        builder.buildSimulation();
+        final StandardSimulation sim = (StandardSimulation) builder.getBuiltSimulation();
+        final StandardSimulationClock clock = (StandardSimulationClock) sim.getSimulationClock();
+        
+        final CompletableFuture<Void> tickLimitReached = new CompletableFuture<>();
+        clock.setTickLimit(this.tickLimit, () -> tickLimitReached.complete(null));
+        
+        clock.start();
+        sim.runTask(batchTask.getTask());
+        final CompletableFuture<Boolean> taskResult = sim.getTaskResult();
+        // the task may only start the programs solving it, so they are waited for as well, even if the task failed
+        final CompletableFuture<Void> simulationEnded = taskResult.handle((result, exception) -> null)
+                .thenCompose(taskEnded -> sim.getAllProgramsDone());
+        boolean timedOut = false;
+        try {
+            final CompletableFuture<Object> end = CompletableFuture.anyOf(simulationEnded, tickLimitReached);
+            if (this.timeoutMillis > 0) {
+                end.get(this.timeoutMillis, TimeUnit.MILLISECONDS);
+            } else {
+                end.get();
+            }
+        } catch (@SuppressWarnings("unused") final TimeoutException e) {
+            timedOut = true;
+        } catch (@SuppressWarnings("unused") final ExecutionException | CancellationException e) {
+            // the task runner and the program runner report failures themselves
+        } catch (final InterruptedException e) {
+            sim.stop();
+            throw new UncheckedInterruptedException(e);
+        }
+        
+        final boolean completed = taskResult.isDone() && !taskResult.isCompletedExceptionally() && taskResult.join();
+        final long lastTick = clock.getLastTickNumber();
+        sim.stop();
+        
+        TaskVerificationStatus status = null;
+        final TaskVerifier verifier = batchTask.getVerifier();
+        if (verifier != null) {
+            try {
+                verifier.verify();
+                status = verifier.getTaskInformation().getTaskStatus();
+            } catch (final RuntimeException e) {
+                System.out.println("----------------------------------------------");
+                System.out.println("The following exception happened while verifying the task " + batchTask.getName() + ":");
+                e.printStackTrace();
+                System.out.println("----------------------------------------------");
+                status = TaskVerificationStatus.FAILED;
+            }
+        }
+        return new BatchTaskResult(
+                batchTask.getName(), status, completed, tickLimitReached.isDone(), timedOut, lastTick, System.nanoTime() - start
+        );
+    }
+    
+    /**
+     * Stop all threads of this runner; running simulations are interrupted.
+     */
+    @Override
+    public void close() {
+        this.taskExecutor.shutdownNow();
+        this.simulationExecutor.shutdownNow();
+    }
+}
@@ -9,6 +9,8 @@
  */
 module de.unistuttgart.informatik.fius.icge.simulation {
     requires transitive de.unistuttgart.informatik.fius.icge.ui;
+    // only needed to compile the inspection index processor
+    requires static java.compiler;
     
     exports de.unistuttgart.informatik.fius.icge.simulation;
     exports de.unistuttgart.informatik.fius.icge.simulation.entity;
@@ -0,0 +1,237 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.actions;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import de.unistuttgart.informatik.fius.icge.simulation.Position;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.Action;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityStepAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityTurnAction;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.BasicEntity;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
+
+
+/**
+ * Test class for the {@link ColumnarActionStore}
+ */
+class ColumnarActionStoreTest {
+    
+    /** More rows than fit into a single chunk of the store. */
+    private static final int MORE_THAN_A_CHUNK = 10000;
+    
+    private static EntityStepAction step(final long tick, final Entity entity, final int x) {
+        return new EntityStepAction(tick, entity, new Position(x, 0), new Position(x + 1, 0));
+    }
+    
+    private static void assertStep(final long tick, final Entity entity, final int x, final Action action) {
+        Assertions.assertTrue(action instanceof EntityStepAction, "Action should be a step");
+        final EntityStepAction step = (EntityStepAction) action;
+        Assertions.assertEquals(tick, step.getTickNumber(), "Tick should be kept");
+        Assertions.assertSame(entity, step.getEntity(), "Entity should be kept");
+        Assertions.assertEquals(new Position(x, 0), step.from(), "From position should be kept");
+        Assertions.assertEquals(new Position(x + 1, 0), step.to(), "To position should be kept");
+    }
+    
+    /**
+     * Test that appended actions are read back from the columns
+     */
+    @Test
+    void testAppendAndRead() {
+        final ColumnarActionStore store = new ColumnarActionStore();
+        final Entity first = new TestEntity();
+        final Entity second = new TestEntity();
+        for (int i = 0; i < ColumnarActionStoreTest.MORE_THAN_A_CHUNK; i++) {
+            store.append(ColumnarActionStoreTest.step(i, (i % 2) == 0 ? first : second, i));
+        }
+        
+        final List<Action> actions = store.getActions(Action.class, true);
+        Assertions.assertEquals(ColumnarActionStoreTest.MORE_THAN_A_CHUNK, actions.size());
+        for (int i = 0; i < actions.size(); i++) {
+            ColumnarActionStoreTest.assertStep(i, (i % 2) == 0 ? first : second, i, actions.get(i));
+        }
+        
+        final List<Action> actionsOfSecond = store.getActionsOfEntity(second, Action.class, true);
+        Assertions.assertEquals(ColumnarActionStoreTest.MORE_THAN_A_CHUNK / 2, actionsOfSecond.size());
+        for (int i = 0; i < actionsOfSecond.size(); i++) {
+            ColumnarActionStoreTest.assertStep((2 * i) + 1, second, (2 * i) + 1, actionsOfSecond.get(i));
+        }
+        
+        final List<Action> between = store.getActionsBetweenTicks(5000, 5009, Action.class, true);
+        Assertions.assertEquals(10, between.size());
+        ColumnarActionStoreTest.assertStep(5000, first, 5000, between.get(0));
+        Assertions.assertTrue(store.getActions(EntityTurnAction.class, true).isEmpty(), "There should be no turn actions");
+    }
+    
+    /**
+     * Test that a fork and its original store share the rows before the fork but not the rows appended afterwards
+     */
+    @Test
+    void testForkCopiesSharedChunksOnChange() {
+        final ColumnarActionStore store = new ColumnarActionStore();
+        final Entity entity = new TestEntity();
+        final Entity copy = new TestEntity();
+        for (int i = 0; i < 10; i++) {
+            store.append(ColumnarActionStoreTest.step(i, entity, i));
+        }
+        
+        final Map<Entity, Entity> copies = new IdentityHashMap<>();
+        copies.put(entity, copy);
+        final ColumnarActionStore fork = store.fork(copies);
+        store.append(ColumnarActionStoreTest.step(10, entity, 100));
+        fork.append(ColumnarActionStoreTest.step(10, copy, 200));
+        fork.append(ColumnarActionStoreTest.step(11, copy, 201));
+        
+        final List<Action> original = store.getActions(Action.class, true);
+        Assertions.assertEquals(11, original.size());
+        ColumnarActionStoreTest.assertStep(10, entity, 100, original.get(10));
+        
+        final List<Action> forked = fork.getActionsOfEntity(copy, Action.class, true);
+        Assertions.assertEquals(12, forked.size());
+        for (int i = 0; i < 10; i++) {
+            ColumnarActionStoreTest.assertStep(i, copy, i, forked.get(i));
+        }
+        ColumnarActionStoreTest.assertStep(10, copy, 200, forked.get(10));
+        Assertions.assertTrue(fork.getActionsOfEntity(entity, Action.class, true).isEmpty(), "Fork should only know the copy");
+        Assertions.assertEquals(11, store.getActionsOfEntity(entity, Action.class, true).size());
+    }
+    
+    /**
+     * Test that evicting a row shared with a fork does not evict it in the fork
+     */
+    @Test
+    void testEvictionAfterForkKeepsRowsOfFork() {
+        final ColumnarActionStore store = new ColumnarActionStore(Long.MAX_VALUE, 2, null);
+        final Entity entity = new TestEntity();
+        store.append(ColumnarActionStoreTest.step(0, entity, 0));
+        store.append(ColumnarActionStoreTest.step(1, entity, 1));
+        final ColumnarActionStore fork = store.fork(new IdentityHashMap<>());
+        
+        store.append(ColumnarActionStoreTest.step(2, entity, 2));
+        final List<Action> original = store.getActionsOfEntity(entity, Action.class, true);
+        Assertions.assertEquals(2, original.size());
+        ColumnarActionStoreTest.assertStep(1, entity, 1, original.get(0));
+        
+        final List<Action> forked = fork.getActions(Action.class, true);
+        Assertions.assertEquals(2, forked.size());
+        ColumnarActionStoreTest.assertStep(0, entity, 0, forked.get(0));
+        Assertions.assertEquals(0, fork.getEvictedCount());
+    }
+    
+    /**
+     * Test that only the given number of rows is kept per entity while all actions are counted
+     */
+    @Test
+    void testRetainedRowsPerEntity() {
+        final ColumnarActionStore store = new ColumnarActionStore(Long.MAX_VALUE, 3, null);
+        final Entity first = new TestEntity();
+        final Entity second = new TestEntity();
+        for (int i = 0; i < 10; i++) {
+            store.append(ColumnarActionStoreTest.step(i, first, i));
+        }
+        store.append(ColumnarActionStoreTest.step(10, second, 10));
+        
+        final List<Action> actionsOfFirst = store.getActionsOfEntity(first, Action.class, true);
+        Assertions.assertEquals(3, actionsOfFirst.size());
+        ColumnarActionStoreTest.assertStep(7, first, 7, actionsOfFirst.get(0));
+        Assertions.assertEquals(4, store.getActions(Action.class, true).size());
+        Assertions.assertEquals(7, store.getEvictedCount());
+        Assertions.assertEquals(11, store.getCount(EntityStepAction.class, false));
+        Assertions.assertEquals(10, store.getCountOfEntity(first, Action.class, true));
+    }
+    
+    /**
+     * Test that rows older than the retained ticks are evicted, also across dropped chunks
+     */
+    @Test
+    void testRetainedTicks() {
+        final ColumnarActionStore store = new ColumnarActionStore(5, Integer.MAX_VALUE, null);
+        final Entity entity = new TestEntity();
+        for (int i = 0; i < ColumnarActionStoreTest.MORE_THAN_A_CHUNK; i++) {
+            store.append(ColumnarActionStoreTest.step(i, entity, i));
+        }
+        
+        final int last = ColumnarActionStoreTest.MORE_THAN_A_CHUNK - 1;
+        final List<Action> actions = store.getActions(Action.class, true);
+        Assertions.assertEquals(6, actions.size());
+        ColumnarActionStoreTest.assertStep(last - 5, entity, last - 5, actions.get(0));
+        Assertions.assertEquals(6, store.getActionsOfEntity(entity, Action.class, true).size());
+        Assertions.assertEquals(2, store.getActionsBetweenTicks(0, last - 4, Action.class, true).size());
+        Assertions.assertEquals(ColumnarActionStoreTest.MORE_THAN_A_CHUNK - 6, store.getEvictedCount());
+    }
+    
+    /**
+     * Test that actions of types which are not retained are only counted
+     */
+    @Test
+    void testRetainedTypes() {
+        final ColumnarActionStore store = new ColumnarActionStore(Long.MAX_VALUE, Integer.MAX_VALUE, Set.of(EntityStepAction.class));
+        final Entity entity = new TestEntity();
+        store.append(ColumnarActionStoreTest.step(0, entity, 0));
+        Assertions.assertEquals(-1, store.append(new EntityTurnAction(1, entity, null, null)));
+        
+        Assertions.assertEquals(1, store.getActions(Action.class, true).size());
+        Assertions.assertEquals(1, store.getCount(EntityTurnAction.class, false));
+        Assertions.assertEquals(1, store.getEvictedCount());
+    }
+    
+    /**
+     * Test that readers of the actions of an entity never see a row before all its columns are written
+     *
+     * @throws InterruptedException
+     *     if interrupted while waiting for the writer
+     */
+    @Test
+    void testConcurrentReadersOnlySeeCompleteRows() throws InterruptedException {
+        final ColumnarActionStore store = new ColumnarActionStore();
+        final Entity entity = new TestEntity();
+        final Thread writer = new Thread(() -> {
+            for (int i = 0; i < (5 * ColumnarActionStoreTest.MORE_THAN_A_CHUNK); i++) {
+                store.append(ColumnarActionStoreTest.step(i, entity, i));
+            }
+        });
+        final AtomicReference<String> failure = new AtomicReference<>();
+        writer.start();
+        while (writer.isAlive() && (failure.get() == null)) {
+            final List<EntityStepAction> actions = store.getActionsOfEntity(entity, EntityStepAction.class, false);
+            for (int i = 0; i < actions.size(); i++) {
+                final EntityStepAction step = actions.get(i);
+                if ((step.getTickNumber() != i) || !new Position(i + 1, 0).equals(step.to())) {
+                    failure.set("Incomplete row " + i + ": " + step);
+                }
+            }
+        }
+        writer.join();
+        Assertions.assertNull(failure.get());
+    }
+    
+    /**
+     * A minimal entity to log actions of.
+     */
+    private static class TestEntity extends BasicEntity {
+        
+        @Override
+        protected String getTextureHandle() {
+            return "test";
+        }
+        
+        @Override
+        protected int getZPosition() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.playfield;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import de.unistuttgart.informatik.fius.icge.simulation.Position;
+
+
+/**
+ * Test class for the {@link LongKeyMap}
+ */
+class LongKeyMapTest {
+    
+    /**
+     * Test putting, replacing and removing single values
+     */
+    @Test
+    void testPutGetRemove() {
+        final LongKeyMap<String> map = new LongKeyMap<>();
+        Assertions.assertNull(map.put(1L, "a"));
+        Assertions.assertNull(map.put(-1L, "b"));
+        Assertions.assertEquals("a", map.put(1L, "c"));
+        Assertions.assertEquals("c", map.get(1L));
+        Assertions.assertEquals(2, map.size());
+        
+        Assertions.assertEquals("c", map.remove(1L));
+        Assertions.assertNull(map.remove(1L));
+        Assertions.assertNull(map.get(1L));
+        Assertions.assertEquals("b", map.get(-1L));
+        Assertions.assertEquals(1, map.size());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(2L, null));
+    }
+    
+    /**
+     * Test that removing values keeps all other values reachable, as the following entries of a probe sequence are
+     * shifted back into the gap
+     */
+    @Test
+    void testRemoveShiftsProbeSequenceBack() {
+        final Random random = new Random(42);
+        final LongKeyMap<Long> map = new LongKeyMap<>();
+        final Map<Long, Long> expected = new HashMap<>();
+        final List<Long> keys = new ArrayList<>();
+        // packed positions of a dense area collide a lot more than random keys
+        for (int x = -20; x < 20; x++) {
+            for (int y = -20; y < 20; y++) {
+                keys.add(new Position(x, y).toKey());
+            }
+        }
+        for (int i = 0; i < 1000; i++) {
+            keys.add(random.nextLong());
+        }
+        for (final long key : keys) {
+            map.put(key, key);
+            expected.put(key, key);
+        }
+        
+        Collections.shuffle(keys, random);
+        for (int i = 0; i < keys.size(); i++) {
+            final long key = keys.get(i);
+            Assertions.assertEquals(Long.valueOf(key), map.remove(key));
+            expected.remove(key);
+            if ((i % 100) == 0) {
+                for (final Map.Entry<Long, Long> entry : expected.entrySet()) {
+                    Assertions.assertEquals(entry.getValue(), map.get(entry.getKey()), "Remaining key should be found");
+                }
+                Assertions.assertNull(map.get(key), "Removed key should not be found");
+            }
+            Assertions.assertEquals(expected.size(), map.size());
+        }
+        Assertions.assertTrue(map.isEmpty(), "Map should be empty");
+        Assertions.assertTrue(map.values().isEmpty(), "Map should have no values");
+    }
+    
+    /**
+     * Test that a copy can be changed independently of the original map
+     */
+    @Test
+    void testCopyIsIndependent() {
+        final LongKeyMap<String> map = new LongKeyMap<>();
+        map.put(1L, "a");
+        map.put(2L, "b");
+        final LongKeyMap<String> copy = map.copy();
+        copy.remove(1L);
+        copy.put(3L, "c");
+        map.put(2L, "d");
+        
+        Assertions.assertEquals("a", map.get(1L));
+        Assertions.assertNull(map.get(3L));
+        Assertions.assertEquals(2, map.size());
+        Assertions.assertNull(copy.get(1L));
+        Assertions.assertEquals("b", copy.get(2L));
+        Assertions.assertEquals("c", copy.get(3L));
+        Assertions.assertEquals(2, copy.size());
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.ui;
+
+/**
+ * A single change of the drawables on the playfield sent to a {@link PlayfieldDrawer}.
+ * <p>
+ * Every drawable is identified by a key (e.g. the entity it belongs to). Later deltas for the same key replace or
+ * remove the drawable of an earlier delta.
+ * </p>
+ */
+public class DrawableDelta {
+    
+    /**
+     * The kinds of changes of a drawable.
+     */
+    public enum Kind {
+        /** A new drawable was added. */
+        ADDED,
+        /** The drawable of an existing key was moved; the delta contains the new drawable. */
+        MOVED,
+        /** The drawable of an existing key was removed; the delta contains no drawable. */
+        REMOVED,
+        /**
+         * The drawable of an existing key was replaced without a move, e.g. because an animation started or ended; the
+         * delta contains the new drawable.
+         */
+        ANIMATION_STARTED
+    }
+    
+    private final Kind     kind;
+    private final Object   key;
+    private final Drawable drawable;
+    
+    /**
+     * Create a new drawable delta.
+     *
+     * @param kind
+     *     the kind of the change
+     * @param key
+     *     the key identifying the drawable
+     * @param drawable
+     *     the new drawable; must be null if and only if the kind is {@link Kind#REMOVED}
+     */
+    public DrawableDelta(final Kind kind, final Object key, final Drawable drawable) {
+        if ((kind == null) || (key == null)) throw new IllegalArgumentException("Argument is null.");
+        if ((kind == Kind.REMOVED) != (drawable == null)) {
+            throw new IllegalArgumentException("Only deltas of removed drawables do not contain a drawable.");
+        }
+        this.kind = kind;
+        this.key = key;
+        this.drawable = drawable;
+    }
+    
+    /**
+     * @return the kind of the change
+     */
+    public Kind getKind() {
+        return this.kind;
+    }
+    
+    /**
+     * @return the key identifying the drawable
+     */
+    public Object getKey() {
+        return this.key;
+    }
+    
+    /**
+     * @return the new drawable or null if the drawable was removed
+     */
+    public Drawable getDrawable() {
+        return this.drawable;
+    }
+}
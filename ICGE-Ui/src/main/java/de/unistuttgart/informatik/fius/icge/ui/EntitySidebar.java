@@ -9,6 +9,9 @@
  */
 package de.unistuttgart.informatik.fius.icge.ui;
 
+import java.util.Map;
+
+
 /**
  * A sidebar showing all current entities
  *
@@ -38,6 +41,17 @@ public interface EntitySidebar {
      */
     void setEntityInspectorEntries(EntityInspectorEntry[] entries);
     
+    /**
+     * Update the values of some entries of the current inspector without recreating it.
+     * <p>
+     * Entries not in the given map keep their values.
+     * </p>
+     *
+     * @param values
+     *     The new values by entry name
+     */
+    void updateEntityInspectorValues(Map<String, String> values);
+    
     /**
      * Get the selected element of the simulation tree.
      * 
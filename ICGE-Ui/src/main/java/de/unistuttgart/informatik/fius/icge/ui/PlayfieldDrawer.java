@@ -31,6 +31,17 @@ public interface PlayfieldDrawer {
      */
     void setDrawables(List<Drawable> drawables);
     
+    /**
+     * Apply the given changes to the Drawables rendered onto the playfield.
+     *
+     * The deltas are applied in order. Deltas only refer to drawables added by earlier deltas; a call to
+     * {@link #setDrawables(List)} removes all of them.
+     *
+     * @param deltas
+     *     the changes to apply
+     */
+    void applyDrawableDeltas(List<DrawableDelta> deltas);
+    
     /**
      * Draws the playfield.
      *
@@ -9,7 +9,7 @@
  */
 package de.unistuttgart.informatik.fius.icge.ui;
 
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.Consumer;
@@ -20,13 +20,19 @@ import de.unistuttgart.informatik.fius.icge.ui.exception.LeafNodeException;
 /**
  * A SimulationTreeNode is a data container used to build the simulation tree which is shown in the entity sidebar to
  * allow the user to see and easily select entities in the simulation.
+ * <p>
+ * The children of a node are kept by their element id, so the element ids of the children of a node must be unique.
+ * Adding, removing and finding a child by its id takes constant time.
+ * </p>
  *
  * @author Tobias Wältken
  * @version 1.0
  */
 public class SimulationTreeNode {
     
-    private ArrayList<SimulationTreeNode> children;
+    private LinkedHashMap<String, SimulationTreeNode> children;
+    /** A copy of the children, created when first requested after a change; null if outdated */
+    private List<SimulationTreeNode>                  childrenCopy;
     
     private final String  elementId;
     private final String  displayText;
@@ -64,7 +70,7 @@ public class SimulationTreeNode {
      */
     public SimulationTreeNode(final String elementId, final String displayText, final String textureId, final boolean isLeaf) {
         if (!isLeaf) {
-            this.children = new ArrayList<>();
+            this.children = new LinkedHashMap<>();
         }
         
         this.elementId = elementId;
@@ -114,7 +120,7 @@ public class SimulationTreeNode {
      *
      * @return Returns false if it has no childen.
      */
-    public boolean hasChildren() {
+    public synchronized boolean hasChildren() {
         if (this.isLeaf) return false;
         
         return !this.children.isEmpty();
@@ -125,12 +131,14 @@ public class SimulationTreeNode {
      *
      * @param node
      *     The node to append
-     * @return Returns true if action was successfull
+     * @return Returns true if action was successfull; false if there already is a child with the same element id
      */
-    public boolean appendChild(final SimulationTreeNode node) {
+    public synchronized boolean appendChild(final SimulationTreeNode node) {
         if (this.isLeaf) throw new LeafNodeException();
         
-        return this.children.add(node);
+        if (this.children.putIfAbsent(node.getElementId(), node) != null) return false;
+        this.childrenCopy = null;
+        return true;
     }
     
     /**
@@ -140,17 +148,37 @@ public class SimulationTreeNode {
      *     The node to remove
      * @return Returns true if the given node was a child node
      */
-    public boolean removeChild(final SimulationTreeNode node) {
+    public synchronized boolean removeChild(final SimulationTreeNode node) {
         if (this.isLeaf) throw new LeafNodeException();
         
-        return this.children.remove(node);
+        if (this.children.remove(node.getElementId()) == null) return false;
+        this.childrenCopy = null;
+        return true;
     }
     
     /**
-     * @return a list of all children
+     * Get the child node with the given element id.
+     *
+     * @param elementId
+     *     The element id of the child
+     * @return The child node or null if this node has no child with the given id
+     */
+    public synchronized SimulationTreeNode getChild(final String elementId) {
+        if (this.isLeaf) throw new LeafNodeException();
+        
+        return this.children.get(elementId);
+    }
+    
+    /**
+     * @return an unmodifiable list of all children in the order they were appended
      */
-    public List<SimulationTreeNode> getChildren() {
-        return List.copyOf(this.children);
+    public synchronized List<SimulationTreeNode> getChildren() {
+        if (this.isLeaf) return List.of();
+        
+        if (this.childrenCopy == null) {
+            this.childrenCopy = List.copyOf(this.children.values());
+        }
+        return this.childrenCopy;
     }
     
     /**
@@ -162,7 +190,7 @@ public class SimulationTreeNode {
     public void forEachChild(final Consumer<SimulationTreeNode> lamda) {
         if (this.isLeaf) throw new LeafNodeException();
         
-        for (final SimulationTreeNode child : this.children) {
+        for (final SimulationTreeNode child : this.getChildren()) {
             lamda.accept(child);
         }
     }
@@ -17,6 +17,7 @@ import java.awt.GridBagLayout;
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 
 import javax.swing.JButton;
@@ -159,6 +160,37 @@ public class SwingEntityInspector extends JPanel {
         });
     }
     
+    /**
+     * Update the values of the entries with the given names, keeping the ui elements of the current entries.
+     *
+     * @param values
+     *     the new values by entry name
+     */
+    public void updateEntityInspectorValues(final Map<String, String> values) {
+        if (values.isEmpty()) return;
+        SwingUtilities.invokeLater(() -> {
+            synchronized (this.updateLock) {
+                // check preconditions
+                List<Consumer<String>> valueUpdaters = this.uiValueUpdaters;
+                EntityInspectorEntry[] entries = this.currentEntries;
+                if ((valueUpdaters == null) || (entries == null)) return;
+                if (valueUpdaters.size() != entries.length) return;
+                
+                // update values
+                for (int i = 0; i < entries.length; i++) {
+                    final String value = values.get(entries[i].getName());
+                    if (value != null) {
+                        valueUpdaters.get(i).accept(value);
+                    }
+                }
+                
+                // update ui
+                this.revalidate();
+                this.repaint();
+            }
+        });
+    }
+    
     /**
      * Check if the new list of entries matches the current entries structurally.
      *
@@ -12,18 +12,24 @@ package de.unistuttgart.informatik.fius.icge.ui.internal;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.util.ArrayList;
-import java.util.Enumeration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
 import javax.swing.JTree;
 import javax.swing.ScrollPaneConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreeNode;
-import javax.swing.tree.TreePath;
 
 import de.unistuttgart.informatik.fius.icge.ui.EntityInspectorEntry;
 import de.unistuttgart.informatik.fius.icge.ui.EntitySidebar;
@@ -54,6 +60,18 @@ public class SwingEntitySidebar extends JPanel implements EntitySidebar {
     /** The entity inspector in the sidebar */
     public SwingEntityInspector entityInspector;
     
+    /** The delay of the tree updates; the changes of one frame are applied at once */
+    private static final int TREE_UPDATE_DELAY = 1000 / 60;
+    
+    /** The model node of every inner node of the simulation tree; only used on the event dispatch thread */
+    private final Map<SimulationTreeNode, DefaultMutableTreeNode>   innerNodes        = new IdentityHashMap<>();
+    /** The children of every inner node shown in the model; only used on the event dispatch thread */
+    private final Map<SimulationTreeNode, List<SimulationTreeNode>> shownChildren     = new IdentityHashMap<>();
+    /** Whether the tree update timer is already started */
+    private final AtomicBoolean                                     treeUpdatePending = new AtomicBoolean();
+    /** The timer applying the changes of the simulation tree on the event dispatch thread */
+    private final Timer                                             treeUpdateTimer;
+    
     /**
      * The default constructor
      *
@@ -101,6 +119,11 @@ public class SwingEntitySidebar extends JPanel implements EntitySidebar {
             }
         });
         
+        this.treeUpdateTimer = new Timer(SwingEntitySidebar.TREE_UPDATE_DELAY, event -> this.applySimulationTreeChanges());
+        this.treeUpdateTimer.setRepeats(false);
+        // a coalescing timer would drop an event fired while the previous one is still applied
+        this.treeUpdateTimer.setCoalesce(false);
+        
         // Entity inspector setup
         this.entityInspector = new SwingEntityInspector(this.textureRegistry);
         
@@ -131,35 +154,36 @@ public class SwingEntitySidebar extends JPanel implements EntitySidebar {
     @Override
     public void setSimulationTreeRootNode(final SimulationTreeNode treeNode) {
         this.rootNode = treeNode;
-        this.entityListModel.setRoot(SwingEntitySidebar.generateDefaultMutableTreeNodeFromSimulationTreeNode(this.rootNode));
-        this.updateSimulationTree();
+        SwingUtilities.invokeLater(() -> {
+            this.innerNodes.clear();
+            this.shownChildren.clear();
+            this.entityListModel.setRoot(this.generateDefaultMutableTreeNodeFromSimulationTreeNode(treeNode));
+        });
     }
     
-    private void getExpanededTreePaths(final List<TreePath> expanded, final TreePath path) {
-        if (path == null) return;
-        for (final Enumeration<TreePath> e = this.entityList.getExpandedDescendants(path); e.hasMoreElements();) {
-            final TreePath p = e.nextElement();
-            expanded.add(p);
-            this.getExpanededTreePaths(expanded, p);
+    @Override
+    public void updateSimulationTree() {
+        if (this.treeUpdatePending.compareAndSet(false, true)) {
+            this.treeUpdateTimer.start();
         }
     }
     
-    private TreePath getRootPath() {
-        final Object root = this.entityList.getModel().getRoot();
-        if (root == null) return null;
-        return new TreePath(root);
-    }
-    
-    @Override
-    public void updateSimulationTree() {
-        final TreePath lastSelected = this.entityList.getSelectionPath();
-        final List<TreePath> expanded = new ArrayList<>();
-        this.getExpanededTreePaths(expanded, this.getRootPath());
-        SwingEntitySidebar.updateTreeNodeChildren((DefaultMutableTreeNode) this.entityList.getModel().getRoot());
-        this.entityListModel.reload();
-        this.entityList.addSelectionPath(lastSelected);
-        for (final TreePath p : expanded) {
-            this.entityList.expandPath(p);
+    /**
+     * Apply the changes of the simulation tree since the last update to the JTree model.
+     * <p>
+     * Only the children of inner nodes whose children changed are compared; the model is notified of every inserted and
+     * removed node, so the expanded paths and the selection of the JTree are kept. Must be called on the event dispatch
+     * thread.
+     * </p>
+     */
+    private void applySimulationTreeChanges() {
+        this.treeUpdatePending.set(false);
+        if (this.entityListModel.getRoot() == null) return;
+        for (final Map.Entry<SimulationTreeNode, DefaultMutableTreeNode> entry : new ArrayList<>(this.innerNodes.entrySet())) {
+            final List<SimulationTreeNode> children = entry.getKey().getChildren();
+            if (children != this.shownChildren.get(entry.getKey())) {
+                this.updateTreeNodeChildren(entry.getValue(), children);
+            }
         }
     }
     
@@ -174,50 +198,79 @@ public class SwingEntitySidebar extends JPanel implements EntitySidebar {
         this.entityInspector.updateEntityInspectorEntries(entries);
     }
     
+    @Override
+    public void updateEntityInspectorValues(final Map<String, String> values) {
+        this.entityInspector.updateEntityInspectorValues(values);
+    }
+    
     @Override
     public Dimension getPreferredSize() {
         return new Dimension(300, 800);
     }
     
-    private static void updateTreeNodeChildren(final DefaultMutableTreeNode node) {
-        if ((node == null) || !node.getAllowsChildren()) return;
+    /**
+     * Update the children of the given model node to the given children and notify the model.
+     * <p>
+     * New children are always appended to a {@link SimulationTreeNode}, so the children kept stay in the same order.
+     * </p>
+     */
+    private void updateTreeNodeChildren(final DefaultMutableTreeNode node, final List<SimulationTreeNode> children) {
         final SimulationTreeNode data = (SimulationTreeNode) node.getUserObject();
+        this.shownChildren.put(data, children);
+        final Set<SimulationTreeNode> newChildren = new HashSet<>(children);
         
-        final List<DefaultMutableTreeNode> toRemove = new ArrayList<>();
-        final List<SimulationTreeNode> toAdd = new ArrayList<>();
-        
-        outer: for (final SimulationTreeNode child : data.getChildren()) {
-            for (final Enumeration<TreeNode> e = node.children(); e.hasMoreElements();) {
-                final DefaultMutableTreeNode childNode = (DefaultMutableTreeNode) e.nextElement();
-                if (childNode.getUserObject().equals(child)) {
-                    continue outer;
-                }
+        // remove old children
+        final List<Integer> removedIndices = new ArrayList<>();
+        final List<TreeNode> removedNodes = new ArrayList<>();
+        final Set<SimulationTreeNode> keptChildren = new HashSet<>();
+        for (int i = 0; i < node.getChildCount(); i++) {
+            final DefaultMutableTreeNode childNode = (DefaultMutableTreeNode) node.getChildAt(i);
+            final SimulationTreeNode child = (SimulationTreeNode) childNode.getUserObject();
+            if (newChildren.contains(child)) {
+                keptChildren.add(child);
+            } else {
+                removedIndices.add(i);
+                removedNodes.add(childNode);
             }
-            toAdd.add(child);
+        }
+        for (int i = removedIndices.size() - 1; i >= 0; i--) {
+            node.remove(removedIndices.get(i));
+        }
+        if (!removedIndices.isEmpty()) {
+            this.forgetTreeNodes(removedNodes);
+            this.entityListModel.nodesWereRemoved(node, SwingEntitySidebar.toArray(removedIndices), removedNodes.toArray());
         }
         
-        outer: for (final Enumeration<TreeNode> e = node.children(); e.hasMoreElements();) {
-            final DefaultMutableTreeNode childNode = (DefaultMutableTreeNode) e.nextElement();
-            for (final SimulationTreeNode child : data.getChildren()) {
-                if (childNode.getUserObject().equals(child)) {
-                    continue outer;
-                }
+        // append new children
+        final List<Integer> insertedIndices = new ArrayList<>();
+        for (final SimulationTreeNode child : children) {
+            if (!keptChildren.contains(child)) {
+                insertedIndices.add(node.getChildCount());
+                node.add(this.generateDefaultMutableTreeNodeFromSimulationTreeNode(child));
             }
-            toRemove.add(childNode);
         }
-        
-        for (final DefaultMutableTreeNode child : toRemove) {
-            node.remove(child);
+        if (!insertedIndices.isEmpty()) {
+            this.entityListModel.nodesWereInserted(node, SwingEntitySidebar.toArray(insertedIndices));
         }
-        
-        for (final SimulationTreeNode child : toAdd) {
-            node.add(SwingEntitySidebar.generateDefaultMutableTreeNodeFromSimulationTreeNode(child));
+    }
+    
+    private void forgetTreeNodes(final List<? extends TreeNode> nodes) {
+        for (final TreeNode node : nodes) {
+            final SimulationTreeNode data = (SimulationTreeNode) ((DefaultMutableTreeNode) node).getUserObject();
+            if (!data.isLeaf()) {
+                this.innerNodes.remove(data);
+                this.shownChildren.remove(data);
+                this.forgetTreeNodes(Collections.list(node.children()));
+            }
         }
-        
-        for (final Enumeration<TreeNode> e = node.children(); e.hasMoreElements();) {
-            final DefaultMutableTreeNode childNode = (DefaultMutableTreeNode) e.nextElement();
-            SwingEntitySidebar.updateTreeNodeChildren(childNode);
+    }
+    
+    private static int[] toArray(final List<Integer> list) {
+        final int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
         }
+        return array;
     }
     
     /**
@@ -227,15 +280,18 @@ public class SwingEntitySidebar extends JPanel implements EntitySidebar {
      *     The {@link SimulationTreeNode} the Tree structure is generated from
      * @return Returns the corresponding {@link DefaultMutableTreeNode}
      */
-    private static DefaultMutableTreeNode generateDefaultMutableTreeNodeFromSimulationTreeNode(final SimulationTreeNode node) {
+    private DefaultMutableTreeNode generateDefaultMutableTreeNodeFromSimulationTreeNode(final SimulationTreeNode node) {
         final DefaultMutableTreeNode returnNode = new DefaultMutableTreeNode(node);
         
         if (node.isLeaf()) {
             returnNode.setAllowsChildren(false);
         } else {
-            node.forEachChild(
-                    (final SimulationTreeNode childNode) -> returnNode.add(SwingEntitySidebar.generateDefaultMutableTreeNodeFromSimulationTreeNode(childNode))
-            );
+            final List<SimulationTreeNode> children = node.getChildren();
+            this.innerNodes.put(node, returnNode);
+            this.shownChildren.put(node, children);
+            for (final SimulationTreeNode childNode : children) {
+                returnNode.add(this.generateDefaultMutableTreeNodeFromSimulationTreeNode(childNode));
+            }
         }
         
         return returnNode;
@@ -260,7 +316,11 @@ public class SwingEntitySidebar extends JPanel implements EntitySidebar {
     @Override
     public void disbaleSimulationTree() {
         SwingEntitySidebar.this.entityList.setEnabled(false);
-        SwingEntitySidebar.this.entityListModel.setRoot(null);
+        SwingUtilities.invokeLater(() -> {
+            this.innerNodes.clear();
+            this.shownChildren.clear();
+            this.entityListModel.setRoot(null);
+        });
     }
     
     @Override
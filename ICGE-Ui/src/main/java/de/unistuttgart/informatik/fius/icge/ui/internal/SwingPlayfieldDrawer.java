@@ -21,17 +21,24 @@ import java.awt.Toolkit;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.TreeSet;
 
 import javax.swing.JPanel;
 import javax.swing.RepaintManager;
 import javax.swing.SwingUtilities;
 
 import de.unistuttgart.informatik.fius.icge.ui.Drawable;
+import de.unistuttgart.informatik.fius.icge.ui.DrawableDelta;
 import de.unistuttgart.informatik.fius.icge.ui.PlayfieldDrawer;
 import de.unistuttgart.informatik.fius.icge.ui.SimulationProxy;
 import de.unistuttgart.informatik.fius.icge.ui.Toolbar.ControlButtonState;
@@ -85,11 +92,21 @@ public class SwingPlayfieldDrawer extends JPanel implements PlayfieldDrawer {
     private String             selectedEntityTexture = null;
     private SimulationProxy    simulationProxy;
     
-    private List<Drawable> drawables         = List.of();
-    private List<Drawable> animatedDrawables = List.of();
-    private boolean        fullRepaintNeeded = true;
-    private Rectangle      lastRedrawArea    = null;
-    private long           currentFrame      = 0;
+    /** Lock for all collections of drawables below. */
+    private final Object                     drawablesLock            = new Object();
+    /** All drawables by their key; see {@link DrawableDelta#getKey()}. */
+    private final Map<Object, DrawableEntry> drawablesByKey           = new HashMap<>();
+    /** The drawables that are not moving; kept sorted so that no sorting is needed for painting. */
+    private final TreeSet<DrawableEntry>     staticDrawables          = new TreeSet<>();
+    /** The drawables that are currently moving; sorted for every frame. */
+    private final Set<DrawableEntry>         movingDrawables          = new LinkedHashSet<>();
+    /** The drawables with an animated texture. */
+    private final Set<DrawableEntry>         textureAnimatedDrawables = new HashSet<>();
+    private long                             nextEntrySequence        = 0;
+    
+    private boolean   fullRepaintNeeded = true;
+    private Rectangle lastRedrawArea    = null;
+    private long      currentFrame      = 0;
     
     // current graphic settings
     private final RepaintManager repaintManager;
@@ -197,20 +214,113 @@ public class SwingPlayfieldDrawer extends JPanel implements PlayfieldDrawer {
     
     @Override
     public void setDrawables(final List<Drawable> drawables) {
-        this.drawables = drawables.stream().sorted((a, b) -> a.compareTo(b)).collect(Collectors.toUnmodifiableList());
-        this.animatedDrawables = drawables.stream().filter(
-                d -> d.isAnimated() || this.textureRegistry.isTextureAnimated(d.getTextureHandle())
-        ).collect(Collectors.toUnmodifiableList());
+        synchronized (this.drawablesLock) {
+            this.drawablesByKey.clear();
+            this.staticDrawables.clear();
+            this.movingDrawables.clear();
+            this.textureAnimatedDrawables.clear();
+            for (final Drawable drawable : drawables) {
+                // the drawables can not be changed by deltas, so every drawable gets a new key
+                this.putDrawable(new Object(), drawable);
+            }
+        }
         this.fullRepaintNeeded = true;
         this.draw(this.currentFrame);
     }
     
+    @Override
+    public void applyDrawableDeltas(final List<DrawableDelta> deltas) {
+        if (deltas.isEmpty()) return;
+        synchronized (this.drawablesLock) {
+            for (final DrawableDelta delta : deltas) {
+                if (delta.getKind() == DrawableDelta.Kind.REMOVED) {
+                    this.removeDrawable(delta.getKey());
+                } else {
+                    this.putDrawable(delta.getKey(), delta.getDrawable());
+                }
+            }
+        }
+        this.fullRepaintNeeded = true;
+        this.draw(this.currentFrame);
+    }
+    
+    /**
+     * Add or replace the drawable with the given key; the caller must hold the {@link #drawablesLock}.
+     */
+    private void putDrawable(final Object key, final Drawable drawable) {
+        this.removeDrawable(key);
+        final DrawableEntry entry = new DrawableEntry(drawable, this.nextEntrySequence++);
+        this.drawablesByKey.put(key, entry);
+        drawable.setCurrentTick(this.currentFrame);
+        if (drawable.isAnimated()) {
+            this.movingDrawables.add(entry);
+        } else {
+            this.staticDrawables.add(entry);
+        }
+        if (this.textureRegistry.isTextureAnimated(drawable.getTextureHandle())) {
+            this.textureAnimatedDrawables.add(entry);
+        }
+    }
+    
+    /**
+     * Remove the drawable with the given key if present; the caller must hold the {@link #drawablesLock}.
+     */
+    private void removeDrawable(final Object key) {
+        final DrawableEntry entry = this.drawablesByKey.remove(key);
+        if (entry == null) return;
+        if (!this.movingDrawables.remove(entry)) {
+            this.staticDrawables.remove(entry);
+        }
+        this.textureAnimatedDrawables.remove(entry);
+    }
+    
+    /**
+     * Get all drawables sorted in the order they have to be painted.
+     *
+     * @return a sorted copy of all drawables
+     */
+    private List<Drawable> getSortedDrawables() {
+        synchronized (this.drawablesLock) {
+            final List<DrawableEntry> moving = new ArrayList<>(this.movingDrawables);
+            moving.sort(null);
+            // merge the sorted static drawables with the (few) sorted moving drawables
+            final List<Drawable> sorted = new ArrayList<>(this.staticDrawables.size() + moving.size());
+            final Iterator<DrawableEntry> staticIter = this.staticDrawables.iterator();
+            DrawableEntry nextStatic = staticIter.hasNext() ? staticIter.next() : null;
+            for (final DrawableEntry nextMoving : moving) {
+                while ((nextStatic != null) && (nextStatic.compareTo(nextMoving) < 0)) {
+                    sorted.add(nextStatic.drawable);
+                    nextStatic = staticIter.hasNext() ? staticIter.next() : null;
+                }
+                sorted.add(nextMoving.drawable);
+            }
+            while (nextStatic != null) {
+                sorted.add(nextStatic.drawable);
+                nextStatic = staticIter.hasNext() ? staticIter.next() : null;
+            }
+            return sorted;
+        }
+    }
+    
     @Override
     public void draw(final long tickCount) {
         this.currentFrame = tickCount;
-        this.animatedDrawables.forEach(d -> d.setCurrentTick(tickCount));
-        if (this.animatedDrawables.size() > 0) {
-            this.drawables = this.drawables.stream().sorted((a, b) -> a.compareTo(b)).collect(Collectors.toUnmodifiableList());
+        final List<Drawable> animatedDrawables = new ArrayList<>();
+        synchronized (this.drawablesLock) {
+            final Iterator<DrawableEntry> iter = this.movingDrawables.iterator();
+            while (iter.hasNext()) {
+                final DrawableEntry entry = iter.next();
+                entry.drawable.setCurrentTick(tickCount);
+                animatedDrawables.add(entry.drawable);
+                if (!entry.drawable.isAnimated()) {
+                    // the animation is finished, so the position of the drawable does not change anymore
+                    iter.remove();
+                    this.staticDrawables.add(entry);
+                }
+            }
+            for (final DrawableEntry entry : this.textureAnimatedDrawables) {
+                animatedDrawables.add(entry.drawable);
+            }
         }
         
         SwingUtilities.invokeLater(() -> {
@@ -230,11 +340,11 @@ public class SwingPlayfieldDrawer extends JPanel implements PlayfieldDrawer {
                 this.paintImmediately(visible);
                 this.fullRepaintNeeded = false;
             } else {
-                if (this.animatedDrawables.size() > 0) {
+                if (animatedDrawables.size() > 0) {
                     final Rectangle visible = this.getVisibleRect();
                     final double cellSize = SwingPlayfieldDrawer.CELL_SIZE * this.scale;
                     final int textureSize = Math.toIntExact(Math.round(cellSize));
-                    final Optional<Rectangle> rectToDraw = this.animatedDrawables.stream().map(
+                    final Optional<Rectangle> rectToDraw = animatedDrawables.stream().map(
                             d -> this.getScreenPointFromCellCoordinates(d.getX(), d.getY(), cellSize)
                     ).map(p -> SwingPlayfieldDrawer.getPaintRectFromPoint(p, textureSize)).filter(r -> r.intersects(visible))
                             .reduce((final Rectangle r1, final Rectangle r2) -> {
@@ -268,10 +378,6 @@ public class SwingPlayfieldDrawer extends JPanel implements PlayfieldDrawer {
                 this.repaintManager.setDoubleBufferingEnabled(bufferEnabled);
             }
         });
-        // filter out finished animations
-        this.animatedDrawables = this.drawables.stream().filter(
-                d -> d.isAnimated() || this.textureRegistry.isTextureAnimated(d.getTextureHandle())
-        ).collect(Collectors.toUnmodifiableList());
     }
     
     @Override
@@ -324,7 +430,7 @@ public class SwingPlayfieldDrawer extends JPanel implements PlayfieldDrawer {
         g.setColor(SwingPlayfieldDrawer.BACKGROUND_COLOR);
         g.fillRect(0, 0, this.getWidth(), this.getHeight());
         this.paintGrid(g);
-        this.paintDrawableList(g, this.drawables);
+        this.paintDrawableList(g, this.getSortedDrawables());
         this.paintOverlay(g);
     }
     
@@ -608,4 +714,25 @@ public class SwingPlayfieldDrawer extends JPanel implements PlayfieldDrawer {
         this.selectedEntityType = typeName;
         this.selectedEntityTexture = textureHandle;
     }
+    
+    /**
+     * A drawable of this playfield drawer; the sequence number makes entries of equal drawables distinguishable.
+     */
+    private static final class DrawableEntry implements Comparable<DrawableEntry> {
+        
+        private final Drawable drawable;
+        private final long     sequence;
+        
+        private DrawableEntry(final Drawable drawable, final long sequence) {
+            this.drawable = drawable;
+            this.sequence = sequence;
+        }
+        
+        @Override
+        public int compareTo(final DrawableEntry o) {
+            final int compareResult = this.drawable.compareTo(o.drawable);
+            if (compareResult != 0) return compareResult;
+            return Long.compare(this.sequence, o.sequence);
+        }
+    }
 }